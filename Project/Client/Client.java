@@ -5,15 +5,21 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+
 import Project.Common.PointsPayload;
+import Project.Client.Interfaces.IBoardEvents;
 import Project.Client.Interfaces.IClientEvents;
 import Project.Client.Interfaces.IConnectionEvents;
 import Project.Client.Interfaces.IMessageEvents;
@@ -24,20 +30,27 @@ import Project.Client.Interfaces.IRoomEvents;
 import Project.Client.Interfaces.IStatusEvents;
 import Project.Client.Interfaces.ITimeEvents;
 import Project.Client.Interfaces.ITurnEvent;
+import Project.Common.BoardPayload;
+import Project.Common.CellPayload;
 import Project.Common.Command;
 import Project.Common.ConnectionPayload;
 import Project.Common.Constants;
 import Project.Common.LoggerUtil;
 import Project.Common.Payload;
+import Project.Common.PayloadTracer;
 import Project.Common.PayloadType;
 import Project.Common.Phase;
 import Project.Common.ReadyPayload;
+import Project.Common.RedirectPayload;
 import Project.Common.RoomAction;
 import Project.Common.RoomResultPayload;
 import Project.Common.TextFX;
 import Project.Common.User;
 import Project.Common.TextFX.Color;
 import Project.Common.TimerPayload;
+import Project.Common.TimerType;
+import Project.Common.TraceContext;
+import Project.Common.TraceStage;
 
 /**
  * Demoing bi-directional communication between client and server in a
@@ -59,6 +72,8 @@ public enum Client {
 
     private Socket server = null;
     private ObjectOutputStream out = null;
+    // all writes to out go through here (see OutboundQueue)
+    private volatile OutboundQueue sender = null;
     private ObjectInputStream in = null;
     final Pattern ipAddressPattern = Pattern
             .compile("/connect\\s+(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}:\\d{3,5})");
@@ -67,12 +82,78 @@ public enum Client {
     private final ConcurrentHashMap<Long, User> knownClients = new ConcurrentHashMap<Long, User>();
     private User myUser = new User();
     private Phase currentPhase = Phase.READY;
+    // set when the server hands us off to another cluster node
+    private volatile RedirectPayload pendingRedirect = null;
+    // room action to repeat once the redirected connection is established
+    private RedirectPayload pendingRoomAction = null;
+    // traced payloads waiting for their first reply, keyed by trace id
+    private final ConcurrentHashMap<Long, TraceContext> pendingTraces = new ConcurrentHashMap<>();
+    private static final int MAX_PENDING_TRACES = 256;
+    private static final long PENDING_TRACE_TIMEOUT_NANOS = 10_000_000_000L;
+
+    // server System.nanoTime() minus ours, estimated from the handshake
+    private volatile long clockOffsetNanos = 0;
+    private volatile long handshakeSentAt = 0;
+    // users that just left, kept until the listeners have seen the leave event
+    private final ConcurrentHashMap<Long, User> departedClients = new ConcurrentHashMap<Long, User>();
+
+    // where the current session lives, to reconnect if it drops
+    private volatile String lastHost = null;
+    private volatile int lastPort = 0;
+    private volatile String currentRoom = null;
+    // true once the handshake completes, false again if we chose to disconnect
+    private volatile boolean reconnectOnDrop = false;
+    // override with -Dclient.reconnectAttempts=N (0 disables reconnecting)
+    private static final int DEFAULT_RECONNECT_ATTEMPTS = 10;
+    private static final long RECONNECT_BASE_MILLIS = 500;
+    private static final long RECONNECT_MAX_MILLIS = 30_000;
+    // runs the backoff delays and attempts, so no pool thread sleeps through them
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+        Thread t = new Thread(r, "client-reconnect");
+        t.setDaemon(true);
+        return t;
+    });
 
-    // callback that updates the UI
-    private static List<IClientEvents> events = new ArrayList<IClientEvents>();
-
+    /**
+     * Registers a UI listener for every event interface it implements (safe from
+     * any thread)
+     * 
+     * @param e
+     */
     public void addCallback(IClientEvents e) {
-        events.add(e);
+        ClientEventBus.INSTANCE.register(e);
+    }
+
+    /**
+     * Queues an event for the listeners of type; see ClientEventBus
+     */
+    private <T extends IClientEvents> void publish(Class<T> type, Consumer<T> event) {
+        ClientEventBus.INSTANCE.publish(type, event);
+    }
+
+    /**
+     * Queues a chat style notification that may be dropped if the listeners are
+     * far behind; see ClientEventBus.publishDroppable()
+     */
+    private void publishMessage(long clientId, String message) {
+        ClientEventBus.INSTANCE.publishDroppable(IMessageEvents.class, e -> e.onMessageReceive(clientId, message));
+    }
+
+    /**
+     * Removes a user whose leave/disconnect was just published. Listeners run
+     * later on the event thread and still look up the name, so it stays
+     * resolvable until they're done.
+     * 
+     * @param clientId
+     * @return the removed user or null
+     */
+    private User removeKnownClient(long clientId) {
+        User user = knownClients.remove(clientId);
+        if (user != null) {
+            departedClients.put(clientId, user);
+            ClientEventBus.INSTANCE.execute(() -> departedClients.remove(clientId, user));
+        }
+        return user;
     }
 
     private void error(String message) {
@@ -96,47 +177,35 @@ public enum Client {
     }
 
     /**
-     * Takes an IP address and a port to attempt a socket connection to a server.
+     * Takes an ip address and a port to attempt a socket connection to a server.
      * 
      * @param address
      * @param port
+     * @param username
+     * @param callback (for triggering UI events)
      * @return true if connection was successful
      */
-    @Deprecated
-    private boolean connect(String address, int port) {
-        try {
-            server = new Socket(address, port);
-            // channel to send to server
-            out = new ObjectOutputStream(server.getOutputStream());
-            // channel to listen to server
-            in = new ObjectInputStream(server.getInputStream());
-            LoggerUtil.INSTANCE.info("Client connected");
-            // Use CompletableFuture to run listenToServer() in a separate thread
-            CompletableFuture.runAsync(this::listenToServer);
-        } catch (UnknownHostException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return isConnected();
+    public boolean connect(String address, int port, String username, IClientEvents callback) {
+        myUser.setClientName(username);
+        addCallback(callback);
+        return openConnection(address, port);
     }
 
     /**
-     * Takes an ip address and a port to attempt a socket connection to a server.
+     * Opens the socket, starts the listener and sends the handshake
      * 
      * @param address
      * @param port
-     * @param username
-     * @param callback (for triggering UI events)
      * @return true if connection was successful
      */
-    public boolean connect(String address, int port, String username, IClientEvents callback) {
-        myUser.setClientName(username);
-        addCallback(callback);
+    private boolean openConnection(String address, int port) {
+        lastHost = address;
+        lastPort = port;
         try {
             server = new Socket(address, port);
             // channel to send to server
             out = new ObjectOutputStream(server.getOutputStream());
+            sender = new OutboundQueue(out, Integer.getInteger("client.sendQueue", OutboundQueue.DEFAULT_CAPACITY));
             // channel to listen to server
             in = new ObjectInputStream(server.getInputStream());
             LoggerUtil.INSTANCE.info("Client connected");
@@ -147,6 +216,7 @@ public enum Client {
             e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
+            closeServerConnection(); // don't report a half open socket as connected
         }
         return isConnected();
     }
@@ -156,12 +226,8 @@ public enum Client {
     }
 
     public void clientSideGameEvent(String str) {
-        events.forEach(event -> {
-            if (event instanceof IMessageEvents) {
-                // Note: using -2 to target GameEventPanel
-                ((IMessageEvents) event).onMessageReceive(Constants.GAME_EVENT_CHANNEL, str);
-            }
-        });
+        // Note: using -2 to target GameEventPanel
+        publishMessage(Constants.GAME_EVENT_CHANNEL, str);
     }
 
     /**
@@ -175,8 +241,12 @@ public enum Client {
         if (id == Constants.DEFAULT_CLIENT_ID) {
             return "Room";
         }
-        if (knownClients.containsKey(id)) {
-            return knownClients.get(id).getClientName();
+        User user = knownClients.get(id);
+        if (user == null) {
+            user = departedClients.get(id);
+        }
+        if (user != null) {
+            return user.getClientName();
         }
         return "[Unknown]";
     }
@@ -185,8 +255,12 @@ public enum Client {
         if (id == Constants.DEFAULT_CLIENT_ID) {
             return "Room";
         }
-        if (knownClients.containsKey(id)) {
-            return knownClients.get(id).getDisplayName();
+        User user = knownClients.get(id);
+        if (user == null) {
+            user = departedClients.get(id);
+        }
+        if (user != null) {
+            return user.getDisplayName();
         }
         return "[Unknown]";
     }
@@ -221,9 +295,8 @@ public enum Client {
      * 
      * @param text
      * @return true if the text was a command or triggered a command
-     * @throws IOException
      */
-    private boolean processClientCommand(String text) throws IOException {
+    private boolean processClientCommand(String text) {
         boolean wasCommand = false;
         if (text.startsWith(Constants.COMMAND_TRIGGER)) {
             text = text.substring(1); // remove the /
@@ -238,8 +311,8 @@ public enum Client {
                 // splits on the space after connect (gives us host and port)
                 // splits on : to get host as index 0 and port as index 1
                 String[] parts = text.trim().replaceAll(" +", " ").split(" ")[1].split(":");
-                connect(parts[0].trim(), Integer.parseInt(parts[1].trim()));
-                sendClientName(myUser.getClientName());// sync follow-up data (handshake)
+                // also records the address so a dropped connection can be reconnected
+                openConnection(parts[0].trim(), Integer.parseInt(parts[1].trim()));
                 wasCommand = true;
             } else if (text.startsWith(Command.NAME.command)) {
                 text = text.replace(Command.NAME.command, "").trim();
@@ -319,42 +392,71 @@ public enum Client {
                 text = text.replace(Command.PICK.command, "").trim();
                 sendPick(text);
                 wasCommand = true;
+            } else if (text.startsWith(Command.TRACE.command)) {
+                processTraceCommand(text.replace(Command.TRACE.command, "").trim());
+                wasCommand = true;
             }
         }
         return wasCommand;
     }
 
+    /**
+     * /trace on|off|reset, no argument dumps the breakdown and slowest traces
+     * 
+     * @param option
+     */
+    private void processTraceCommand(String option) {
+        PayloadTracer tracer = PayloadTracer.INSTANCE;
+        switch (option.toLowerCase()) {
+            case "on":
+                tracer.setEnabled(true);
+                LoggerUtil.INSTANCE.info(TextFX.colorize("Payload tracing enabled", Color.YELLOW));
+                break;
+            case "off":
+                tracer.setEnabled(false);
+                pendingTraces.clear();
+                LoggerUtil.INSTANCE.info(TextFX.colorize("Payload tracing disabled", Color.YELLOW));
+                break;
+            case "reset":
+                tracer.reset();
+                break;
+            default:
+                LoggerUtil.INSTANCE.info(tracer.report());
+                break;
+        }
+    }
+
     // Start Send*() methods
-    public void sendPick(String text) throws IOException {
+    public CompletableFuture<Void> sendPick(String text) {
         // NOTE for now using ReadyPayload as it has the necessary properties
         // An actual turn may include other data for your project
         ReadyPayload rp = new ReadyPayload();
         rp.setPayloadType(PayloadType.PICK);
         rp.setReady(true); // <- techically not needed as we'll use the payload type as a trigger
         rp.setMessage(text);
-        sendToServer(rp);
+        return sendToServer(rp);
     }
 
-    public void sendDoTurn(String text) throws IOException {
+    public CompletableFuture<Void> sendDoTurn(String text) {
         // NOTE for now using ReadyPayload as it has the necessary properties
         // An actual turn may include other data for your project
         ReadyPayload rp = new ReadyPayload();
         rp.setPayloadType(PayloadType.TURN);
         rp.setReady(true); // <- techically not needed as we'll use the payload type as a trigger
         rp.setMessage(text);
-        sendToServer(rp);
+        return sendToServer(rp);
     }
 
     /**
      * Sends the client's intent to be ready.
      * Can also be used to toggle the ready state if coded on the server-side
      * 
-     * @throws IOException
+     * @return completes once it's flushed to the server
      */
-    public void sendReady() throws IOException {
+    public CompletableFuture<Void> sendReady() {
         ReadyPayload rp = new ReadyPayload();
         rp.setReady(true); // <- techically not needed as we'll use the payload type as a trigger
-        sendToServer(rp);
+        return sendToServer(rp);
     }
 
     /**
@@ -362,9 +464,9 @@ public enum Client {
      * 
      * @param roomName
      * @param roomAction (join, leave, create)
-     * @throws IOException
+     * @return completes once it's flushed to the server
      */
-    public void sendRoomAction(String roomName, RoomAction roomAction) throws IOException {
+    public CompletableFuture<Void> sendRoomAction(String roomName, RoomAction roomAction) {
         Payload payload = new Payload();
         payload.setMessage(roomName);
         switch (roomAction) {
@@ -384,76 +486,105 @@ public enum Client {
                 LoggerUtil.INSTANCE.warning(TextFX.colorize("Invalid room action", Color.RED));
                 break;
         }
-        sendToServer(payload);
+        return sendToServer(payload);
     }
 
     /**
      * Sends a reverse message action to the server
      * 
      * @param message
-     * @throws IOException
+     * @return completes once it's flushed to the server
      */
-    private void sendReverse(String message) throws IOException {
+    private CompletableFuture<Void> sendReverse(String message) {
         Payload payload = new Payload();
         payload.setMessage(message);
         payload.setPayloadType(PayloadType.REVERSE);
-        sendToServer(payload);
-
+        return sendToServer(payload);
     }
 
     /**
      * Sends a disconnect action to the server
      * 
-     * @throws IOException
+     * @return completes once it's flushed to the server
      */
-    void sendDisconnect() throws IOException {
+    CompletableFuture<Void> sendDisconnect() {
+        reconnectOnDrop = false; // the server closing on us is expected now
         Payload payload = new Payload();
         payload.setPayloadType(PayloadType.DISCONNECT);
-        sendToServer(payload);
+        return sendToServer(payload);
     }
 
     /**
      * Sends a message to the server
      * 
      * @param message
-     * @throws IOException
+     * @return completes once it's flushed to the server
      */
-    public void sendMessage(String message) throws IOException {
+    public CompletableFuture<Void> sendMessage(String message) {
         // added in Milestone 3 to persist usage of slash commands
         if (processClientCommand(message)) {
             
-            return; // if the message was a command, don't send it to the server
+            return CompletableFuture.completedFuture(null); // if the message was a command, don't send it to the server
         }
         Payload payload = new Payload();
         payload.setMessage(message);
         payload.setPayloadType(PayloadType.MESSAGE);
-        sendToServer(payload);
+        return sendToServer(payload);
     }
 
     /**
      * Sends the client's name to the server (what the user desires to be called)
      * 
      * @param name
-     * @throws IOException
+     * @return completes once it's flushed to the server
      */
-    private void sendClientName(String name) throws IOException {
+    private CompletableFuture<Void> sendClientName(String name) {
         if (myUser.getClientName() == null || myUser.getClientName().length() == 0) {
             System.out.println(TextFX.colorize("Name must be set first via /name command", Color.RED));
-            return;
+            return CompletableFuture.failedFuture(new IllegalStateException("Name must be set first"));
         }
         ConnectionPayload payload = new ConnectionPayload();
         payload.setClientName(name);
         payload.setPayloadType(PayloadType.CLIENT_CONNECT);
-        sendToServer(payload);
+        handshakeSentAt = System.nanoTime();
+        payload.setClockNanos(handshakeSentAt);
+        return sendToServer(payload);
     }
 
-    private void sendToServer(Payload payload) throws IOException {
-        if (isConnected()) {
-            out.writeObject(payload);
-            out.flush(); // good practice to ensure data is written out immediately
+    /**
+     * Queues the payload for the writer thread; never blocks on the socket
+     * 
+     * @param payload
+     * @return completes once the payload is flushed, fails if it couldn't be
+     *         queued (SendQueueFullException) or sent (IOException)
+     */
+    private CompletableFuture<Void> sendToServer(Payload payload) {
+        OutboundQueue queue = sender;
+        if (queue != null && isConnected()) {
+            TraceContext trace = PayloadTracer.INSTANCE.start(payload.getPayloadType());
+            if (trace != null && pendingTraces.size() >= MAX_PENDING_TRACES) {
+                // requests the server never answered (dropped, rate limited, etc)
+                pendingTraces.values().removeIf(t -> t.sinceMark() > PENDING_TRACE_TIMEOUT_NANOS);
+            }
+            if (trace != null && pendingTraces.size() < MAX_PENDING_TRACES) {
+                payload.setTrace(trace);
+                pendingTraces.put(trace.getTraceId(), trace);
+            }
+            CompletableFuture<Void> sent = queue.send(payload);
+            sent.whenComplete((r, e) -> {
+                if (e != null) {
+                    LoggerUtil.INSTANCE.warning(String.format("%s not sent: %s", payload.getPayloadType(),
+                            e.getMessage()));
+                    if (payload.getTrace() != null) {
+                        pendingTraces.remove(payload.getTrace().getTraceId());
+                    }
+                }
+            });
+            return sent;
         } else {
             LoggerUtil.INSTANCE.warning(
                     "Not connected to server (hint: type `/connect host:port` without the quotes and replace host/port with the necessary info)");
+            return CompletableFuture.failedFuture(new IOException("Not connected to server"));
         }
     }
     // End Send*() methods
@@ -472,12 +603,19 @@ public enum Client {
      * Listens for messages from the server
      */
     private void listenToServer() {
+        boolean isDropped = false;
         try {
             while (isRunning && isConnected()) {
                 Payload fromServer = (Payload) in.readObject(); // blocking read
                 if (fromServer != null) {
-                    processPayload(fromServer);
-
+                    if (fromServer.getTrace() != null) {
+                        processTracedPayload(fromServer);
+                    } else {
+                        processPayload(fromServer);
+                    }
+                    if (pendingRedirect != null) {
+                        break; // hand-off to another node, see followRedirect()
+                    }
                 } else {
                     LoggerUtil.INSTANCE.info("Server disconnected");
                     break;
@@ -490,11 +628,145 @@ public enum Client {
             if (isRunning) {
                 LoggerUtil.INSTANCE.warning("Connection dropped");
                 e.printStackTrace();
+                isDropped = true;
             }
         } finally {
             closeServerConnection();
         }
         LoggerUtil.INSTANCE.info("listenToServer thread stopped");
+        if (pendingRedirect != null && isRunning) {
+            followRedirect();
+        } else if (isDropped && reconnectOnDrop && isRunning) {
+            reconnect();
+        }
+    }
+
+    /**
+     * Tries to get back to the room we were in after the connection dropped,
+     * waiting a jittered, exponentially growing delay between attempts. Gives up
+     * after client.reconnectAttempts failures (the UI returns to the connection
+     * screen) or if the user connects on their own meanwhile. The attempts run on
+     * the client-reconnect thread.
+     */
+    private void reconnect() {
+        reconnectOnDrop = false;
+        long myId = myUser.getClientId();
+        String room = currentRoom;
+        // the room is re-synced from scratch once we're back
+        knownClients.clear();
+        knownClients.put(myId, myUser);
+        publish(IConnectionEvents.class, e -> e.onResetUserList());
+        int attempts = Integer.getInteger("client.reconnectAttempts", DEFAULT_RECONNECT_ATTEMPTS);
+        scheduleReconnect(myId, room, 0, attempts);
+    }
+
+    /**
+     * Queues the given attempt after its backoff delay, or gives up if there are
+     * none left
+     */
+    private void scheduleReconnect(long myId, String room, int attempt, int attempts) {
+        if (attempt >= attempts || !isRunning) {
+            error("Couldn't reconnect to the server");
+            // same as the server disconnecting us
+            publish(IConnectionEvents.class, e -> e.onClientDisconnect(myId));
+            ClientEventBus.INSTANCE.execute(() -> {
+                knownClients.clear();
+                myUser.reset();
+            });
+            return;
+        }
+        long delay = reconnectDelayMillis(attempt);
+        String notice = String.format("Connection lost, reconnecting in %.1fs (attempt %d of %d)",
+                delay / 1000.0, attempt + 1, attempts);
+        LoggerUtil.INSTANCE.warning(TextFX.colorize(notice, Color.YELLOW));
+        publishMessage(Constants.DEFAULT_CLIENT_ID, notice);
+        reconnectScheduler.schedule(() -> attemptReconnect(myId, room, attempt, attempts), delay,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void attemptReconnect(long myId, String room, int attempt, int attempts) {
+        if (!isRunning || isConnected()) {
+            return; // closed or reconnected manually in the meantime
+        }
+        if (room != null && !Constants.LOBBY.equalsIgnoreCase(room)) {
+            // the server puts us in the lobby, ask for the old room once it knows us
+            RedirectPayload rejoin = new RedirectPayload();
+            rejoin.setMessage(room);
+            rejoin.setRoomAction(RoomAction.JOIN);
+            pendingRoomAction = rejoin;
+        }
+        myUser.setClientId(Constants.DEFAULT_CLIENT_ID);
+        if (openConnection(lastHost, lastPort)) {
+            LoggerUtil.INSTANCE.info(TextFX.colorize("Reconnected", Color.GREEN));
+            return;
+        }
+        pendingRoomAction = null;
+        myUser.setClientId(myId);
+        scheduleReconnect(myId, room, attempt + 1, attempts);
+    }
+
+    /**
+     * Jittered exponential backoff: a random delay between a quarter of and the
+     * whole of base * 2^attempt (capped), so clients dropped together by a server
+     * restart don't all come back at once
+     * 
+     * @param attempt 0 based
+     * @return milliseconds to wait before the attempt
+     */
+    private long reconnectDelayMillis(int attempt) {
+        long ceiling = Math.min(RECONNECT_MAX_MILLIS, RECONNECT_BASE_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling / 4, ceiling + 1);
+    }
+
+    /**
+     * Reconnects to the node that owns the requested room and queues the room
+     * action to be repeated once the new node assigns our client id
+     */
+    private void followRedirect() {
+        RedirectPayload rp = pendingRedirect;
+        pendingRedirect = null;
+        LoggerUtil.INSTANCE.info(TextFX.colorize(
+                String.format("Room %s is on %s:%s, reconnecting", rp.getMessage(), rp.getHost(), rp.getPort()),
+                Color.YELLOW));
+        knownClients.clear();
+        myUser.setClientId(Constants.DEFAULT_CLIENT_ID);
+        pendingRoomAction = rp;
+        if (!openConnection(rp.getHost(), rp.getPort())) {
+            pendingRoomAction = null;
+            error(String.format("Failed to reach %s:%s", rp.getHost(), rp.getPort()));
+        }
+    }
+
+    /**
+     * Processes the reply to one of our traced payloads and completes its trace
+     * once the UI has handled it
+     * 
+     * @param payload
+     */
+    private void processTracedPayload(Payload payload) {
+        TraceContext trace = pendingTraces.remove(payload.getTrace().getTraceId());
+        if (trace == null) {
+            processPayload(payload);
+            return;
+        }
+        long roundTrip = trace.sinceMark();
+        trace.merge(payload.getTrace());
+        trace.setStage(TraceStage.NETWORK, roundTrip - trace.getStage(TraceStage.SERVER_QUEUE)
+                - trace.getStage(TraceStage.SERVER_PROCESS));
+        trace.mark();
+        processPayload(payload);
+        trace.setStage(TraceStage.CLIENT_PROCESS, trace.sinceMark());
+        if (!ClientEventBus.INSTANCE.hasListeners()) {
+            PayloadTracer.INSTANCE.record(trace);
+            return;
+        }
+        // listeners post their updates to the UI frame from the event thread; this
+        // is queued behind them on both
+        trace.mark();
+        ClientEventBus.INSTANCE.execute(() -> UIBatcher.INSTANCE.post(() -> {
+            trace.setStage(TraceStage.CLIENT_RENDER, trace.sinceMark());
+            PayloadTracer.INSTANCE.record(trace);
+        }));
     }
 
     private void processPayload(Payload payload) {
@@ -561,42 +833,71 @@ public enum Client {
             case PayloadType.AWAY:
             processAway(payload); // Process the AWAY payload
                 break;
+            case PayloadType.REDIRECT:
+                processRedirect(payload);
+                break;
+            case PayloadType.BOARD:
+                processBoard(payload);
+                break;
+            case PayloadType.CELL:
+                processCell(payload);
+                break;
             default:
                 LoggerUtil.INSTANCE.warning(TextFX.colorize("Unhandled payload type", Color.YELLOW));
                 break;
 
         }
     }
-private void processAway(Payload payload) {
+    private void processAway(Payload payload) {
         if (!(payload instanceof ReadyPayload)) {
             error("Invalid payload subclass for processAway");
             return;
         }
         ReadyPayload rp = (ReadyPayload) payload;
-        User u = knownClients.get(rp.getClientId());
-        u.setAway(rp.isReady());
-        events.stream().forEach(event -> {
-            if (event instanceof IStatusEvents) {
-                ((IStatusEvents) event).onReceiveAway(rp.getClientId(), u.isAway());
-            }
-        });
         User cp = knownClients.get(rp.getClientId());
         cp.setAway(rp.isReady());
         LoggerUtil.INSTANCE.info(
                 String.format("%s is %s", cp.getDisplayName(),
                         rp.isReady() ? "away" : "back"));
-        try {
-            events.forEach(event -> {
-                if (event instanceof IStatusEvents) {
-                    ((IStatusEvents) event).onReceiveAway(cp.getClientId(), cp.isReady());
-                }
-            });
+        long clientId = cp.getClientId();
+        boolean isAway = cp.isAway();
+        publish(IStatusEvents.class, e -> e.onReceiveAway(clientId, isAway));
+    }
+    // Start process*() methods
+    private void processRedirect(Payload payload) {
+        if (!(payload instanceof RedirectPayload)) {
+            error("Invalid payload subclass for processRedirect");
+            return;
+        }
+        // handled by listenToServer() once this payload finishes processing
+        pendingRedirect = (RedirectPayload) payload;
+    }
 
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing away status", e);
+    private void processBoard(Payload payload) {
+        if (!(payload instanceof BoardPayload)) {
+            error("Invalid payload subclass for processBoard");
+            return;
         }
+        BoardPayload bp = (BoardPayload) payload;
+        if (!bp.isComplete()) {
+            error(String.format("Board payload doesn't match its %dx%d size", bp.getRows(), bp.getColumns()));
+            return;
+        }
+        // one listener update for the whole board instead of a CELL per cell
+        publish(IBoardEvents.class, e -> e.onReceiveBoard(bp.getRows(), bp.getColumns(), bp.getValues(),
+                bp.getFlipped(), bp.getCollected()));
     }
-    // Start process*() methods
+
+    private void processCell(Payload payload) {
+        if (!(payload instanceof CellPayload)) {
+            error("Invalid payload subclass for processCell");
+            return;
+        }
+        CellPayload cp = (CellPayload) payload;
+        publish(IBoardEvents.class, e -> e.onReceiveCell(cp.getRow(), cp.getColumn(), cp.getValue(),
+                cp.isFlipped(), cp.isCollected()));
+    }
+
     private void processPoints(Payload payload) {
         if (!(payload instanceof PointsPayload)) {
             error("Invalid payload subclass for processCardAdd");
@@ -607,15 +908,7 @@ private void processAway(Payload payload) {
         int points = pp.getPoints();
         if (knownClients.containsKey(targetId)) {
             knownClients.get(targetId).setPoints(points);
-            try {
-                events.stream().forEach(event -> {
-                    if (event instanceof IPointsEvent) {
-                        ((IPointsEvent) event).onPointsUpdate(targetId, points);
-                    }
-                });
-            } catch (Exception e) {
-                LoggerUtil.INSTANCE.severe("Error processing points", e);
-            }
+            publish(IPointsEvent.class, e -> e.onPointsUpdate(targetId, points));
         }
     }
 
@@ -625,29 +918,20 @@ private void processAway(Payload payload) {
             return;
         }
         TimerPayload timerPayload = (TimerPayload) payload;
-        try {
-            events.forEach(event -> {
-                if (event instanceof ITimeEvents) {
-                    ((ITimeEvents) event).onTimerUpdate(timerPayload.getTimerType(), timerPayload.getTime());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing current timer", e);
+        TimerType timerType = timerPayload.getTimerType();
+        if (timerPayload.getTime() < 0) {
+            publish(ITimeEvents.class, e -> e.onTimerCancel(timerType));
+            return;
         }
+        // only sent on start/change; the listeners count down to the local deadline
+        long deadlineNanos = timerPayload.getDeadlineNanos() - clockOffsetNanos;
+        publish(ITimeEvents.class, e -> e.onTimerUpdate(timerType, deadlineNanos));
     }
 
     private void processResetTurn() {
         knownClients.values().forEach(cp -> cp.setTookTurn(false));
         System.out.println("Turn status reset for everyone");
-        try {
-            events.forEach(event -> {
-                if (event instanceof ITurnEvent) {
-                    ((ITurnEvent) event).onTookTurn(Constants.DEFAULT_CLIENT_ID, false);
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing reset turn", e);
-        }
+        publish(ITurnEvent.class, e -> e.onTookTurn(Constants.DEFAULT_CLIENT_ID, false));
     }
 
     private void processTurn(Payload payload) {
@@ -668,36 +952,19 @@ private void processAway(Payload payload) {
             String message = String.format("%s %s their turn", cp.getDisplayName(),
                     cp.didTakeTurn() ? "took" : "reset");
             LoggerUtil.INSTANCE.info(message);
-            events.forEach(event -> {
-                if (event instanceof IMessageEvents) {
-                    ((IMessageEvents) event).onMessageReceive(Constants.GAME_EVENT_CHANNEL,
-                            String.format("%s finished their turn", cp.getDisplayName()));
-                }
-            });
-        }
-        try {
-            events.forEach(event -> {
-                if (event instanceof ITurnEvent) {
-                    ((ITurnEvent) event).onTookTurn(cp.getClientId(), cp.didTakeTurn());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing turn", e);
+            String gameEvent = String.format("%s finished their turn", cp.getDisplayName());
+            publishMessage(Constants.GAME_EVENT_CHANNEL, gameEvent);
         }
+        long clientId = cp.getClientId();
+        boolean didTakeTurn = cp.didTakeTurn();
+        publish(ITurnEvent.class, e -> e.onTookTurn(clientId, didTakeTurn));
     }
 
     private void processPhase(Payload payload) {
         currentPhase = Enum.valueOf(Phase.class, payload.getMessage());
         System.out.println(TextFX.colorize("Current phase is " + currentPhase.name(), Color.YELLOW));
-        try {
-            events.forEach(event -> {
-                if (event instanceof IPhaseEvent) {
-                    ((IPhaseEvent) event).onReceivePhase(currentPhase);
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing phase", e);
-        }
+        Phase phase = currentPhase;
+        publish(IPhaseEvent.class, e -> e.onReceivePhase(phase));
     }
 
     private void processResetReady() {
@@ -707,19 +974,9 @@ private void processAway(Payload payload) {
             cp.setPoints(0);
             cp.setTookTurn(false);
         });
-        try {
-            events.forEach(event -> {
-                if (event instanceof IReadyEvent) {
-                    ((IReadyEvent) event).onReceiveReady(Constants.DEFAULT_CLIENT_ID, false, true);
-                } else if (event instanceof ITurnEvent) {
-                    ((ITurnEvent) event).onTookTurn(Constants.DEFAULT_CLIENT_ID, false);
-                } else if (event instanceof IPointsEvent) {
-                    ((IPointsEvent) event).onPointsUpdate(Constants.DEFAULT_CLIENT_ID, -1);
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing reset ready", e);
-        }
+        publish(IReadyEvent.class, e -> e.onReceiveReady(Constants.DEFAULT_CLIENT_ID, false, true));
+        publish(ITurnEvent.class, e -> e.onTookTurn(Constants.DEFAULT_CLIENT_ID, false));
+        publish(IPointsEvent.class, e -> e.onPointsUpdate(Constants.DEFAULT_CLIENT_ID, -1));
         System.out.println("Ready status reset for everyone");
     }
 
@@ -741,16 +998,9 @@ private void processAway(Payload payload) {
                     String.format("%s is %s", cp.getDisplayName(),
                             rp.isReady() ? "ready" : "not ready"));
         }
-        try {
-            events.forEach(event -> {
-                if (event instanceof IReadyEvent) {
-                    ((IReadyEvent) event).onReceiveReady(cp.getClientId(), cp.isReady(), isQuiet);
-                }
-            });
-
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing ready status", e);
-        }
+        long clientId = cp.getClientId();
+        boolean isReady = cp.isReady();
+        publish(IReadyEvent.class, e -> e.onReceiveReady(clientId, isReady, isQuiet));
     }
 
     private void processRoomsList(Payload payload) {
@@ -760,15 +1010,7 @@ private void processAway(Payload payload) {
         }
         RoomResultPayload rrp = (RoomResultPayload) payload;
         List<String> rooms = rrp.getRooms();
-        try {
-            events.forEach(event -> {
-                if (event instanceof IRoomEvents) {
-                    ((IRoomEvents) event).onReceiveRoomList(rooms, rrp.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing room list", e);
-        }
+        publish(IRoomEvents.class, e -> e.onReceiveRoomList(rooms, rrp.getMessage()));
         if (rooms == null || rooms.size() == 0) {
             LoggerUtil.INSTANCE.warning(
                     TextFX.colorize("No rooms found matching your query",
@@ -787,35 +1029,56 @@ private void processAway(Payload payload) {
         }
         myUser.setClientId(payload.getClientId());
         myUser.setClientName(((ConnectionPayload) payload).getClientName());// confirmation from Server
+        estimateClockOffset(((ConnectionPayload) payload).getClockNanos());
         knownClients.put(myUser.getClientId(), myUser);
         LoggerUtil.INSTANCE.info(TextFX.colorize("Connected", Color.GREEN));
-        try {
-            events.forEach(event -> {
-                if (event instanceof IConnectionEvents) {
-                    ((IConnectionEvents) event).onReceiveClientId(myUser.getClientId());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing client data", e);
+        long clientId = myUser.getClientId();
+        reconnectOnDrop = true;
+        publish(IConnectionEvents.class, e -> e.onReceiveClientId(clientId));
+        if (pendingRoomAction != null) {
+            RedirectPayload rp = pendingRoomAction;
+            pendingRoomAction = null;
+            sendRoomAction(rp.getMessage(), rp.getRoomAction());
         }
     }
 
+    /**
+     * NTP style estimate from the handshake: assumes the server stamped its
+     * reply halfway through our round trip, so the error is at most half the
+     * round trip (plus however long the server took to reply)
+     * 
+     * @param serverNanos the server's System.nanoTime() from CLIENT_ID
+     */
+    private void estimateClockOffset(long serverNanos) {
+        if (serverNanos == 0 || handshakeSentAt == 0) {
+            return; // older server, deadlines are treated as local
+        }
+        long now = System.nanoTime();
+        long roundTrip = now - handshakeSentAt;
+        clockOffsetNanos = serverNanos - (handshakeSentAt + roundTrip / 2);
+        LoggerUtil.INSTANCE.fine(String.format("Clock offset estimated from a %.3fms round trip",
+                roundTrip / 1e6));
+    }
+
     private void processDisconnect(Payload payload) {
-        try {
-            events.forEach(event -> {
-                if (event instanceof IConnectionEvents) {
-                    ((IConnectionEvents) event).onClientDisconnect(payload.getClientId());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing disconnect", e);
+        long clientId = payload.getClientId();
+        if (clientId == myUser.getClientId() && reconnectOnDrop) {
+            // we didn't ask for this (e.g. the server is shutting down), keep the
+            // session so reconnect() can restore it once the socket closes
+            LoggerUtil.INSTANCE.warning(TextFX.colorize("Server closed the connection", Color.YELLOW));
+            return;
         }
-        if (payload.getClientId() == myUser.getClientId()) {
-            knownClients.clear();
-            myUser.reset();
-            LoggerUtil.INSTANCE.info(TextFX.colorize("You disconnected", Color.RED));
-        } else if (knownClients.containsKey(payload.getClientId())) {
-            User disconnectedUser = knownClients.remove(payload.getClientId());
+        publish(IConnectionEvents.class, e -> e.onClientDisconnect(clientId));
+        if (clientId == myUser.getClientId()) {
+            currentRoom = null;
+            // listeners still compare against our id, reset once they've seen the event
+            ClientEventBus.INSTANCE.execute(() -> {
+                knownClients.clear();
+                myUser.reset();
+                LoggerUtil.INSTANCE.info(TextFX.colorize("You disconnected", Color.RED));
+            });
+        } else if (knownClients.containsKey(clientId)) {
+            User disconnectedUser = removeKnownClient(clientId);
             if (disconnectedUser != null) {
                 LoggerUtil.INSTANCE
                         .info(TextFX.colorize(String.format("%s disconnected", disconnectedUser.getDisplayName()),
@@ -831,80 +1094,57 @@ private void processAway(Payload payload) {
             return;
         }
         ConnectionPayload connectionPayload = (ConnectionPayload) payload;
+        long clientId = connectionPayload.getClientId();
+        String roomName = connectionPayload.getMessage();
         // use DEFAULT_CLIENT_ID to clear knownClients (mostly for disconnect and room
         // transitions)
-        if (connectionPayload.getClientId() == Constants.DEFAULT_CLIENT_ID) {
+        if (clientId == Constants.DEFAULT_CLIENT_ID) {
             knownClients.clear();
-            try {
-                events.forEach(event -> {
-                    if (event instanceof IRoomEvents) {
-                        ((IRoomEvents) event).onRoomAction(
-                                Constants.DEFAULT_CLIENT_ID, // reset
-                                connectionPayload.getMessage(), // room name
-                                false, // is join
-                                true);
-                    }
-                });
-            } catch (Exception e) {
-                LoggerUtil.INSTANCE.severe("Error processing room reset action", e);
-            }
+            publish(IRoomEvents.class, e -> e.onRoomAction(
+                    Constants.DEFAULT_CLIENT_ID, // reset
+                    roomName, // room name
+                    false, // is join
+                    true));
             return;
         }
         switch (connectionPayload.getPayloadType()) {
 
             case ROOM_LEAVE:
                 // remove from map
-                if (knownClients.containsKey(connectionPayload.getClientId())) {
-                    // inform UI of user leaving (do this first before removal since UI side uses a
-                    // lookup method to fetch display name)
-                    try {
-                        events.forEach(event -> {
-                            if (event instanceof IRoomEvents) {
-                                ((IRoomEvents) event).onRoomAction(
-                                        connectionPayload.getClientId(),
-                                        connectionPayload.getMessage(),
-                                        false,
-                                        false);
-                            }
-                        });
-                    } catch (Exception e) {
-                        LoggerUtil.INSTANCE.severe("Error processing room leave action", e);
-                    }
-                    knownClients.remove(connectionPayload.getClientId());
+                if (knownClients.containsKey(clientId)) {
+                    // inform UI of user leaving (the UI side looks up the display name, see
+                    // removeKnownClient())
+                    publish(IRoomEvents.class, e -> e.onRoomAction(clientId, roomName, false, false));
+                    removeKnownClient(clientId);
                 }
-                if (connectionPayload.getMessage() != null) {
-                    LoggerUtil.INSTANCE.info(TextFX.colorize(connectionPayload.getMessage(), Color.YELLOW));
+                if (roomName != null) {
+                    LoggerUtil.INSTANCE.info(TextFX.colorize(roomName, Color.YELLOW));
                 }
 
                 break;
             case ROOM_JOIN:
-                if (connectionPayload.getMessage() != null) {
-                    LoggerUtil.INSTANCE.info(TextFX.colorize(connectionPayload.getMessage(), Color.GREEN));
+                if (clientId == myUser.getClientId()) {
+                    currentRoom = roomName; // to rejoin if the connection drops
+                }
+                if (roomName != null) {
+                    LoggerUtil.INSTANCE.info(TextFX.colorize(roomName, Color.GREEN));
                 }
 
                 // cascade to manage knownClients
             case SYNC_CLIENT:
                 // add to map
-                if (!knownClients.containsKey(connectionPayload.getClientId())) {
+                if (!knownClients.containsKey(clientId)) {
                     User user = new User();
-                    user.setClientId(connectionPayload.getClientId());
+                    user.setClientId(clientId);
                     user.setClientName(connectionPayload.getClientName());
-                    knownClients.put(connectionPayload.getClientId(), user);
+                    knownClients.put(clientId, user);
                     // inform UI of user joining
-                    try {
-                        events.forEach(event -> {
-                            if (event instanceof IRoomEvents) {
-                                ((IRoomEvents) event).onRoomAction(
-                                        connectionPayload.getClientId(), // who
-                                        connectionPayload.getMessage(), // room name
-                                        true, // is join
-                                        connectionPayload.getPayloadType() == PayloadType.SYNC_CLIENT // isQuiet if sync
-                                );
-                            }
-                        });
-                    } catch (Exception e) {
-                        LoggerUtil.INSTANCE.severe("Error processing room join action", e);
-                    }
+                    boolean isQuiet = connectionPayload.getPayloadType() == PayloadType.SYNC_CLIENT; // if sync
+                    publish(IRoomEvents.class, e -> e.onRoomAction(
+                            clientId, // who
+                            roomName, // room name
+                            true, // is join
+                            isQuiet));
                 }
                 break;
             default:
@@ -915,28 +1155,12 @@ private void processAway(Payload payload) {
 
     private void processMessage(Payload payload) {
         LoggerUtil.INSTANCE.info(TextFX.colorize(payload.getMessage(), Color.BLUE));
-        try {
-            events.forEach(event -> {
-                if (event instanceof IMessageEvents) {
-                    ((IMessageEvents) event).onMessageReceive(payload.getClientId(), payload.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing message", e);
-        }
+        publishMessage(payload.getClientId(), payload.getMessage());
     }
 
     private void processReverse(Payload payload) {
         LoggerUtil.INSTANCE.info(TextFX.colorize(payload.getMessage(), Color.PURPLE));
-        try {
-            events.forEach(event -> {
-                if (event instanceof IMessageEvents) {
-                    ((IMessageEvents) event).onMessageReceive(payload.getClientId(), payload.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing reverse message", e);
-        }
+        publishMessage(payload.getClientId(), payload.getMessage());
     }
     private void processPick(Payload payload) {
         if (!(payload instanceof ReadyPayload)) {
@@ -945,15 +1169,7 @@ private void processAway(Payload payload) {
         }
         ReadyPayload rp = (ReadyPayload) payload;
         LoggerUtil.INSTANCE.info(String.format("Choice received: %s", rp.getMessage()));
-        try {
-            events.forEach(event -> {
-                if (event instanceof IMessageEvents) {
-                    ((IMessageEvents) event).onMessageReceive(Constants.GAME_EVENT_CHANNEL, rp.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            LoggerUtil.INSTANCE.severe("Error processing pick", e);
-        }
+        publishMessage(Constants.GAME_EVENT_CHANNEL, rp.getMessage());
     }
 
     // End process*() methods
@@ -970,9 +1186,6 @@ private void processAway(Payload payload) {
                     sendMessage(userInput);
                 }
             }
-        } catch (IOException ioException) {
-            LoggerUtil.INSTANCE.severe("Error in listentToInput()", ioException);
-            // ioException.printStackTrace();
         }
         LoggerUtil.INSTANCE.info("listenToInput thread stopped");
     }
@@ -982,6 +1195,8 @@ private void processAway(Payload payload) {
      */
     private void close() {
         isRunning = false;
+        reconnectOnDrop = false;
+        reconnectScheduler.shutdownNow();
         closeServerConnection();
         LoggerUtil.INSTANCE.info("Client terminated");
         // System.exit(0); // Terminate the application
@@ -991,6 +1206,11 @@ private void processAway(Payload payload) {
      * Closes the server connection and associated resources
      */
     private void closeServerConnection() {
+        OutboundQueue queue = sender;
+        if (queue != null) {
+            sender = null;
+            queue.close(1000); // let a queued DISCONNECT go out first
+        }
         try {
             if (out != null) {
                 LoggerUtil.INSTANCE.info("Closing output stream");
@@ -0,0 +1,162 @@
+package Project.Client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import Project.Client.Interfaces.IClientEvents;
+import Project.Common.LoggerUtil;
+
+/**
+ * Typed dispatch of client events to the UI listeners.
+ * <p>
+ * A listener is indexed once, at registration, under every event interface it
+ * implements, so publish() only visits the listeners of that type. Events are
+ * handed to a single dispatcher thread through a bounded queue so the socket
+ * reader doesn't run the listeners itself and events still arrive in order.
+ * </p>
+ * <p>
+ * If the listeners fall too far behind, only events published with
+ * publishDroppable() (chat style notifications) are dropped and counted.
+ * publish() and execute() carry state changes (user list, room, identity) and
+ * wait for room instead, which pushes back on the socket reader.
+ * </p>
+ */
+public enum ClientEventBus {
+    INSTANCE;
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private final Map<Class<?>, CopyOnWriteArrayList<IClientEvents>> listeners = new ConcurrentHashMap<>();
+    // override with -Dclient.eventQueue=N
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(
+            Math.max(16, Integer.getInteger("client.eventQueue", DEFAULT_CAPACITY)));
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread dispatcher;
+
+    private ClientEventBus() {
+        dispatcher = new Thread(this::dispatch, "client-events");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Registers a listener under each event interface it implements; safe to call
+     * from any thread and registering twice has no effect
+     *
+     * @param listener
+     */
+    public void register(IClientEvents listener) {
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        for (Class<?> c = listener.getClass(); c != null; c = c.getSuperclass()) {
+            pending.addAll(List.of(c.getInterfaces()));
+        }
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.pop();
+            if (!IClientEvents.class.isAssignableFrom(type)) {
+                continue;
+            }
+            listeners.computeIfAbsent(type, (t) -> new CopyOnWriteArrayList<>()).addIfAbsent(listener);
+            pending.addAll(List.of(type.getInterfaces()));
+        }
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Queues an event for every listener of type (nothing is queued if there are
+     * none). Arguments should be captured by value, the listeners run later on
+     * the dispatcher thread.
+     *
+     * @param <T>
+     * @param type  the event interface
+     * @param event invokes the callback on one listener
+     */
+    public <T extends IClientEvents> void publish(Class<T> type, Consumer<T> event) {
+        publish(type, event, false);
+    }
+
+    /**
+     * Like publish(), but the event is dropped if the queue is full. Only for
+     * notifications the UI can lose without its state going stale (e.g. chat
+     * lines).
+     *
+     * @param <T>
+     * @param type  the event interface
+     * @param event invokes the callback on one listener
+     */
+    public <T extends IClientEvents> void publishDroppable(Class<T> type, Consumer<T> event) {
+        publish(type, event, true);
+    }
+
+    private <T extends IClientEvents> void publish(Class<T> type, Consumer<T> event, boolean isDroppable) {
+        List<IClientEvents> targets = listeners.get(type);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        enqueue(isDroppable, () -> {
+            for (IClientEvents listener : targets) {
+                try {
+                    event.accept(type.cast(listener));
+                } catch (Exception e) {
+                    LoggerUtil.INSTANCE.severe(String.format("Error in %s listener", type.getSimpleName()), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs task on the dispatcher thread after every event published before it;
+     * never dropped (waits if the queue is full)
+     *
+     * @param task
+     */
+    public void execute(Runnable task) {
+        enqueue(false, task);
+    }
+
+    private void enqueue(boolean isDroppable, Runnable task) {
+        if (queue.offer(task)) {
+            return;
+        }
+        if (isDroppable) {
+            long count = dropped.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                LoggerUtil.INSTANCE.warning(
+                        String.format("Client event queue is full, %d event(s) dropped so far", count));
+            }
+            return;
+        }
+        if (Thread.currentThread() == dispatcher) {
+            task.run(); // a listener publishing can't wait on its own thread to drain the queue
+            return;
+        }
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.run(); // never lose a state change, run it here instead
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.severe("Error dispatching client event", e);
+            }
+        }
+    }
+}
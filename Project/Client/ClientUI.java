@@ -5,18 +5,27 @@ import java.awt.CardLayout;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JRootPane;
 import javax.swing.SwingUtilities;
+import javax.swing.text.html.HTMLEditorKit;
 
 import Project.Client.Interfaces.ICardControls;
 import Project.Client.Interfaces.IConnectionEvents;
@@ -43,10 +52,26 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
     private CardView currentCard = CardView.CONNECT;
     private JMenuBar menu;
     private ConnectionPanel connectionPanel;
-    private UserDetailsPanel userDetailsPanel;
-    private ChatGamePanel chatGamePanel;
-    private RoomsPanel roomsPanel;
+    // built on first use or by prewarm() (see ensureCard()); read from the
+    // client event thread too
+    private volatile UserDetailsPanel userDetailsPanel;
+    private volatile ChatGamePanel chatGamePanel;
+    private volatile RoomsPanel roomsPanel;
     private JLabel roomLabel = new JLabel();
+    // CardLayout's next()/previous() order, kept no matter which card is built
+    // first
+    private static final List<CardView> CARD_ORDER = List.of(CardView.CONNECT, CardView.USER_INFO,
+            CardView.CHAT_GAME_SCREEN, CardView.ROOMS);
+    // cards not built yet; they're only built on the EDT, but show()/previous()
+    // also get called from the client event thread
+    private final Map<CardView, Supplier<JPanel>> pendingCards = Collections
+            .synchronizedMap(new EnumMap<>(CardView.class));
+    // startup timings for the report logged once prewarm() finishes (EDT only)
+    private static long launchedAt = 0;
+    private final long constructedAt;
+    private long shownAt = 0;
+    private long firstPaintAt = 0;
+    private final Map<String, Long> cardBuildNanos = new LinkedHashMap<>();
 
     {
         //you took it from here trinity
@@ -59,6 +84,10 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
      */
     public ClientUI(String title) {
         super(title); // Call the parent's constructor to set the frame title
+        constructedAt = System.nanoTime();
+        if (launchedAt == 0) {
+            launchedAt = constructedAt;
+        }
         originalTitle = title;
         container = getContentPane();
         cardContainer = new JPanel();
@@ -85,11 +114,16 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
         menu = new Menu(this);
         this.setJMenuBar(menu);
 
-        // Initialize panels
-        connectionPanel = new ConnectionPanel(this);
-        userDetailsPanel = new UserDetailsPanel(this);
-        chatGamePanel = new ChatGamePanel(this);
-        roomsPanel = new RoomsPanel(this);
+        // Initialize panels; only the first card is needed for the first window,
+        // the rest are built on first use or prewarmed after the first paint
+        pendingCards.put(CardView.USER_INFO, () -> userDetailsPanel = new UserDetailsPanel(this));
+        pendingCards.put(CardView.CHAT_GAME_SCREEN, () -> chatGamePanel = new ChatGamePanel(this));
+        pendingCards.put(CardView.ROOMS, () -> roomsPanel = new RoomsPanel(this));
+        ensureCard(CardView.CONNECT, () -> connectionPanel = new ConnectionPanel(this));
+        if (Boolean.getBoolean("client.eagerCards")) {
+            // old behavior, for comparing the startup report
+            CARD_ORDER.forEach(this::ensureCard);
+        }
 
         setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         this.addWindowListener(new WindowAdapter() {
@@ -99,18 +133,104 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
                         "Are you sure you want to close this window?", "Close Window?",
                         JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                 if (response == JOptionPane.YES_OPTION) {
-                    try {
-                        Client.INSTANCE.sendDisconnect();
-                    } catch (NullPointerException | IOException e) {
-                        LoggerUtil.INSTANCE.severe("Error during disconnect: " + e.getMessage());
-                    }
-                    System.exit(0);
+                    // give the writer a moment to get the disconnect out before exiting
+                    Client.INSTANCE.sendDisconnect().orTimeout(1, TimeUnit.SECONDS).whenComplete((r, e) -> {
+                        if (e != null) {
+                            LoggerUtil.INSTANCE.severe("Error during disconnect: " + e.getMessage());
+                        }
+                        System.exit(0);
+                    });
                 }
             }
         });
 
         pack(); // Resize to fit components
         setVisible(true); // Show the window
+        shownAt = System.nanoTime();
+    }
+
+    @Override
+    protected JRootPane createRootPane() {
+        // Swing paints the frame's contents through the root pane, so that's where
+        // the first paint shows up (called during super(), before our fields are set)
+        JRootPane rootPane = new JRootPane() {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                if (firstPaintAt == 0) {
+                    firstPaintAt = System.nanoTime();
+                    prewarm();
+                }
+            }
+        };
+        rootPane.setOpaque(true);
+        return rootPane;
+    }
+
+    /**
+     * Builds a card that hasn't been built yet (EDT only)
+     * 
+     * @param view
+     */
+    private void ensureCard(CardView view) {
+        Supplier<JPanel> factory = pendingCards.remove(view);
+        if (factory != null) {
+            ensureCard(view, factory);
+        }
+    }
+
+    private void ensureCard(CardView view, Supplier<JPanel> factory) {
+        long start = System.nanoTime();
+        factory.get(); // the panel adds itself through addPanel()
+        cardBuildNanos.put(view.name(), System.nanoTime() - start);
+        LoggerUtil.INSTANCE.fine(String.format("Built card %s in %.1fms", view, (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * After the first paint, loads the remaining cards' classes and the HTML
+     * parser (used by the chat) on a background thread, then builds each card
+     * in its own EDT event so input is still handled between them. Swing
+     * components themselves have to be created on the EDT.
+     */
+    private void prewarm() {
+        if (pendingCards.isEmpty()) {
+            SwingUtilities.invokeLater(this::logStartupReport);
+            return;
+        }
+        Thread warmer = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                for (Class<?> c : List.of(UserDetailsPanel.class, ChatGamePanel.class, RoomsPanel.class)) {
+                    Class.forName(c.getName(), true, c.getClassLoader());
+                }
+                HTMLEditorKit kit = new HTMLEditorKit();
+                kit.read(new StringReader("<html><font color=blue>warm</font></html>"),
+                        kit.createDefaultDocument(), 0);
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.fine("Prewarm skipped: " + e.getMessage());
+            }
+            long loaded = System.nanoTime() - start;
+            SwingUtilities.invokeLater(() -> {
+                cardBuildNanos.put("classes+html (background)", loaded);
+                for (CardView view : CARD_ORDER) {
+                    SwingUtilities.invokeLater(() -> ensureCard(view));
+                }
+                SwingUtilities.invokeLater(this::logStartupReport);
+            });
+        }, "ui-prewarm");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    private void logStartupReport() {
+        StringBuilder report = new StringBuilder(String.format(
+                "Startup: window built in %.1fms, shown at %.1fms, first paint at %.1fms (since launch)",
+                (shownAt - constructedAt) / 1e6, (shownAt - launchedAt) / 1e6, (firstPaintAt - launchedAt) / 1e6));
+        cardBuildNanos.forEach((name, nanos) -> report.append(String.format("%n  %s: %.1fms", name, nanos / 1e6)));
+        report.append(String.format("%n  cards were built %s", Boolean.getBoolean("client.eagerCards")
+                ? "before the first paint (-Dclient.eagerCards)"
+                : "after the first paint"));
+        LoggerUtil.INSTANCE.info(report.toString());
     }
 
     /**
@@ -136,29 +256,67 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
 
     @Override
     public void next() {
+        ensureCard(adjacentCard(1));
         card.next(cardContainer);
         findAndSetCurrentPanel();
     }
 
     @Override
     public void previous() {
+        ensureCard(adjacentCard(-1));
         card.previous(cardContainer);
         findAndSetCurrentPanel();
     }
 
     @Override
     public void show(String cardName) {
+        ensureCard(CardView.valueOf(cardName));
         card.show(cardContainer, cardName);
         findAndSetCurrentPanel();
     }
 
+    /**
+     * @param step 1 for next, -1 for previous
+     * @return the card CardLayout will move to from the current one
+     */
+    private CardView adjacentCard(int step) {
+        int i = CARD_ORDER.indexOf(currentCard);
+        if (i < 0) {
+            return currentCard;
+        }
+        return CARD_ORDER.get(Math.floorMod(i + step, CARD_ORDER.size()));
+    }
+
+    /**
+     * @return the card's position in CARD_ORDER, -1 if it isn't in it
+     */
+    private static int cardOrder(String cardName) {
+        for (int i = 0; i < CARD_ORDER.size(); i++) {
+            if (CARD_ORDER.get(i).name().equals(cardName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public void addPanel(String cardName, JPanel panel) {
-        cardContainer.add(panel, cardName);
+        // insert by CARD_ORDER since the cards are built in any order
+        int order = cardOrder(cardName);
+        int index = -1; // the end
+        Component[] cards = cardContainer.getComponents();
+        for (int i = 0; order >= 0 && i < cards.length; i++) {
+            if (cardOrder(cards[i].getName()) > order) {
+                index = i;
+                break;
+            }
+        }
+        cardContainer.add(panel, cardName, index);
     }
 
     @Override
     public void connect() {
+        ensureCard(CardView.CHAT_GAME_SCREEN); // its panels have to be listening first
         String username = userDetailsPanel.getUsername();
         String host = connectionPanel.getHost();
         int port = connectionPanel.getPort();
@@ -170,6 +328,7 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
         // TODO update with your UCID instead of mine
         // Your test or app entry point
 
+        launchedAt = System.nanoTime();
         SwingUtilities.invokeLater(() -> {
 
             try {
@@ -234,6 +393,10 @@ public class ClientUI extends JFrame implements IConnectionEvents, IMessageEvent
 
     @Override
     public void onReceiveRoomList(List<String> rooms, String message) {
+        RoomsPanel roomsPanel = this.roomsPanel;
+        if (roomsPanel == null) {
+            return; // never shown, so nothing asked for the list
+        }
         roomsPanel.removeAllRooms();
         if (message != null && !message.isEmpty()) {
             roomsPanel.setMessage(message);
@@ -4,4 +4,6 @@ public interface IBoardEvents extends IGameEvents{
     void onReceiveDimensions(int rows, int columns);
     void onReceiveCell(int row, int column, String value, boolean isFlipped, boolean isCollected);
     void onReceiveSelection (int row, int column, boolean isSelected);
-}
\ No newline at end of file
+    // whole board in one update (BOARD payload), arrays are row major (rows * columns long)
+    void onReceiveBoard(int rows, int columns, String[] values, boolean[] isFlipped, boolean[] isCollected);
+}
@@ -1,6 +1,6 @@
 package Project.Client.Interfaces;
 
-public interface IStatusEvents {
+public interface IStatusEvents extends IGameEvents {
     public void onAwayStatus(long clientId, boolean isAway);
 
     public void onReceiveAway(long clientId, boolean ready);
@@ -4,10 +4,18 @@ import Project.Common.TimerType;
 
 public interface ITimeEvents extends IClientEvents {
     /**
-     * The current time of a timer
+     * A timer started or changed; count down to the deadline locally
+     * 
+     * @param timerType     The specifc timer
+     * @param deadlineNanos When it expires, on this client's System.nanoTime()
+     *                      clock
+     */
+    void onTimerUpdate(TimerType timerType, long deadlineNanos);
+
+    /**
+     * A timer was reset/cancelled/stopped
      * 
      * @param timerType The specifc timer
-     * @param time      The time (use -1 to reset/cancel/stop)
      */
-    void onTimerUpdate(TimerType timerType, int time);
-}
\ No newline at end of file
+    void onTimerCancel(TimerType timerType);
+}
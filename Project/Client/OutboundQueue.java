@@ -0,0 +1,147 @@
+package Project.Client;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.TraceContext;
+import Project.Common.TraceStage;
+import Project.Exceptions.SendQueueFullException;
+
+/**
+ * Outbound side of one server connection: send() only enqueues, a dedicated
+ * writer thread serializes the payloads and flushes once per batch of
+ * whatever queued up while the previous batch was being written.
+ * <p>
+ * Callers (often the EDT) never touch the socket. The queue is bounded; when
+ * it's full send() fails the returned future with SendQueueFullException
+ * instead of blocking, which is the signal that the connection isn't keeping
+ * up.
+ * </p>
+ */
+class OutboundQueue {
+    // override with -Dclient.sendQueue=N
+    static final int DEFAULT_CAPACITY = 256;
+    private static final int MAX_BATCH = 64;
+
+    private static class Entry {
+        private final Payload payload;
+        private final CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        private Entry(Payload payload) {
+            this.payload = payload;
+        }
+    }
+
+    private final ObjectOutputStream out;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private volatile boolean isOpen = true;
+
+    /**
+     * @param out      the connection's stream (only written by this queue from
+     *                 now on)
+     * @param capacity max payloads waiting to be written
+     */
+    OutboundQueue(ObjectOutputStream out, int capacity) {
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        writer = new Thread(this::writeLoop, "client-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a payload without blocking
+     *
+     * @param payload
+     * @return completes once the payload is flushed to the socket; fails with
+     *         SendQueueFullException when the queue is full or IOException when
+     *         the connection failed/closed first
+     */
+    CompletableFuture<Void> send(Payload payload) {
+        Entry entry = new Entry(payload);
+        if (!isOpen) {
+            entry.sent.completeExceptionally(new IOException("Connection closed"));
+        } else if (!queue.offer(entry)) {
+            entry.sent.completeExceptionally(new SendQueueFullException(
+                    String.format("%s payloads already waiting to be sent", queue.size())));
+        } else if (!writer.isAlive() && queue.remove(entry)) {
+            // lost a race with the writer shutting down
+            entry.sent.completeExceptionally(new IOException("Connection closed"));
+        }
+        return entry.sent;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (isOpen || !queue.isEmpty()) {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // closing without waiting
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning("Error sending to server (most likely disconnected)");
+            fail(batch, e);
+        }
+        isOpen = false;
+        List<Entry> unsent = new ArrayList<>();
+        queue.drainTo(unsent);
+        fail(unsent, new IOException("Connection closed"));
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+        for (Entry entry : batch) {
+            out.writeObject(entry.payload);
+        }
+        out.flush(); // one flush (and usually one segment) per batch
+        for (Entry entry : batch) {
+            TraceContext trace = entry.payload.getTrace();
+            if (trace != null) {
+                trace.setStage(TraceStage.CLIENT_SEND, trace.sinceMark());
+                trace.mark(); // round trip starts once it's on the wire
+            }
+            entry.sent.complete(null);
+        }
+    }
+
+    private void fail(List<Entry> entries, Exception cause) {
+        for (Entry entry : entries) {
+            entry.sent.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Stops accepting payloads and gives the writer up to timeoutMillis to drain
+     * what's already queued (e.g. a final DISCONNECT)
+     *
+     * @param timeoutMillis
+     */
+    void close(long timeoutMillis) {
+        isOpen = false;
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
+    }
+}
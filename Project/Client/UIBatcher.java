@@ -0,0 +1,122 @@
+package Project.Client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import Project.Common.LoggerUtil;
+
+/**
+ * Coalesces UI updates coming off the network thread into one EDT pass per
+ * frame.
+ * <p>
+ * Listeners post() their model changes instead of calling invokeLater; the
+ * first post after an idle period schedules a frame and everything
+ * posted until it fires is applied in a single pass. Components changed during
+ * the pass call invalidate() so each is revalidated/repainted once per frame
+ * no matter how many of its rows changed (e.g. a large room sync).
+ * </p>
+ */
+public enum UIBatcher {
+    INSTANCE;
+
+    public static final int FRAME_MILLIS = 16;
+
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    // EDT only; keyed so repeated requests in one frame collapse into one
+    private final Map<Object, Runnable> endOfFrame = new LinkedHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService frameClock = Executors.newSingleThreadScheduledExecutor((r) -> {
+        Thread t = new Thread(r, "ui-frame");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean isFlushing = false;
+    private int largestFrame = 0;
+
+    /**
+     * Queues a UI update to run on the EDT with the rest of the current frame.
+     * Safe to call from any thread.
+     *
+     * @param update
+     */
+    public void post(Runnable update) {
+        pending.add(update);
+        schedule();
+    }
+
+    /**
+     * Requests a single revalidate/repaint of component at the end of the
+     * current frame (EDT only, usually from inside a posted update)
+     *
+     * @param component
+     */
+    public void invalidate(JComponent component) {
+        afterFrame(component, () -> {
+            component.revalidate();
+            component.repaint();
+        });
+    }
+
+    /**
+     * Runs action once at the end of the current frame, after all posted updates
+     * and earlier end of frame actions; a later request with the same key in the
+     * same frame is dropped (EDT only)
+     *
+     * @param key    identifies the action (e.g. the component it affects)
+     * @param action
+     */
+    public void afterFrame(Object key, Runnable action) {
+        endOfFrame.putIfAbsent(key, action);
+        if (!isFlushing) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            frameClock.schedule(() -> SwingUtilities.invokeLater(this::flush), FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        // anything posted from here on arms the next frame
+        scheduled.set(false);
+        int count = 0;
+        isFlushing = true;
+        try {
+            Runnable update;
+            while ((update = pending.poll()) != null) {
+                count++;
+                run(update);
+            }
+        } finally {
+            isFlushing = false;
+        }
+        // anything these request in turn lands in the next frame
+        Runnable[] actions = endOfFrame.values().toArray(new Runnable[0]);
+        endOfFrame.clear();
+        for (Runnable action : actions) {
+            run(action);
+        }
+        if (count > largestFrame) {
+            largestFrame = count;
+            LoggerUtil.INSTANCE.fine(String.format("Largest UI frame so far: %d updates", count));
+        }
+    }
+
+    private void run(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            LoggerUtil.INSTANCE.severe("Error applying UI update", e);
+        }
+    }
+}
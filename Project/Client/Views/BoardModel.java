@@ -0,0 +1,133 @@
+package Project.Client.Views;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Cell state for GridPanel, stored row major in flat arrays so a board of any
+ * size costs a few arrays rather than a component per cell.
+ * <p>
+ * The setters report whether anything changed so the view can repaint just
+ * the affected cells. Only touch it from the EDT (like any Swing model).
+ * </p>
+ */
+public class BoardModel {
+    private int rows = 0;
+    private int columns = 0;
+    private String[] values = new String[0];
+    private boolean[] flipped = new boolean[0];
+    private boolean[] collected = new boolean[0];
+    private boolean[] selected = new boolean[0];
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Replaces the board with an empty (face down) one; zero or negative
+     * dimensions clear it
+     *
+     * @param rows
+     * @param columns
+     */
+    public void resize(int rows, int columns) {
+        this.rows = Math.max(0, rows);
+        this.columns = this.rows == 0 ? 0 : Math.max(0, columns);
+        int size = this.rows * this.columns;
+        values = new String[size];
+        flipped = new boolean[size];
+        collected = new boolean[size];
+        selected = new boolean[size];
+    }
+
+    public boolean contains(int row, int column) {
+        return row >= 0 && column >= 0 && row < rows && column < columns;
+    }
+
+    private int index(int row, int column) {
+        return row * columns + column;
+    }
+
+    public String getValue(int row, int column) {
+        return values[index(row, column)];
+    }
+
+    public boolean isFlipped(int row, int column) {
+        return flipped[index(row, column)];
+    }
+
+    public boolean isCollected(int row, int column) {
+        return collected[index(row, column)];
+    }
+
+    public boolean isSelected(int row, int column) {
+        return selected[index(row, column)];
+    }
+
+    /**
+     * Updates one cell
+     *
+     * @param row
+     * @param column
+     * @param value       shown while flipped
+     * @param isFlipped
+     * @param isCollected collected cells stay face down and can't be picked
+     * @return true if the cell is on the board and changed
+     */
+    public boolean setCell(int row, int column, String value, boolean isFlipped, boolean isCollected) {
+        if (!contains(row, column)) {
+            return false;
+        }
+        int i = index(row, column);
+        boolean isCollectedNow = collected[i] || isCollected; // collecting is final until a resize
+        if (flipped[i] == isFlipped && collected[i] == isCollectedNow
+                && (!isFlipped || Objects.equals(values[i], value))) {
+            return false;
+        }
+        values[i] = value;
+        flipped[i] = isFlipped;
+        collected[i] = isCollectedNow;
+        return true;
+    }
+
+    /**
+     * @return true if the cell is on the board and changed
+     */
+    public boolean setSelected(int row, int column, boolean isSelected) {
+        if (!contains(row, column) || selected[index(row, column)] == isSelected) {
+            return false;
+        }
+        selected[index(row, column)] = isSelected;
+        return true;
+    }
+
+    /**
+     * Turns every cell face down (collected cells stay collected)
+     */
+    public void hideAll() {
+        Arrays.fill(flipped, false);
+    }
+
+    /**
+     * Replaces every cell at once, row major; each array must hold rows *
+     * columns entries
+     *
+     * @param values
+     * @param isFlipped
+     * @param isCollected
+     */
+    public void setAll(String[] values, boolean[] isFlipped, boolean[] isCollected) {
+        int size = rows * columns;
+        if (values.length != size || isFlipped.length != size || isCollected.length != size) {
+            throw new IllegalArgumentException(
+                    String.format("Expected %d cells for a %dx%d board", size, rows, columns));
+        }
+        System.arraycopy(values, 0, this.values, 0, size);
+        System.arraycopy(isFlipped, 0, flipped, 0, size);
+        System.arraycopy(isCollected, 0, collected, 0, size);
+    }
+}
@@ -0,0 +1,127 @@
+package Project.Client.Views;
+
+import java.awt.Dimension;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * Bounded chat history for a JList: a ring buffer that drops the oldest
+ * message once the scrollback cap is reached.
+ * <p>
+ * Only touch it from the EDT (like any Swing model).
+ * </p>
+ */
+public class ChatHistoryModel extends AbstractListModel<ChatHistoryModel.Entry> {
+
+    /**
+     * One message plus its measured size (valid for a single wrap width)
+     */
+    public static class Entry {
+        private final String text;
+        private int measuredWidth = -1;
+        private Dimension measuredSize;
+
+        private Entry(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @param width wrap width
+         * @return the cached size for that width or null if it wasn't measured
+         */
+        Dimension getMeasuredSize(int width) {
+            return measuredWidth == width ? measuredSize : null;
+        }
+
+        void setMeasuredSize(int width, Dimension size) {
+            measuredWidth = width;
+            measuredSize = size;
+        }
+
+        @Override
+        public String toString() {
+            return text; // what JList's copy action puts on the clipboard
+        }
+    }
+
+    private Entry[] ring;
+    private int head = 0; // index of the oldest entry
+    private int size = 0;
+
+    /**
+     * @param capacity the scrollback cap (max messages kept)
+     */
+    public ChatHistoryModel(int capacity) {
+        ring = new Entry[Math.max(1, capacity)];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Entry getElementAt(int index) {
+        return ring[(head + index) % ring.length];
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * Appends a message, evicting the oldest one when full
+     *
+     * @param text
+     */
+    public void add(String text) {
+        if (size == ring.length) {
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+            fireIntervalRemoved(this, 0, 0);
+        }
+        ring[(head + size) % ring.length] = new Entry(text);
+        size++;
+        fireIntervalAdded(this, size - 1, size - 1);
+    }
+
+    /**
+     * Changes the scrollback cap, keeping the newest messages
+     *
+     * @param capacity
+     */
+    public void setCapacity(int capacity) {
+        capacity = Math.max(1, capacity);
+        if (capacity == ring.length) {
+            return;
+        }
+        int kept = Math.min(size, capacity);
+        int dropped = size - kept;
+        Entry[] resized = new Entry[capacity];
+        for (int i = 0; i < kept; i++) {
+            resized[i] = getElementAt(dropped + i);
+        }
+        ring = resized;
+        head = 0;
+        size = kept;
+        if (dropped > 0) {
+            fireIntervalRemoved(this, 0, dropped - 1);
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        int removed = size;
+        ring = new Entry[ring.length];
+        head = 0;
+        size = 0;
+        fireIntervalRemoved(this, 0, removed - 1);
+    }
+}
@@ -1,28 +1,16 @@
 package Project.Client.Views;
 
 import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.Component;
-import java.awt.Dimension;
-import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
-import java.awt.Insets;
-import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
-import java.awt.event.ContainerEvent;
-import java.awt.event.ContainerListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.io.IOException;
 
 import javax.swing.BorderFactory;
-import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
-import javax.swing.JEditorPane;
+import javax.swing.JList;
 import javax.swing.JPanel;
-import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTextField;
@@ -32,15 +20,20 @@ import javax.swing.border.EmptyBorder;
 
 import Project.Client.CardView;
 import Project.Client.Client;
+import Project.Client.UIBatcher;
 import Project.Client.Interfaces.ICardControls;
-import Project.Common.LoggerUtil;
 
 /**
  * ChatPanel represents the main chat interface where messages can be sent and
  * received.
  */
 public class ChatPanel extends JPanel {
-    private JPanel chatArea = null;
+    // messages kept in the history, override with -Dchat.scrollback=N
+    public static final int DEFAULT_SCROLLBACK = 1000;
+    private final ChatHistoryModel history = new ChatHistoryModel(
+            Integer.getInteger("chat.scrollback", DEFAULT_SCROLLBACK));
+    private final MessageRenderer renderer = new MessageRenderer(true);
+    private JList<ChatHistoryModel.Entry> chatArea = null;
     private UserListPanel userListPanel;
     private final float CHAT_SPLIT_PERCENT = 0.7f;
 
@@ -53,8 +46,10 @@ public class ChatPanel extends JPanel {
     public ChatPanel(ICardControls controls) {
         super(new BorderLayout(10, 10));
 
-        JPanel chatContent = new JPanel(new GridBagLayout());
-        chatContent.setAlignmentY(Component.TOP_ALIGNMENT);
+        // only the visible rows are laid out and painted (see MessageRenderer)
+        JList<ChatHistoryModel.Entry> chatContent = new JList<>(history);
+        chatContent.setCellRenderer(renderer);
+        chatContent.setOpaque(false);
 
         // Wraps a viewport to provide scroll capabilities
         JScrollPane scroll = new JScrollPane(chatContent);
@@ -76,18 +71,15 @@ public class ChatPanel extends JPanel {
             @Override
             public void componentResized(ComponentEvent e) {
                 SwingUtilities.invokeLater(() -> splitPane.setDividerLocation(CHAT_SPLIT_PERCENT));
-                resizeEditorPanes();
             }
 
             @Override
             public void componentMoved(ComponentEvent e) {
-                resizeEditorPanes();
             }
 
             @Override
             public void componentShown(ComponentEvent e) {
                 SwingUtilities.invokeLater(() -> splitPane.setDividerLocation(CHAT_SPLIT_PERCENT));
-                resizeEditorPanes();
             }
 
             @Override
@@ -123,14 +115,15 @@ public class ChatPanel extends JPanel {
 
         button.addActionListener((event) -> {
             SwingUtilities.invokeLater(() -> {
-                try {
-                    String text = textValue.getText().trim();
-                    if (!text.isEmpty()) {
-                        Client.INSTANCE.sendMessage(text);
-                        textValue.setText(""); // Clear the original text
-                    }
-                } catch (NullPointerException | IOException e) {
-                    LoggerUtil.INSTANCE.severe("Error sending message", e);
+                String text = textValue.getText().trim();
+                if (!text.isEmpty()) {
+                    textValue.setText(""); // Clear the original text
+                    Client.INSTANCE.sendMessage(text).whenComplete((r, e) -> {
+                        if (e != null) {
+                            // the queue is backed up or the connection is gone; don't lose the text
+                            addText(String.format("*Not sent (%s): %s*", e.getMessage(), text));
+                        }
+                    });
                 }
             });
         });
@@ -143,57 +136,8 @@ public class ChatPanel extends JPanel {
         this.setName(CardView.CHAT.name());
         // controls.addPanel(CardView.CHAT.name(), this);
 
-        chatArea.addContainerListener(new ContainerListener() {
-            @Override
-            public void componentAdded(ContainerEvent e) {
-                SwingUtilities.invokeLater(() -> {
-                    if (chatArea.isVisible()) {
-                        chatArea.revalidate();
-                        chatArea.repaint();
-                    }
-                });
-            }
-
-            @Override
-            public void componentRemoved(ContainerEvent e) {
-                SwingUtilities.invokeLater(() -> {
-                    if (chatArea.isVisible()) {
-                        chatArea.revalidate();
-                        chatArea.repaint();
-                    }
-                });
-            }
-        });
-
-        // Add vertical glue to push messages to the top
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridx = 0; // Column index 0
-        gbc.gridy = GridBagConstraints.RELATIVE; // Automatically move to the next row
-        gbc.weighty = 1.0; // Give extra space vertically to this component
-        gbc.fill = GridBagConstraints.BOTH; // Fill both horizontally and vertically
-        chatArea.add(Box.createVerticalGlue(), gbc);
-
-        /*
-         * scroll.addPropertyChangeListener(JSplitPane.DIVIDER_LOCATION_PROPERTY, new
-         * PropertyChangeListener() {
-         * 
-         * @Override
-         * public void propertyChange(PropertyChangeEvent evt) {
-         * SwingUtilities.invokeLater(()->
-         * {
-         * resizeEditorPanes();
-         * });
-         * }
-         * });
-         */
-
-        // Ensure editor panes resize when the scroll pane viewport changes
-        scroll.getViewport().addComponentListener(new ComponentAdapter() {
-            @Override
-            public void componentResized(ComponentEvent e) {
-                resizeEditorPanes();
-            }
-        });
+        // Rewrap the messages when the scroll pane viewport changes
+        renderer.followViewport(chatArea, scroll.getViewport());
     }
 
     /**
@@ -203,7 +147,7 @@ public class ChatPanel extends JPanel {
      * @param clientName The name of the client.
      */
     public void addUserListItem(long clientId, String clientName) {
-        SwingUtilities.invokeLater(() -> userListPanel.addUserListItem(clientId, clientName));
+        userListPanel.addUserListItem(clientId, clientName);
     }
 
     /**
@@ -212,14 +156,23 @@ public class ChatPanel extends JPanel {
      * @param clientId The ID of the client to be removed.
      */
     public void removeUserListItem(long clientId) {
-        SwingUtilities.invokeLater(() -> userListPanel.removeUserListItem(clientId));
+        userListPanel.removeUserListItem(clientId);
     }
 
     /**
      * Clears the user list.
      */
     public void clearUserList() {
-        SwingUtilities.invokeLater(() -> userListPanel.clearUserList());
+        userListPanel.clearUserList();
+    }
+
+    /**
+     * Sets how many messages the chat keeps; the oldest are dropped first.
+     * 
+     * @param scrollback max messages
+     */
+    public void setScrollback(int scrollback) {
+        UIBatcher.INSTANCE.post(() -> history.setCapacity(scrollback));
     }
 
     /**
@@ -228,58 +181,16 @@ public class ChatPanel extends JPanel {
      * @param text The text of the message.
      */
     public void addText(String text) {
-        SwingUtilities.invokeLater(() -> {
-            JEditorPane textContainer = new JEditorPane("text/html", text);
-            textContainer.setEditable(false);
-            textContainer.setBorder(BorderFactory.createEmptyBorder());
-
-            // Account for the width of the vertical scrollbar
-            JScrollPane parentScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, chatArea);
-            int scrollBarWidth = parentScrollPane.getVerticalScrollBar().getPreferredSize().width;
-
-            // Adjust the width of the text container
-            int availableWidth = chatArea.getWidth() - scrollBarWidth - 10; // Subtract an additional padding
-            textContainer.setSize(new Dimension(availableWidth, Integer.MAX_VALUE));
-            Dimension d = textContainer.getPreferredSize();
-            textContainer.setPreferredSize(new Dimension(availableWidth, d.height));
-            // Remove background and border
-            textContainer.setOpaque(false);
-            textContainer.setBorder(BorderFactory.createEmptyBorder());
-            textContainer.setBackground(new Color(0, 0, 0, 0));
-
-            // GridBagConstraints settings for each message
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.gridx = 0; // Column index 0
-            gbc.gridy = GridBagConstraints.RELATIVE; // Automatically move to the next row
-            gbc.weightx = 1; // Let the component grow horizontally to fill the space
-            gbc.fill = GridBagConstraints.BOTH; // Fill horizontally
-            gbc.insets = new Insets(0, 0, 5, 5); // Add spacing between messages
-
-            chatArea.add(textContainer, gbc);
-            chatArea.revalidate();
-            chatArea.repaint();
-
-            // Scroll down on new message
-            if (parentScrollPane != null) {
-                SwingUtilities.invokeLater(() -> {
-                    JScrollBar vertical = parentScrollPane.getVerticalScrollBar();
-                    vertical.setValue(vertical.getMaximum());
-                });
-            }
+        UIBatcher.INSTANCE.post(() -> {
+            history.add(text);
+
+            // Scroll down once per frame (after the list picks up its new size)
+            UIBatcher.INSTANCE.afterFrame(chatArea, () -> SwingUtilities.invokeLater(() -> {
+                int last = history.getSize() - 1;
+                if (last >= 0) {
+                    chatArea.ensureIndexIsVisible(last);
+                }
+            }));
         });
     }
-
-    private void resizeEditorPanes() {
-        int width = chatArea.getParent().getWidth();
-        for (Component comp : chatArea.getComponents()) {
-            if (comp instanceof JEditorPane) {
-                JEditorPane editorPane = (JEditorPane) comp;
-                editorPane.setSize(new Dimension(width, Integer.MAX_VALUE));
-                Dimension d = editorPane.getPreferredSize();
-                editorPane.setPreferredSize(new Dimension(width, d.height));
-            }
-        }
-        chatArea.revalidate();
-        chatArea.repaint();
-    }
-}
\ No newline at end of file
+}
@@ -2,22 +2,18 @@ package Project.Client.Views;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
-import java.awt.Insets;
 
 import javax.swing.BorderFactory;
-import javax.swing.Box;
-import javax.swing.JEditorPane;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
-import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import Project.Client.Client;
+import Project.Client.UIBatcher;
 import Project.Client.Interfaces.IMessageEvents;
 import Project.Client.Interfaces.IPhaseEvent;
 import Project.Client.Interfaces.IReadyEvent;
@@ -27,20 +23,31 @@ import Project.Common.Phase;
 import Project.Common.TimerType;
 
 public class GameEventsPanel extends JPanel implements IPhaseEvent, IReadyEvent, IMessageEvents, ITimeEvents {
-    private JPanel content;
+    private static final int COUNTDOWN_TICK_MILLIS = 200;
+    // game events are shown as is, never parsed as markup
+    private final ChatHistoryModel events = new ChatHistoryModel(
+            Integer.getInteger("chat.scrollback", ChatPanel.DEFAULT_SCROLLBACK));
+    private final MessageRenderer renderer = new MessageRenderer(false);
+    private JList<ChatHistoryModel.Entry> content;
     private boolean debugMode = true; // Set this to false to disable debugging styling
     private JLabel timerText;
-
-    // GridBagConstraints for the vertical glue
-    private GridBagConstraints gbcGlue = new GridBagConstraints();
+    // local countdown to the server's deadline (EDT only)
+    private final Timer countdown = new Timer(COUNTDOWN_TICK_MILLIS, (e) -> updateCountdown());
+    private TimerType countdownType;
+    private long countdownDeadline;
+    private int shownSeconds = -1;
 
     public GameEventsPanel() {
         super(new BorderLayout(10, 10));
-        content = new JPanel(new GridBagLayout());
+        // only the visible rows are laid out and painted (see MessageRenderer)
+        content = new JList<>(events);
+        content.setCellRenderer(renderer);
 
         if (debugMode) {
             content.setBorder(BorderFactory.createLineBorder(Color.RED)); // Red border for debugging
-            content.setBackground(new Color(240, 240, 240)); // Light grey background for debugging
+            content.setBackground(new Color(255, 255, 200)); // Light yellow background for debugging
+        } else {
+            content.setOpaque(false);
         }
 
         // Wraps a viewport to provide scroll capabilities
@@ -53,16 +60,10 @@ public class GameEventsPanel extends JPanel implements IPhaseEvent, IReadyEvent,
         } else {
             scroll.setBorder(BorderFactory.createEmptyBorder());
         }
+        renderer.followViewport(content, scroll.getViewport());
 
         this.add(scroll, BorderLayout.CENTER);
 
-        // Add vertical glue to push messages to the top
-        gbcGlue.gridx = 0;
-        gbcGlue.gridy = GridBagConstraints.RELATIVE;
-        gbcGlue.weighty = 1.0; // Give vertical glue a weight
-        gbcGlue.fill = GridBagConstraints.BOTH;
-        content.add(Box.createVerticalGlue(), gbcGlue);
-
         timerText = new JLabel();
         this.add(timerText, BorderLayout.NORTH);
         timerText.setVisible(false);
@@ -70,47 +71,16 @@ public class GameEventsPanel extends JPanel implements IPhaseEvent, IReadyEvent,
     }
 
     public void addText(String text) {
-        SwingUtilities.invokeLater(() -> {
-            JEditorPane textContainer = new JEditorPane("text/plain", text);
-            textContainer.setEditable(false);
-
-            if (debugMode) {
-                textContainer.setBorder(BorderFactory.createLineBorder(Color.BLUE)); // Blue border for debugging
-                textContainer.setBackground(new Color(255, 255, 200)); // Light yellow background for debugging
-            } else {
-                textContainer.setBorder(BorderFactory.createEmptyBorder());
-                textContainer.setBackground(new Color(0, 0, 0, 0));
-            }
-
-            // Set the text and then recalculate the preferred size
-            textContainer.setText(text);
-            Dimension preferredSize = textContainer.getPreferredSize();
-            textContainer.setPreferredSize(new Dimension(content.getWidth(), preferredSize.height));
-
-            // GridBagConstraints settings for each message
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.gridx = 0; // Column index 0
-            gbc.gridy = content.getComponentCount() - 1; // Place before the glue
-            gbc.weightx = 1; // Let the component grow horizontally to fill the space
-            gbc.fill = GridBagConstraints.HORIZONTAL; // Fill horizontally
-            gbc.insets = new Insets(0, 0, 5, 0); // Add spacing between messages for debugging
-
-            // Remove the glue, add the text, then re-add the glue
-            content.remove(content.getComponentCount() - 1);
-            content.add(textContainer, gbc);
-            content.add(Box.createVerticalGlue(), gbcGlue);
-
-            content.revalidate();
-            content.repaint();
-
-            // Scroll down on new message
-            JScrollPane parentScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, content);
-            if (parentScrollPane != null) {
-                SwingUtilities.invokeLater(() -> {
-                    JScrollBar vertical = parentScrollPane.getVerticalScrollBar();
-                    vertical.setValue(vertical.getMaximum());
-                });
-            }
+        UIBatcher.INSTANCE.post(() -> {
+            events.add(text);
+
+            // Scroll down once per frame (after the list picks up its new size)
+            UIBatcher.INSTANCE.afterFrame(content, () -> SwingUtilities.invokeLater(() -> {
+                int last = events.getSize() - 1;
+                if (last >= 0) {
+                    content.ensureIndexIsVisible(last);
+                }
+            }));
         });
     }
 
@@ -136,12 +106,39 @@ public class GameEventsPanel extends JPanel implements IPhaseEvent, IReadyEvent,
     }
 
     @Override
-    public void onTimerUpdate(TimerType timerType, int time) {
-        if (time >= 0) {
-            timerText.setText(String.format("%s timer: %s", timerType.name(), time));
-        } else {
+    public void onTimerUpdate(TimerType timerType, long deadlineNanos) {
+        UIBatcher.INSTANCE.post(() -> {
+            countdownType = timerType;
+            countdownDeadline = deadlineNanos;
+            shownSeconds = -1;
+            updateCountdown();
+            countdown.start();
+        });
+    }
+
+    @Override
+    public void onTimerCancel(TimerType timerType) {
+        UIBatcher.INSTANCE.post(() -> {
+            countdown.stop();
             timerText.setText(" ");
+            timerText.setVisible(true);
+        });
+    }
+
+    /**
+     * Renders the whole seconds left until the local deadline, only touching the
+     * label when the second changes
+     */
+    private void updateCountdown() {
+        long remaining = countdownDeadline - System.nanoTime();
+        int seconds = remaining <= 0 ? 0 : (int) ((remaining + 999_999_999L) / 1_000_000_000L);
+        if (seconds != shownSeconds) {
+            shownSeconds = seconds;
+            timerText.setText(String.format("%s timer: %s", countdownType.name(), seconds));
+            timerText.setVisible(true);
+        }
+        if (seconds == 0) {
+            countdown.stop();
         }
-        timerText.setVisible(true);
     }
 }
\ No newline at end of file
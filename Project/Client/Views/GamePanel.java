@@ -34,12 +34,7 @@ public class GamePanel extends JPanel implements IRoomEvents, IPhaseEvent {
         // Create the buttons and add them to a panel
         JButton doSomething = new JButton("Do Something");
         doSomething.addActionListener(event -> {
-            try {
-                Client.INSTANCE.sendDoTurn("example");
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
+            Client.INSTANCE.sendDoTurn("example");
         });
         buttonPanel.add(doSomething);
 
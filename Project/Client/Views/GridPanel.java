@@ -1,104 +1,243 @@
 package Project.Client.Views;
 
-import java.awt.GridLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.function.Consumer;
 
 import javax.swing.JPanel;
-import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.plaf.basic.BasicGraphicsUtils;
 
 import Project.Client.Interfaces.IBoardEvents;
 import Project.Client.Client;
+import Project.Client.UIBatcher;
 import Project.Common.LoggerUtil;
 
-
+/**
+ * The game board, painted as one component over a BoardModel instead of a
+ * button per cell.
+ * <p>
+ * Board events are applied through UIBatcher and each changed cell repaints
+ * only its own rectangle; painting skips every cell outside the clip, so a
+ * frame's worth of cell updates costs one paint of just those cells.
+ * onReceiveBoard() applies a whole board state in a single update.
+ * </p>
+ */
 public class GridPanel extends JPanel implements IBoardEvents {
+    private static final int PREFERRED_CELL_SIZE = 40;
+    private static final String FACE_DOWN = "#";
+    private final BoardModel board = new BoardModel();
     private Consumer<Point> cellSelectedCallback;
+    private Point pressed = null; // cell under a mouse press, drawn pushed in
 
     public GridPanel(Consumer<Point> cellSelectedCallback) {
         // Constructor logic if needed
         this.cellSelectedCallback = cellSelectedCallback;
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                setPressed(cellAt(e.getPoint()));
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                Point cell = cellAt(e.getPoint());
+                boolean isClick = cell != null && cell.equals(pressed);
+                setPressed(null);
+                if (isClick) {
+                    LoggerUtil.INSTANCE.info("Cell clicked at: " + cell.x + ", " + cell.y);
+                    cellSelectedCallback.accept(cell);
+                }
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (pressed != null && !pressed.equals(cellAt(e.getPoint()))) {
+                    setPressed(null); // dragged off, like leaving a button
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
         // register with Client to receive events
         Client.INSTANCE.addCallback(this);
     }
 
     @Override
     public void onReceiveDimensions(int rows, int columns) {
-        this.removeAll();
         LoggerUtil.INSTANCE.info("Generating grid with dimensions: " + rows + "x" + columns);
         if (rows <= 0 || columns <= 0) {
+            // Invalid dimensions, used for reset (clears the board)
             LoggerUtil.INSTANCE.info("Invalid dimensions received: " + rows + "x" + columns);
-            return; // Invalid dimensions, used for reset
         }
-        SwingUtilities.invokeLater(() -> {
-            this.setLayout(new GridLayout(rows, columns));
-            for (int i = 0; i < rows; i++) {
-                for (int j = 0; j < columns; j++) {
-                    CellButton cell = new CellButton(i, j, (point) -> {
-                        cellSelectedCallback.accept(point);
-                        System.out.println("Selected cell: " + point);
-                    });
-                    this.add(cell);
-                }
-            }
-            invalidate();
-            repaint();
+        UIBatcher.INSTANCE.post(() -> {
+            board.resize(rows, columns);
+            pressed = null;
+            UIBatcher.INSTANCE.invalidate(this);
         });
-
     }
 
     @Override
     public void onReceiveSelection(int row, int column, boolean isSelected) {
-        for (int i = 0; i < this.getComponentCount(); i++) {
-            CellButton cell = (CellButton) this.getComponent(i);
-            if (cell.getRow() == row && cell.getCol() == column) {
-                cell.setSelected(isSelected);
-                break;
+        UIBatcher.INSTANCE.post(() -> {
+            if (board.setSelected(row, column, isSelected)) {
+                repaintCell(row, column);
             }
-        }
+        });
     }
+
     @Override
     public void onReceiveCell(int row, int column, String value, boolean isFlipped, boolean isCollected) {
-        LoggerUtil.INSTANCE.info("Updating cell at (" + row + "," + column + ") with value: " + value + ", flipped: "
+        LoggerUtil.INSTANCE.fine("Updating cell at (" + row + "," + column + ") with value: " + value + ", flipped: "
                 + isFlipped + ", collected: " + isCollected);
-        if (row < 0 || column < 0) {
-            for (int i = 0; i < this.getComponentCount(); i++) {
-                CellButton cell = (CellButton) this.getComponent(i);
+        UIBatcher.INSTANCE.post(() -> {
+            if (row < 0 || column < 0) {
+                board.hideAll(); // Invalid coordinates, used for reset
+                repaint();
+            } else if (board.setCell(row, column, value, isFlipped, isCollected)) {
+                repaintCell(row, column);
+            }
+        });
+    }
 
-                cell.setText(!cell.isEnabled() ? " " : "#");
+    @Override
+    public void onReceiveBoard(int rows, int columns, String[] values, boolean[] isFlipped, boolean[] isCollected) {
+        UIBatcher.INSTANCE.post(() -> {
+            if (rows != board.getRows() || columns != board.getColumns()) {
+                board.resize(rows, columns);
+                pressed = null;
+                revalidate();
             }
-            return; // Invalid coordinates, used for reset
+            board.setAll(values, isFlipped, isCollected);
+            repaint();
+        });
+    }
+
+    public void resetSelection() {
+        cellSelectedCallback.accept(new Point(-1, -1));// Reset to an invalid point
+    }
+
+    private void setPressed(Point cell) {
+        Point previous = pressed;
+        pressed = cell;
+        if (previous != null) {
+            repaintCell(previous.x, previous.y);
         }
-        /**
-         * Grid options:
-         * 1. Loop through cells, find which has proper x,y
-         * 2. Use Math
-         * 2a. int oneDindex = (row * length_of_row) + column; // Indexes
-         * 2b. (col) $i % NUMBER_ITEMS_IN_ROW and (row) $i / NUMBER_ITEMS_IN_ROW
-         */
-        for (int i = 0; i < this.getComponentCount(); i++) {
-            CellButton cell = (CellButton) this.getComponent(i);
-            if (cell.getRow() == row && cell.getCol() == column) {
-                if (isCollected) {
-                    cell.setEnabled(false);
-                    // continue;
-                }
-                if (isFlipped) {
-                    cell.setText(value + "");
-                } else if (cell.isEnabled()) {
-                    cell.setText("#");
-                } else {
-                    cell.setText(" ");
+        if (cell != null) {
+            repaintCell(cell.x, cell.y);
+        }
+    }
+
+    /**
+     * @return the (row, column) of a cell that can be picked at p, or null
+     */
+    private Point cellAt(Point p) {
+        if (board.getRows() == 0 || getWidth() <= 0 || getHeight() <= 0) {
+            return null;
+        }
+        int row = indexAt(p.y, board.getRows(), getHeight());
+        int column = indexAt(p.x, board.getColumns(), getWidth());
+        if (!board.contains(row, column) || board.isCollected(row, column)) {
+            return null;
+        }
+        return new Point(row, column);
+    }
+
+    /**
+     * @return the row/column holding pixel pos along an axis split into count
+     *         cells (see cellBounds()), clamped to the board
+     */
+    private static int indexAt(int pos, int count, int extent) {
+        int i = (int) ((long) Math.max(0, pos) * count / extent);
+        if (i + 1 < count && (long) (i + 1) * extent / count <= pos) {
+            i++; // cell edges are rounded down
+        }
+        return Math.min(i, count - 1);
+    }
+
+    /**
+     * Same split as a GridLayout of the board size (edges rounded so the cells
+     * tile the panel exactly)
+     */
+    private Rectangle cellBounds(int row, int column) {
+        int x = column * getWidth() / board.getColumns();
+        int y = row * getHeight() / board.getRows();
+        return new Rectangle(x, y, (column + 1) * getWidth() / board.getColumns() - x,
+                (row + 1) * getHeight() / board.getRows() - y);
+    }
+
+    private void repaintCell(int row, int column) {
+        if (board.contains(row, column)) {
+            repaint(cellBounds(row, column));
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet() || board.getRows() == 0) {
+            return super.getPreferredSize();
+        }
+        return new Dimension(board.getColumns() * PREFERRED_CELL_SIZE, board.getRows() * PREFERRED_CELL_SIZE);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (board.getRows() == 0 || getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        // only visit the cells the dirty region touches
+        int firstRow = indexAt(clip.y, board.getRows(), getHeight());
+        int lastRow = indexAt(clip.y + clip.height - 1, board.getRows(), getHeight());
+        int firstColumn = indexAt(clip.x, board.getColumns(), getWidth());
+        int lastColumn = indexAt(clip.x + clip.width - 1, board.getColumns(), getWidth());
+
+        Color face = uiColor("Button.background", getBackground());
+        Color shadow = uiColor("Button.shadow", Color.GRAY);
+        Color pushed = uiColor("Button.select", face.darker());
+        Color text = uiColor("Button.foreground", getForeground());
+        Color disabledText = uiColor("Button.disabledText", Color.GRAY);
+        Color selection = uiColor("List.selectionBackground", Color.LIGHT_GRAY);
+        g.setFont(getFont());
+        FontMetrics metrics = g.getFontMetrics();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Rectangle cell = cellBounds(row, column);
+                boolean isPressed = pressed != null && pressed.x == row && pressed.y == column;
+                g.setColor(board.isSelected(row, column) ? selection
+                        : isPressed ? pushed : face);
+                g.fillRect(cell.x, cell.y, cell.width, cell.height);
+                g.setColor(shadow);
+                g.drawRect(cell.x, cell.y, cell.width - 1, cell.height - 1);
+
+                String label = board.isFlipped(row, column) ? String.valueOf(board.getValue(row, column))
+                        : board.isCollected(row, column) ? "" : FACE_DOWN;
+                if (!label.isEmpty()) {
+                    g.setColor(board.isCollected(row, column) ? disabledText : text);
+                    int x = cell.x + (cell.width - metrics.stringWidth(label)) / 2;
+                    int y = cell.y + (cell.height - metrics.getHeight()) / 2 + metrics.getAscent();
+                    BasicGraphicsUtils.drawString(this, (Graphics2D) g, label, x, y);
                 }
-                break;
             }
         }
-        invalidate();
-        repaint();
     }
 
-    public void resetSelection() {
-        cellSelectedCallback.accept(new Point(-1, -1));// Reset to an invalid point
+    /**
+     * Look and feel color for key, or fallback if the L&amp;F doesn't define it
+     */
+    private static Color uiColor(String key, Color fallback) {
+        Color color = UIManager.getColor(key);
+        return color != null ? color : fallback;
     }
-
-}
\ No newline at end of file
+}
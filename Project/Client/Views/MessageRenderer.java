@@ -0,0 +1,240 @@
+package Project.Client.Views;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
+import javax.swing.JViewport;
+import javax.swing.border.Border;
+import javax.swing.plaf.basic.BasicGraphicsUtils;
+import javax.swing.plaf.basic.BasicHTML;
+import javax.swing.text.View;
+
+/**
+ * Renders ChatHistoryModel entries for a JList, wrapped to the list's width.
+ * <p>
+ * Each distinct message is laid out once and kept in a small LRU shared by
+ * every row with the same text: markup-free text is wrapped and drawn straight
+ * from the font metrics, and HTML is parsed into a View once and reused for
+ * every paint, measurement and width change (a JLabel reparses it whenever the
+ * shared renderer switches rows). Sizes are also cached per entry and wrap
+ * width, so list layout stays cheap with a full scrollback. EDT only.
+ * </p>
+ */
+public class MessageRenderer extends DefaultListCellRenderer {
+    // distinct messages kept laid out, override with -Dchat.renderCache=N
+    public static final int DEFAULT_CACHE_SIZE = 512;
+
+    /**
+     * One distinct message, either plain lines or a parsed HTML view, laid out
+     * for the last width it was asked for
+     */
+    private static class Layout {
+        private final String plain; // null when html is set
+        private final View html;
+        private int width = -1;
+        private List<String> lines;
+        private int height;
+
+        private Layout(String plain, View html) {
+            this.plain = plain;
+            this.html = html;
+        }
+
+        private void layout(int width, FontMetrics metrics) {
+            if (this.width == width) {
+                return;
+            }
+            this.width = width;
+            if (html != null) {
+                html.setSize(width, 0);
+                height = (int) Math.ceil(html.getPreferredSpan(View.Y_AXIS));
+            } else {
+                lines = wrap(plain, metrics, width);
+                height = lines.size() * metrics.getHeight();
+            }
+        }
+    }
+
+    private final Border rowBorder = BorderFactory.createEmptyBorder(0, 0, 5, 5);
+    private final boolean allowHtml;
+    private final Map<String, Layout> layouts;
+    private Font layoutFont = null;
+    private ChatHistoryModel.Entry entry = null;
+    private int wrapWidth = 200;
+
+    /**
+     * @param allowHtml false to always show the text as is (no markup parsing)
+     */
+    public MessageRenderer(boolean allowHtml) {
+        this.allowHtml = allowHtml;
+        int cacheSize = Math.max(16, Integer.getInteger("chat.renderCache", DEFAULT_CACHE_SIZE));
+        layouts = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Layout> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+            boolean cellHasFocus) {
+        entry = (ChatHistoryModel.Entry) value;
+        setComponentOrientation(list.getComponentOrientation());
+        setFont(list.getFont());
+        setEnabled(list.isEnabled());
+        setOpaque(isSelected);
+        setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+        setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+        setBorder(rowBorder);
+        return this;
+    }
+
+    /**
+     * Wraps the list's rows to the viewport width, re-measuring them only when
+     * that width changes
+     *
+     * @param list     the list this renders
+     * @param viewport the list's scroll pane viewport
+     */
+    public void followViewport(JList<?> list, JViewport viewport) {
+        viewport.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                int viewportWidth = viewport.getWidth();
+                if (viewportWidth <= 0 || list.getFixedCellWidth() == viewportWidth) {
+                    return;
+                }
+                Insets insets = rowBorder.getBorderInsets(MessageRenderer.this);
+                // leave room for the vertical scrollbar and some padding
+                wrapWidth = Math.max(50, viewportWidth - insets.left - insets.right - 10);
+                list.setFixedCellWidth(viewportWidth); // also triggers the list's relayout
+            }
+        });
+    }
+
+    /**
+     * @return the entry's layout at the current wrap width, parsing it on a miss
+     */
+    private Layout layoutFor(ChatHistoryModel.Entry entry) {
+        if (!getFont().equals(layoutFont)) {
+            layouts.clear(); // views and metrics belong to the old font
+            layoutFont = getFont();
+        }
+        String text = entry.getText();
+        boolean isHtml = allowHtml && hasMarkup(text);
+        // html views bake in the text color, so selected rows get their own
+        String key = isHtml ? getForeground().getRGB() + ":" + text : text;
+        Layout layout = layouts.get(key);
+        if (layout == null) {
+            layout = isHtml
+                    ? new Layout(null, BasicHTML.createHTMLView(this, "<html>" + text + "</html>"))
+                    : new Layout(text, null);
+            layouts.put(key, layout);
+        }
+        layout.layout(wrapWidth, getFontMetrics(getFont()));
+        return layout;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (entry == null) {
+            return super.getPreferredSize();
+        }
+        Dimension size = entry.getMeasuredSize(wrapWidth);
+        if (size == null) {
+            Insets insets = getInsets();
+            size = new Dimension(wrapWidth + insets.left + insets.right,
+                    layoutFor(entry).height + insets.top + insets.bottom);
+            entry.setMeasuredSize(wrapWidth, size);
+        }
+        return size;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (entry == null) {
+            super.paintComponent(g);
+            return;
+        }
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        Layout layout = layoutFor(entry);
+        Insets insets = getInsets();
+        if (layout.html != null) {
+            layout.html.paint(g, new Rectangle(insets.left, insets.top, layout.width, layout.height));
+            return;
+        }
+        FontMetrics metrics = getFontMetrics(getFont());
+        g.setColor(getForeground());
+        g.setFont(getFont());
+        int y = insets.top + metrics.getAscent();
+        for (String line : layout.lines) {
+            BasicGraphicsUtils.drawString(this, (Graphics2D) g, line, insets.left, y);
+            y += metrics.getHeight();
+        }
+    }
+
+    /**
+     * @return true if the text looks like it has tags or entities to render
+     */
+    private static boolean hasMarkup(String text) {
+        return text.indexOf('<') >= 0 || text.indexOf('&') >= 0;
+    }
+
+    /**
+     * Word wraps plain text to width, breaking words that don't fit on a line
+     * of their own
+     */
+    private static List<String> wrap(String text, FontMetrics metrics, int width) {
+        List<String> lines = new ArrayList<>();
+        for (String paragraph : text.split("\n", -1)) {
+            int start = 0;
+            if (paragraph.isEmpty()) {
+                lines.add("");
+            }
+            while (start < paragraph.length()) {
+                int lineWidth = 0;
+                int lastSpace = -1;
+                int end = start;
+                while (end < paragraph.length()) {
+                    char c = paragraph.charAt(end);
+                    lineWidth += metrics.charWidth(c);
+                    if (lineWidth > width && end > start) {
+                        break;
+                    }
+                    if (c == ' ') {
+                        lastSpace = end;
+                    }
+                    end++;
+                }
+                if (end < paragraph.length() && lastSpace > start) {
+                    end = lastSpace + 1; // break after the last space that fit
+                }
+                lines.add(paragraph.substring(start, end).stripTrailing());
+                start = end;
+                while (start < paragraph.length() && paragraph.charAt(start) == ' ') {
+                    start++;
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -1,7 +1,5 @@
 package Project.Client.Views;
 
-import java.io.IOException;
-
 import javax.swing.JButton;
 import javax.swing.JPanel;
 
@@ -13,11 +11,7 @@ public class ReadyPanel extends JPanel {
         JButton readyButton = new JButton();
         readyButton.setText("Ready");
         readyButton.addActionListener(event -> {
-            try {
-                Client.INSTANCE.sendReady();
-            } catch (IOException e1) {
-                e1.printStackTrace();
-            }
+            Client.INSTANCE.sendReady();
         });
         this.add(readyButton);
     }
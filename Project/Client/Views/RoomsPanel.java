@@ -6,9 +6,9 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.event.ContainerEvent;
 import java.awt.event.ContainerListener;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -73,18 +73,12 @@ public class RoomsPanel extends JPanel {
         // Search button action
         searchButton.addActionListener(event -> {
             SwingUtilities.invokeLater(() -> {
-                try {
-                    String query = searchValue.getText().trim();
-                    if (!query.isEmpty()) {
-                        removeAllRooms();
-                        Client.INSTANCE.sendRoomAction(query, RoomAction.LIST);
-                        message.setText("Sent query");
-                    } else {
-                        message.setText("Can't search with an empty query");
-                    }
-                } catch (IOException e) {
-                    LoggerUtil.INSTANCE.warning("Error sending request: " + e.getMessage(), e);
-                    message.setText("Error sending request: " + e.getMessage());
+                String query = searchValue.getText().trim();
+                if (!query.isEmpty()) {
+                    removeAllRooms();
+                    showResult(Client.INSTANCE.sendRoomAction(query, RoomAction.LIST), "Sent query");
+                } else {
+                    message.setText("Can't search with an empty query");
                 }
             });
         });
@@ -92,17 +86,11 @@ public class RoomsPanel extends JPanel {
         JButton createButton = new JButton("Create");
         createButton.addActionListener(event -> {
             SwingUtilities.invokeLater(() -> {
-                try {
-                    String query = searchValue.getText().trim();
-                    if (!query.isEmpty()) {
-                        Client.INSTANCE.sendRoomAction(query, RoomAction.CREATE);
-                        message.setText("Created room");
-                    } else {
-                        message.setText("Can't create a room without a name");
-                    }
-                } catch (IOException e) {
-                    LoggerUtil.INSTANCE.warning("Error sending request: " + e.getMessage(), e);
-                    message.setText("Error sending request: " + e.getMessage());
+                String query = searchValue.getText().trim();
+                if (!query.isEmpty()) {
+                    showResult(Client.INSTANCE.sendRoomAction(query, RoomAction.CREATE), "Created room");
+                } else {
+                    message.setText("Can't create a room without a name");
                 }
             });
         });
@@ -110,19 +98,11 @@ public class RoomsPanel extends JPanel {
         JButton joinButton = new JButton("Join");
         joinButton.addActionListener(event -> {
             SwingUtilities.invokeLater(() -> {
-                try {
-                    String query = searchValue.getText().trim();
-                    if (!query.isEmpty()) {
-                        Client.INSTANCE.sendRoomAction(query, RoomAction.JOIN);
-                        message.setText("Joined room");
-                    } else {
-                        message.setText("Can't join a room without a name");
-                    }
-                } catch (NullPointerException ne) {
-                    message.setText("Not connected");
-                } catch (IOException e) {
-                    LoggerUtil.INSTANCE.warning("Not connected", e);
-                    message.setText("Error sending request: " + e.getMessage());
+                String query = searchValue.getText().trim();
+                if (!query.isEmpty()) {
+                    showResult(Client.INSTANCE.sendRoomAction(query, RoomAction.JOIN), "Joined room");
+                } else {
+                    message.setText("Can't join a room without a name");
                 }
             });
         });
@@ -230,11 +210,24 @@ public class RoomsPanel extends JPanel {
      */
     public void handleSelection(String room) {
         SwingUtilities.invokeLater(() -> {
-            try {
-                Client.INSTANCE.sendRoomAction(room, RoomAction.JOIN);
-            } catch (IOException e) {
-                LoggerUtil.INSTANCE.severe("Error joining room: " + e.getMessage(), e);
-            }
+            Client.INSTANCE.sendRoomAction(room, RoomAction.JOIN);
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Shows okText once the request is sent, or why it wasn't
+     *
+     * @param sent   the pending send
+     * @param okText
+     */
+    private void showResult(CompletableFuture<Void> sent, String okText) {
+        sent.whenComplete((r, e) -> SwingUtilities.invokeLater(() -> {
+            if (e == null) {
+                message.setText(okText);
+            } else {
+                LoggerUtil.INSTANCE.warning("Error sending request: " + e.getMessage());
+                message.setText("Error sending request: " + e.getMessage());
+            }
+        }));
+    }
+}
@@ -0,0 +1,204 @@
+package Project.Client.Views;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model for the room's user list: one row per user with its status
+ * indicator, name and points.
+ * <p>
+ * Rows are found by client id in O(1) and a change fires an update for that
+ * row only, so the table repaints just the affected row. Only touch it from
+ * the EDT (like any Swing model).
+ * </p>
+ */
+public class UserListModel extends AbstractTableModel {
+    public static final int STATUS_COLUMN = 0;
+    public static final int NAME_COLUMN = 1;
+    public static final int POINTS_COLUMN = 2;
+    private static final String[] COLUMNS = { "", "Name", "Points" };
+
+    /**
+     * One user's row
+     */
+    public static class User {
+        private final long clientId;
+        private final String clientName;
+        private Color status = null; // null means no indicator
+        private int points = -1; // hidden until the first update
+        private boolean isAway = false;
+
+        private User(long clientId, String clientName) {
+            this.clientId = clientId;
+            this.clientName = clientName;
+        }
+
+        public long getClientId() {
+            return clientId;
+        }
+
+        public String getClientName() {
+            return clientName;
+        }
+
+        public Color getStatus() {
+            return status;
+        }
+
+        /**
+         * @param status indicator color, null to clear it
+         */
+        public void setStatus(Color status) {
+            this.status = status;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        /**
+         * @param points negative hides the points
+         */
+        public void setPoints(int points) {
+            this.points = points;
+        }
+
+        public boolean isAway() {
+            return isAway;
+        }
+
+        public void setAway(boolean isAway) {
+            this.isAway = isAway;
+        }
+    }
+
+    private final List<User> rows = new ArrayList<>();
+    private final Map<Long, Integer> rowIndex = new HashMap<>();
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case STATUS_COLUMN:
+                return Color.class;
+            case POINTS_COLUMN:
+                return Integer.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        User user = rows.get(row);
+        switch (column) {
+            case STATUS_COLUMN:
+                return user.status;
+            case POINTS_COLUMN:
+                return user.points;
+            default:
+                return user.clientName;
+        }
+    }
+
+    public User getUser(int row) {
+        return rows.get(row);
+    }
+
+    public boolean contains(long clientId) {
+        return rowIndex.containsKey(clientId);
+    }
+
+    /**
+     * Appends a user
+     *
+     * @param clientId
+     * @param clientName
+     * @return false if the user is already listed
+     */
+    public boolean add(long clientId, String clientName) {
+        if (rowIndex.containsKey(clientId)) {
+            return false;
+        }
+        int row = rows.size();
+        rows.add(new User(clientId, clientName));
+        rowIndex.put(clientId, row);
+        fireTableRowsInserted(row, row);
+        return true;
+    }
+
+    /**
+     * Removes a user, shifting the rows after it up
+     *
+     * @param clientId
+     * @return false if the user wasn't listed
+     */
+    public boolean remove(long clientId) {
+        Integer row = rowIndex.remove(clientId);
+        if (row == null) {
+            return false;
+        }
+        rows.remove((int) row);
+        for (int i = row; i < rows.size(); i++) {
+            rowIndex.put(rows.get(i).clientId, i);
+        }
+        fireTableRowsDeleted(row, row);
+        return true;
+    }
+
+    public void clear() {
+        rows.clear();
+        rowIndex.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Changes one user's row and repaints only that row
+     *
+     * @param clientId
+     * @param change
+     * @return false if the user isn't listed
+     */
+    public boolean update(long clientId, Consumer<User> change) {
+        Integer row = rowIndex.get(clientId);
+        if (row == null) {
+            return false;
+        }
+        change.accept(rows.get(row));
+        fireTableRowsUpdated(row, row);
+        return true;
+    }
+
+    /**
+     * Changes every row (e.g. a reset)
+     *
+     * @param change
+     */
+    public void updateAll(Consumer<User> change) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows.forEach(change);
+        fireTableRowsUpdated(0, rows.size() - 1);
+    }
+}
@@ -2,23 +2,23 @@ package Project.Client.Views;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
-import java.awt.Insets;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
-import java.awt.event.ContainerEvent;
-import java.awt.event.ContainerListener;
-import java.util.HashMap;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.util.function.Consumer;
 
-import javax.swing.Box;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
-import javax.swing.SwingUtilities;
+import javax.swing.SwingConstants;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableRowSorter;
 
 import Project.Client.Client;
+import Project.Client.UIBatcher;
 import Project.Client.Interfaces.IPointsEvent;
 import Project.Client.Interfaces.IReadyEvent;
 import Project.Client.Interfaces.IStatusEvents;
@@ -28,88 +28,96 @@ import Project.Common.LoggerUtil;
 
 /**
  * UserListPanel represents a UI component that displays a list of users.
+ * <p>
+ * Backed by a UserListModel in a JTable so only the visible rows are rendered
+ * and a status/points change repaints just that user's row. Columns sort by
+ * clicking their header.
+ * </p>
  */
 public class UserListPanel extends JPanel implements IReadyEvent, IPointsEvent, ITurnEvent, IStatusEvents {
+    private static final int STATUS_SIZE = 10;
 
-    @Override
-    public void onAwayStatus(long clientId, boolean isAway) {
-        if (clientId == Constants.DEFAULT_CLIENT_ID) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.values().forEach(u -> u.setAway(false)); // reset all
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error resetting user items", e);
-                }
-            });
-        } else if (userItemsMap.containsKey(clientId)) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.get(clientId).setAway(isAway);
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error setting user item", e);
-                }
-            });
+    /**
+     * Paints the ready/turn indicator as a small square
+     */
+    private static class StatusRenderer extends DefaultTableCellRenderer {
+        private Color status = null;
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, null, isSelected, false, row, column);
+            status = (Color) value;
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (status != null) {
+                g.setColor(status);
+                g.fillRect(0, (getHeight() - STATUS_SIZE) / 2, STATUS_SIZE, STATUS_SIZE);
+            }
         }
     }
-    private JPanel userListArea;
-    private GridBagConstraints lastConstraints; // Keep track of the last constraints for the glue
-    private HashMap<Long, UserListItem> userItemsMap; // Maintain a map of client IDs to UserListItems
+
+    /**
+     * Grays out away users' names and hides points that were never set
+     */
+    private static class UserRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                boolean hasFocus, int row, int column) {
+            UserListModel.User user = ((UserListModel) table.getModel()).getUser(table.convertRowIndexToModel(row));
+            if (column == UserListModel.POINTS_COLUMN && user.getPoints() < 0) {
+                value = "";
+            }
+            super.getTableCellRendererComponent(table, value, isSelected, false, row, column);
+            if (!isSelected) {
+                setForeground(user.isAway() ? Color.GRAY : table.getForeground());
+            }
+            return this;
+        }
+    }
+
+    private final UserListModel users = new UserListModel();
+    private final JTable userTable;
 
     /**
      * Constructor to create the UserListPanel UI.
      */
     public UserListPanel() {
         super(new BorderLayout(10, 10));
-        userItemsMap = new HashMap<>(); // Initialize the map
 
-        JPanel content = new JPanel(new GridBagLayout());
-        userListArea = content;
+        userTable = new JTable(users);
+        userTable.setShowGrid(false);
+        userTable.setFillsViewportHeight(true);
+        userTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        userTable.getTableHeader().setReorderingAllowed(false);
+        TableRowSorter<UserListModel> sorter = new TableRowSorter<>(users);
+        sorter.setSortable(UserListModel.STATUS_COLUMN, false);
+        sorter.setSortsOnUpdates(true); // keep a points sort current
+        userTable.setRowSorter(sorter);
+
+        TableColumn status = userTable.getColumnModel().getColumn(UserListModel.STATUS_COLUMN);
+        status.setCellRenderer(new StatusRenderer());
+        status.setMinWidth(STATUS_SIZE + 4);
+        status.setMaxWidth(STATUS_SIZE + 4);
+        UserRenderer userRenderer = new UserRenderer();
+        userTable.getColumnModel().getColumn(UserListModel.NAME_COLUMN).setCellRenderer(userRenderer);
+        TableColumn points = userTable.getColumnModel().getColumn(UserListModel.POINTS_COLUMN);
+        userRenderer.setHorizontalAlignment(SwingConstants.LEFT);
+        points.setCellRenderer(userRenderer);
+        points.setPreferredWidth(50);
+        points.setMaxWidth(80);
 
         // Wraps a viewport to provide scroll capabilities
-        JScrollPane scroll = new JScrollPane(userListArea);
+        JScrollPane scroll = new JScrollPane(userTable);
         scroll.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
         scroll.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED);
         scroll.setBorder(new EmptyBorder(0, 0, 0, 0)); // Remove border
 
         this.add(scroll, BorderLayout.CENTER);
-
-        userListArea.addContainerListener(new ContainerListener() {
-            @Override
-            public void componentAdded(ContainerEvent e) {
-                if (userListArea.isVisible()) {
-                    SwingUtilities.invokeLater(() -> {
-                        userListArea.revalidate();
-                        userListArea.repaint();
-                    });
-                }
-            }
-
-            @Override
-            public void componentRemoved(ContainerEvent e) {
-                if (userListArea.isVisible()) {
-                    SwingUtilities.invokeLater(() -> {
-                        userListArea.revalidate();
-                        userListArea.repaint();
-                    });
-                }
-            }
-        });
-
-        // Add vertical glue to push items to the top
-        lastConstraints = new GridBagConstraints();
-        lastConstraints.gridx = 0;
-        lastConstraints.gridy = GridBagConstraints.RELATIVE;
-        lastConstraints.weighty = 1.0;
-        lastConstraints.fill = GridBagConstraints.VERTICAL;
-        userListArea.add(Box.createVerticalGlue(), lastConstraints);
-
-        // Listen for resize events to adjust user list items accordingly
-        this.addComponentListener(new ComponentAdapter() {
-            @Override
-            public void componentResized(ComponentEvent e) {
-                // SwingUtilities.invokeLater(() -> adjustUserListItemsWidth());
-            }
-        });
         // register to receive events
         Client.INSTANCE.addCallback(this);
     }
@@ -121,42 +129,12 @@ public class UserListPanel extends JPanel implements IReadyEvent, IPointsEvent,
      * @param clientName The name of the client.
      */
     protected void addUserListItem(long clientId, String clientName) {
-        SwingUtilities.invokeLater(() -> {
-            if (userItemsMap.containsKey(clientId)) {
+        UIBatcher.INSTANCE.post(() -> {
+            if (!users.add(clientId, clientName)) {
                 LoggerUtil.INSTANCE.warning("User already in the list: " + clientName);
-                return; // User already in the list
-            }
-
-            LoggerUtil.INSTANCE.info("Adding user to list: " + clientName);
-
-            UserListItem userItem = new UserListItem(clientId, clientName, userListArea);
-
-            // GridBagConstraints settings for each user
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.gridx = 0; // Column index 0
-            gbc.gridy = userListArea.getComponentCount() - 1; // Place before the glue
-            gbc.weightx = 1; // Let the component grow horizontally to fill the space
-            gbc.anchor = GridBagConstraints.NORTH; // Anchor to the top
-            gbc.fill = GridBagConstraints.BOTH;
-            gbc.insets = new Insets(0, 0, 5, 5); // Add spacing between users
-
-            // Remove the last glue component if it exists
-            if (lastConstraints != null) {
-                int index = userListArea.getComponentCount() - 1;
-                if (index > -1) {
-                    userListArea.remove(index);
-                }
+                return;
             }
-            // Add user item
-            userListArea.add(userItem, gbc);
-
-            // Add vertical glue to push items to the top
-            userListArea.add(Box.createVerticalGlue(), lastConstraints);
-
-            userItemsMap.put(clientId, userItem); // Add to the map
-
-            userListArea.revalidate();
-            userListArea.repaint();
+            LoggerUtil.INSTANCE.fine("Added user to list: " + clientName);
         });
     }
 
@@ -166,18 +144,9 @@ public class UserListPanel extends JPanel implements IReadyEvent, IPointsEvent,
      * @param clientId The ID of the client to be removed.
      */
     protected void removeUserListItem(long clientId) {
-        SwingUtilities.invokeLater(() -> {
-            LoggerUtil.INSTANCE.info("Removing user list item for id " + clientId);
-            try {
-                UserListItem item = userItemsMap.remove(clientId); // Remove from the map
-                if (item != null) {
-                    userListArea.remove(item);
-                    userListArea.revalidate();
-                    userListArea.repaint();
-                }
-            } catch (Exception e) {
-                LoggerUtil.INSTANCE.severe("Error removing user list item", e);
-            }
+        UIBatcher.INSTANCE.post(() -> {
+            LoggerUtil.INSTANCE.fine("Removing user list item for id " + clientId);
+            users.remove(clientId);
         });
     }
 
@@ -185,94 +154,74 @@ public class UserListPanel extends JPanel implements IReadyEvent, IPointsEvent,
      * Clears the user list.
      */
     protected void clearUserList() {
-        SwingUtilities.invokeLater(() -> {
+        UIBatcher.INSTANCE.post(() -> {
             LoggerUtil.INSTANCE.info("Clearing user list");
-            try {
-                userItemsMap.clear(); // Clear the map
-                userListArea.removeAll();
-                userListArea.revalidate();
-                userListArea.repaint();
-            } catch (Exception e) {
-                LoggerUtil.INSTANCE.severe("Error clearing user list", e);
-            }
+            users.clear();
         });
     }
 
+    /**
+     * Applies a change to one user's row in the next UI frame (skipped if the
+     * user isn't listed by then)
+     *
+     * @param clientId
+     * @param change
+     */
+    private void update(long clientId, Consumer<UserListModel.User> change) {
+        UIBatcher.INSTANCE.post(() -> users.update(clientId, change));
+    }
+
+    /**
+     * Applies a change to every listed user's row in the next UI frame
+     *
+     * @param change
+     */
+    private void updateAll(Consumer<UserListModel.User> change) {
+        UIBatcher.INSTANCE.post(() -> users.updateAll(change));
+    }
+
+    @Override
+    public void onAwayStatus(long clientId, boolean isAway) {
+        if (clientId == Constants.DEFAULT_CLIENT_ID) {
+            updateAll(u -> u.setAway(false)); // reset all
+        } else {
+            update(clientId, u -> u.setAway(isAway));
+        }
+    }
+
     @Override
     public void onTookTurn(long clientId, boolean didtakeCurn) {
         if (clientId == Constants.DEFAULT_CLIENT_ID) {
-            SwingUtilities.invokeLater(() -> {
-                userItemsMap.values().forEach(u -> u.setTurn(false));// reset all
-            });
-        } else if (userItemsMap.containsKey(clientId)) {
-            SwingUtilities.invokeLater(() -> {
-                userItemsMap.get(clientId).setTurn(didtakeCurn);
-            });
+            updateAll(u -> u.setStatus(null));// reset all
+        } else {
+            update(clientId, u -> u.setStatus(didtakeCurn ? Color.GREEN : null));
         }
     }
 
     @Override
     public void onPointsUpdate(long clientId, int points) {
-        if (userItemsMap.containsKey(clientId)) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.get(clientId).setPoints(points);
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error setting user item", e);
-                }
-
-            });
-        } else if (clientId == Constants.DEFAULT_CLIENT_ID) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.values().forEach(u -> u.setPoints(-1));// reset all
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error resetting user items", e);
-                }
-            });
+        if (clientId == Constants.DEFAULT_CLIENT_ID) {
+            updateAll(u -> u.setPoints(-1));// reset all
+        } else {
+            update(clientId, u -> u.setPoints(points));
         }
     }
 
     @Override
     public void onReceiveReady(long clientId, boolean isReady, boolean isQuiet) {
         if (clientId == Constants.DEFAULT_CLIENT_ID) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.values().forEach(u -> u.setTurn(false));// reset all
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error resetting user items", e);
-                }
-            });
-        } else if (userItemsMap.containsKey(clientId)) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.get(clientId).setTurn(isReady, Color.GRAY);
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error setting user item", e);
-                }
-            });
+            updateAll(u -> u.setStatus(null));// reset all
+        } else {
+            update(clientId, u -> u.setStatus(isReady ? Color.GRAY : null));
         }
     }
+
     @Override
     public void onReceiveAway(long clientId, boolean isAway) {
         if (clientId == Constants.DEFAULT_CLIENT_ID) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.values().forEach(u -> u.setAway(false)); // reset all
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error resetting user items", e);
-                }
-            });
-        } else if (userItemsMap.containsKey(clientId)) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    userItemsMap.get(clientId).setAway(isAway);
-                } catch (Exception e) {
-                    LoggerUtil.INSTANCE.severe("Error setting user item", e);
-                }
-            });
+            updateAll(u -> u.setAway(false)); // reset all
+        } else {
+            update(clientId, u -> u.setAway(isAway));
         }
     }
-        
-    
-}
\ No newline at end of file
+}
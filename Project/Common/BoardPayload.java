@@ -0,0 +1,76 @@
+package Project.Common;
+
+/**
+ * The whole game board in one payload, so a (re)joining client can draw it
+ * with a single update instead of a CELL per cell. Arrays are row major and
+ * rows * columns long.
+ */
+public class BoardPayload extends Payload {
+    private int rows;
+    private int columns;
+    private String[] values = new String[0];
+    private boolean[] flipped = new boolean[0];
+    private boolean[] collected = new boolean[0];
+
+    public BoardPayload() {
+        setPayloadType(PayloadType.BOARD);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param rows
+     * @param columns
+     * @param values    shown while flipped
+     * @param flipped
+     * @param collected
+     */
+    public void setBoard(int rows, int columns, String[] values, boolean[] flipped, boolean[] collected) {
+        this.rows = rows;
+        this.columns = columns;
+        this.values = values;
+        this.flipped = flipped;
+        this.collected = collected;
+    }
+
+    public String[] getValues() {
+        return values;
+    }
+
+    public boolean[] getFlipped() {
+        return flipped;
+    }
+
+    public boolean[] getCollected() {
+        return collected;
+    }
+
+    /**
+     * @return true if every array holds exactly rows * columns cells
+     */
+    public boolean isComplete() {
+        int size = rows * columns;
+        return values.length == size && flipped.length == size && collected.length == size;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        rows = 0;
+        columns = 0;
+        values = new String[0];
+        flipped = new boolean[0];
+        collected = new boolean[0];
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" board=%dx%d", rows, columns);
+    }
+}
@@ -0,0 +1,70 @@
+package Project.Common;
+
+public class CellPayload extends Payload {
+    private int row;
+    private int column;
+    private String value;
+    private boolean isFlipped;
+    private boolean isCollected;
+
+    public CellPayload() {
+        setPayloadType(PayloadType.CELL);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @param row    use -1 (with column -1) to turn every cell face down
+     * @param column
+     */
+    public void setCoordinates(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public boolean isFlipped() {
+        return isFlipped;
+    }
+
+    public void setFlipped(boolean isFlipped) {
+        this.isFlipped = isFlipped;
+    }
+
+    public boolean isCollected() {
+        return isCollected;
+    }
+
+    public void setCollected(boolean isCollected) {
+        this.isCollected = isCollected;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        row = 0;
+        column = 0;
+        value = null;
+        isFlipped = false;
+        isCollected = false;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" cell=(%d,%d) value=%s flipped=%s collected=%s", row, column,
+                value, isFlipped, isCollected);
+    }
+}
@@ -19,7 +19,8 @@ public enum Command {
     DO_SOMETHING("something"),
     USE("use"),
     PICK ("pick"),
-    AWAY("away");
+    AWAY("away"),
+    TRACE("trace");
     
 
     private static final HashMap<String, Command> BY_COMMAND = new HashMap<>();
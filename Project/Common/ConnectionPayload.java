@@ -2,6 +2,8 @@ package Project.Common;
 
 public class ConnectionPayload extends Payload {
     private String clientName;
+    // sender's System.nanoTime() for the clock offset estimate (0 if unset)
+    private long clockNanos;
 
     /**
      * @return the clientName
@@ -17,6 +19,25 @@ public class ConnectionPayload extends Payload {
         this.clientName = clientName;
     }
 
+    public long getClockNanos() {
+        return clockNanos;
+    }
+
+    /**
+     * @param clockNanos the sender's System.nanoTime() when sending the
+     *                   handshake (CLIENT_CONNECT / CLIENT_ID)
+     */
+    public void setClockNanos(long clockNanos) {
+        this.clockNanos = clockNanos;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        clientName = null;
+        clockNanos = 0;
+    }
+
     @Override
     public String toString() {
         return super.toString() +
@@ -0,0 +1,133 @@
+package Project.Common;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom Java Flight Recorder events so game activity shows up in the same
+ * recording as GC, lock and allocation profiles.
+ * <p>
+ * Usage: create, begin(), do the work, end() and only fill in the fields when
+ * shouldCommit() is true. When no recording is running the JIT removes the
+ * event entirely. Example:
+ * {@code java -XX:StartFlightRecording=filename=server.jfr ...}
+ * </p>
+ */
+public final class FlightRecorderEvents {
+    private static final String CATEGORY = "Game Server";
+
+    private FlightRecorderEvents() {
+    }
+
+    @Name("Project.PayloadProcessed")
+    @Label("Payload Processed")
+    @Description("ServerThread.processPayload() on a worker lane")
+    @Category({ CATEGORY, "Payloads" })
+    @StackTrace(false)
+    public static class PayloadProcessed extends Event {
+        @Label("Payload Type")
+        public String payloadType;
+
+        @Label("Client Id")
+        public long clientId;
+
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        public long queueWait;
+    }
+
+    @Name("Project.RoomBroadcast")
+    @Label("Room Broadcast")
+    @Description("Fan-out of one Payload to every client in a Room (relay, join status, etc)")
+    @Category({ CATEGORY, "Rooms" })
+    @StackTrace(false)
+    public static class RoomBroadcast extends Event {
+        @Label("Room")
+        public String room;
+
+        @Label("Payload Type")
+        public String payloadType;
+
+        @Label("Recipients")
+        public int recipients;
+
+        @Label("Shared Frame")
+        @Description("Serialized once and written to each SocketChannel")
+        public boolean sharedFrame;
+
+        @Label("Frame Size")
+        @DataAmount
+        public int frameSize;
+
+        @Label("Failed")
+        public int failed;
+    }
+
+    @Name("Project.GameRound")
+    @Label("Game Round")
+    @Description("GameRoom round from onRoundStart() to onRoundEnd()")
+    @Category({ CATEGORY, "Game" })
+    @StackTrace(false)
+    public static class GameRound extends Event {
+        @Label("Room")
+        public String room;
+
+        @Label("Round")
+        public int round;
+
+        @Label("Players")
+        public int players;
+
+        @Label("Picks")
+        @Description("Players that picked before the round ended")
+        public int picks;
+    }
+
+    @Name("Project.BattlesProcessed")
+    @Label("Battles Processed")
+    @Description("GameRoom.ProcessBattles()")
+    @Category({ CATEGORY, "Game" })
+    @StackTrace(false)
+    public static class BattlesProcessed extends Event {
+        @Label("Room")
+        public String room;
+
+        @Label("Battlers")
+        public int battlers;
+    }
+
+    @Name("Project.TimedEventExpired")
+    @Label("Timed Event Expired")
+    @Description("TimedEvent expiry; duration is the expire callback")
+    @Category({ CATEGORY, "Timers" })
+    @StackTrace(false)
+    public static class TimedEventExpired extends Event {
+        @Label("Timer Duration")
+        @Timespan(Timespan.SECONDS)
+        public long timerDuration;
+
+        @Label("Lag")
+        @Description("How late the expiry fired compared to its deadline")
+        @Timespan(Timespan.NANOSECONDS)
+        public long lag;
+    }
+
+    @Name("Project.LogWrite")
+    @Label("Log Write")
+    @Description("LoggerUtil call (formatting + file/console handlers)")
+    @Category({ CATEGORY, "Logging" })
+    @StackTrace(false)
+    public static class LogWrite extends Event {
+        @Label("Level")
+        public String level;
+
+        @Label("Message Length")
+        public int length;
+    }
+}
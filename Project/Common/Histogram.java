@@ -0,0 +1,139 @@
+package Project.Common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram for latencies and sizes (HdrHistogram style).
+ * <p>
+ * Values below 64 are counted exactly; larger values fall into 32 linear
+ * sub-buckets per power of two, so any reported value is within ~3% of the
+ * recorded one. Memory use is fixed (~15KB) regardless of the value range.
+ * </p>
+ * Safe to record from many threads; reads are a consistent-enough snapshot for
+ * reporting.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1; // 64
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a single value; negative values are clamped to 0
+     *
+     * @param value
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * @param percentile 0-100 (e.g. 99.9)
+     * @return the highest value equivalent to the requested percentile (0 when
+     *         empty)
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Visits each non-empty bucket in ascending order (used by exporters)
+     *
+     * @param visitor receives the bucket's upper bound and its count
+     */
+    public void forEachBucket(BucketVisitor visitor) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                visitor.visit(highestValueAt(i), c);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface BucketVisitor {
+        void visit(long upperBound, long count);
+    }
+
+    /**
+     * Clears all recorded values (not atomic with concurrent record() calls)
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * @param scale divides every value (e.g. 1000 to print nanos as micros)
+     * @return p50/p90/p99/p99.9/max summary
+     */
+    public String summary(double scale) {
+        return String.format("n=%d p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f", getCount(),
+                getValueAtPercentile(50) / scale, getValueAtPercentile(90) / scale,
+                getValueAtPercentile(99) / scale, getValueAtPercentile(99.9) / scale, getMax() / scale);
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
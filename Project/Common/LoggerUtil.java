@@ -1,11 +1,13 @@
 package Project.Common;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -21,6 +23,11 @@ public enum LoggerUtil {
     private Logger logger;
     private LoggerConfig config;
     private boolean isConfigured = false;
+    // lowest level any handler accepts (captured at setup since later configs
+    // don't change the handlers)
+    private volatile int minHandlerLevel = Level.ALL.intValue();
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final String LOGGER_PACKAGE = LoggerUtil.class.getPackage().getName();
 
     LoggerUtil() {
     }
@@ -51,45 +58,56 @@ public enum LoggerUtil {
         private static final String CYAN = "\u001B[36m";
         private static final String WHITE = "\u001B[37m";
 
+        // the pattern has second resolution so the rendered date is reused until
+        // the second changes
+        private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern(PATTERN)
+                .withZone(ZoneId.systemDefault());
+        private volatile CachedDate cachedDate = new CachedDate(Long.MIN_VALUE, "");
+
+        private static class CachedDate {
+            private final long second;
+            private final String text;
+
+            private CachedDate(long second, String text) {
+                this.second = second;
+                this.text = text;
+            }
+        }
+
         @Override
         public String format(LogRecord record) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat(PATTERN);
-            String date = dateFormat.format(new Date(record.getMillis()));
-            String callingClass = getCallingClassName();
-            String source = callingClass != null ? callingClass
-                    : record.getSourceClassName() != null ? record.getSourceClassName() : "unknown";
+            String date = formatDate(record.getMillis());
+            // filled in by LoggerUtil.write() so the stack is only walked once
+            String source = record.getSourceClassName() != null ? record.getSourceClassName() : "unknown";
 
             String message = formatMessage(record);
             if (message == null)
                 message = "null";
-            String level = getColoredLevel(record.getLevel());
-            String throwable = "";
+            boolean color = TextFX.isColorEnabled();
+            if (!color) {
+                message = TextFX.strip(message);
+            }
+            StringBuilder sb = new StringBuilder(date.length() + source.length() + message.length() + 32);
+            sb.append(date).append(" [").append(source).append("] (")
+                    .append(color ? getColoredLevel(record.getLevel()) : record.getLevel().getName())
+                    .append("):\n> ").append(message);
             if (record.getThrown() != null) {
                 // Use stackTraceLimit from LoggerConfig to truncate stack trace
-                throwable = "\n"
-                        + getFormattedStackTrace(record.getThrown(), LoggerUtil.INSTANCE.config.getStackTraceLimit());
+                sb.append("\n")
+                        .append(getFormattedStackTrace(record.getThrown(),
+                                LoggerUtil.INSTANCE.config.getStackTraceLimit()));
             }
-            return String.format("%s [%s] (%s):\n> %s%s\n", date, source, level, message, throwable);
+            return sb.append("\n").toString();
         }
 
-        /**
-         * Determines the name of the class that called the logging method.
-         * 
-         * @return the name of the calling class
-         */
-        private static String getCallingClassName() {
-            String loggerUtilPackage = LoggerUtil.class.getPackage().getName();
-            StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-            for (StackTraceElement element : stackTrace) {
-                String className = element.getClassName();
-                // Skip all classes in the logging framework and the package of LoggerUtil
-                if (!className.startsWith("java.util.logging") &&
-                        !className.startsWith(loggerUtilPackage) &&
-                        !className.equals(Thread.class.getName())) {
-                    return className;
-                }
+        private String formatDate(long millis) {
+            long second = Math.floorDiv(millis, 1000);
+            CachedDate cached = cachedDate;
+            if (cached.second != second) {
+                cached = new CachedDate(second, DATE_FORMAT.format(Instant.ofEpochMilli(millis)));
+                cachedDate = cached;
             }
-            return null;
+            return cached.text;
         }
 
         /**
@@ -167,6 +185,47 @@ public enum LoggerUtil {
 
     }
 
+    /**
+     * ConsoleHandler that lets at most linesPerSecond records below WARNING
+     * through each second (the file handler still gets everything) and reports
+     * how many it dropped
+     */
+    private static class RateLimitedConsoleHandler extends ConsoleHandler {
+        private final int linesPerSecond;
+        private long windowSecond = Long.MIN_VALUE;
+        private int linesInWindow = 0;
+        private int suppressed = 0;
+
+        private RateLimitedConsoleHandler(int linesPerSecond) {
+            this.linesPerSecond = linesPerSecond;
+        }
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            if (!isLoggable(record)) {
+                return;
+            }
+            long second = System.currentTimeMillis() / 1000;
+            if (second != windowSecond) {
+                windowSecond = second;
+                linesInWindow = 0;
+                if (suppressed > 0) {
+                    LogRecord notice = new LogRecord(Level.WARNING, String.format(
+                            "%d console lines suppressed (limit %d/s), see the log file", suppressed, linesPerSecond));
+                    notice.setSourceClassName(LoggerUtil.class.getName());
+                    notice.setLoggerName(record.getLoggerName());
+                    suppressed = 0;
+                    super.publish(notice);
+                }
+            }
+            if (record.getLevel().intValue() < Level.WARNING.intValue() && ++linesInWindow > linesPerSecond) {
+                suppressed++;
+                return;
+            }
+            super.publish(record);
+        }
+    }
+
     /**
      * Ensures the logger is configured only once.
      */
@@ -177,6 +236,9 @@ public enum LoggerUtil {
         if (config == null) {
             throw new IllegalStateException("LoggerUtil configuration must be set before use.");
         }
+        if (!config.isAnsiColors()) {
+            TextFX.setColorEnabled(false);
+        }
         try {
             logger = Logger.getLogger("ApplicationLogger");
 
@@ -190,28 +252,57 @@ public enum LoggerUtil {
             String logPattern = config.getLogLocation().replace(".log", "-%g.log");
             // FileHandler writes log messages to a specified file, with support for
             // rotating log files
-            FileHandler fileHandler = new FileHandler(
-                    logPattern,
-                    config.getFileSizeLimit(),
-                    config.getFileCount(),
-                    true);
+            Handler fileHandler;
+            if (config.isMemoryMapped()) {
+                // appends into mapped segments; disk syncs follow the FsyncPolicy
+                fileHandler = new MappedLogHandler(
+                        logPattern,
+                        config.getFileSizeLimit(),
+                        config.getFileCount(),
+                        config.getFsyncPolicy(),
+                        config.getFsyncIntervalMillis());
+            } else {
+                fileHandler = new FileHandler(
+                        logPattern,
+                        config.getFileSizeLimit(),
+                        config.getFileCount(),
+                        true);
+            }
             fileHandler.setFormatter(new CustomFormatter());
             fileHandler.setLevel(config.getFileLogLevel());
             logger.addHandler(fileHandler);
 
             // ConsoleHandler prints log messages to the console
-            ConsoleHandler consoleHandler = new ConsoleHandler();
+            ConsoleHandler consoleHandler = config.getConsoleLinesPerSecond() > 0
+                    ? new RateLimitedConsoleHandler(config.getConsoleLinesPerSecond())
+                    : new ConsoleHandler();
             consoleHandler.setFormatter(new CustomFormatter());
             consoleHandler.setLevel(config.getConsoleLogLevel());
             logger.addHandler(consoleHandler);
 
             logger.setLevel(Level.ALL);
+            minHandlerLevel = Math.min(config.getFileLogLevel().intValue(),
+                    config.getConsoleLogLevel().intValue());
             isConfigured = true;
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Checks if any handler would output a message at this level; use it to skip
+     * building expensive messages on hot paths.
+     * 
+     * @param level the level to check
+     * @return true if the file or console handler accepts the level
+     */
+    public boolean isLoggable(Level level) {
+        if (!isConfigured) {
+            setupLogger();
+        }
+        return level.intValue() >= minHandlerLevel;
+    }
+
     /**
      * Logs a message at the specified level.
      * 
@@ -221,7 +312,7 @@ public enum LoggerUtil {
     public void log(Level level, String message) {
         if (!isConfigured)
             setupLogger();
-        logger.log(level, message);
+        write(level, message, null);
     }
 
     /**
@@ -239,22 +330,22 @@ public enum LoggerUtil {
         }
 
         if (message instanceof String) {
-            logger.log(level, (String) message);
+            write(level, (String) message, null);
 
         } else if (message instanceof Throwable) {
             Throwable t = (Throwable) message;
             String msg = (t.getMessage() != null) ? t.getMessage() : t.getClass().getName();
-            logger.log(level, msg, t);
+            write(level, msg, t);
 
         } else if (message != null) {
             try {
-                logger.log(level, message.toString());
+                write(level, message.toString(), null);
             } catch (Exception ex) {
-                logger.log(level, "Error during toString(): " + ex.getMessage(), ex);
+                write(level, "Error during toString(): " + ex.getMessage(), ex);
             }
 
         } else {
-            logger.log(level, "null");
+            write(level, "null", null);
         }
     }
 
@@ -268,7 +359,42 @@ public enum LoggerUtil {
     public void log(Level level, String message, Throwable throwable) {
         if (!isConfigured)
             setupLogger();
-        logger.log(level, message, throwable);
+        write(level, message, throwable);
+    }
+
+    /**
+     * Determines the name of the class that called the logging method, skipping
+     * the logging framework and LoggerUtil's package. StackWalker only
+     * materializes the frames it visits (unlike Thread.getStackTrace()).
+     * 
+     * @return the name of the calling class or null
+     */
+    private static String findCallingClassName() {
+        return STACK_WALKER.walk(frames -> frames.map(StackWalker.StackFrame::getClassName)
+                .filter(name -> !name.startsWith("java.util.logging") && !name.startsWith(LOGGER_PACKAGE))
+                .findFirst().orElse(null));
+    }
+
+    /**
+     * Hands the record to the handlers, timed as a LogWrite JFR event
+     */
+    private void write(Level level, String message, Throwable throwable) {
+        if (level.intValue() < minHandlerLevel) {
+            return; // no handler takes it, skip the record and the stack walk
+        }
+        FlightRecorderEvents.LogWrite event = new FlightRecorderEvents.LogWrite();
+        event.begin();
+        LogRecord record = new LogRecord(level, message);
+        record.setThrown(throwable);
+        record.setLoggerName(logger.getName());
+        record.setSourceClassName(findCallingClassName());
+        logger.log(record);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = level.getName();
+            event.length = message != null ? message.length() : 0;
+            event.commit();
+        }
     }
 
     /**
@@ -421,6 +547,11 @@ public enum LoggerUtil {
         private Level fileLogLevel = Level.ALL; // default log level for file
         private Level consoleLogLevel = Level.ALL; // default log level for console
         private int stackTraceLimit = 10; // default maximum number of stack trace elements
+        private boolean memoryMapped = false; // MappedLogHandler instead of FileHandler
+        private MappedLogHandler.FsyncPolicy fsyncPolicy = MappedLogHandler.FsyncPolicy.INTERVAL;
+        private long fsyncIntervalMillis = 1000;
+        private boolean ansiColors = true; // false strips colors from every handler (production)
+        private int consoleLinesPerSecond = 0; // 0 = no console rate limit
 
         // Getters and Setters for each property
 
@@ -531,6 +662,100 @@ public enum LoggerUtil {
         public void setStackTraceLimit(int stackTraceLimit) {
             this.stackTraceLimit = stackTraceLimit;
         }
+
+        /**
+         * Checks if the log file is written through memory-mapped segments.
+         * 
+         * @return true for MappedLogHandler, false for FileHandler
+         */
+        public boolean isMemoryMapped() {
+            return memoryMapped;
+        }
+
+        /**
+         * Switches the log file between FileHandler (stream writes) and
+         * MappedLogHandler (memory-mapped segments of fileSizeLimit bytes).
+         * 
+         * @param memoryMapped true to use MappedLogHandler
+         */
+        public void setMemoryMapped(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
+        }
+
+        /**
+         * Gets when memory-mapped log segments are forced to disk.
+         * 
+         * @return the fsync policy
+         */
+        public MappedLogHandler.FsyncPolicy getFsyncPolicy() {
+            return fsyncPolicy;
+        }
+
+        /**
+         * Sets when memory-mapped log segments are forced to disk (only used when
+         * memoryMapped is on).
+         * 
+         * @param fsyncPolicy the fsync policy
+         */
+        public void setFsyncPolicy(MappedLogHandler.FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = fsyncPolicy;
+        }
+
+        /**
+         * Gets the minimum time between forces for FsyncPolicy.INTERVAL.
+         * 
+         * @return the interval in milliseconds
+         */
+        public long getFsyncIntervalMillis() {
+            return fsyncIntervalMillis;
+        }
+
+        /**
+         * Sets the minimum time between forces for FsyncPolicy.INTERVAL.
+         * 
+         * @param fsyncIntervalMillis the interval in milliseconds
+         */
+        public void setFsyncIntervalMillis(long fsyncIntervalMillis) {
+            this.fsyncIntervalMillis = fsyncIntervalMillis;
+        }
+
+        /**
+         * Checks if log output keeps its ANSI colors.
+         * 
+         * @return false if colors are stripped
+         */
+        public boolean isAnsiColors() {
+            return ansiColors;
+        }
+
+        /**
+         * Production mode switch; false disables TextFX colorizing and strips
+         * colors from the level names and messages in every handler.
+         * 
+         * @param ansiColors true to keep colors
+         */
+        public void setAnsiColors(boolean ansiColors) {
+            this.ansiColors = ansiColors;
+        }
+
+        /**
+         * Gets the console rate limit for records below WARNING.
+         * 
+         * @return lines per second, 0 for unlimited
+         */
+        public int getConsoleLinesPerSecond() {
+            return consoleLinesPerSecond;
+        }
+
+        /**
+         * Sets how many records below WARNING the console prints per second; the
+         * rest are only counted (the file handler still gets them).
+         * 
+         * @param consoleLinesPerSecond lines per second, 0 for unlimited
+         */
+        public void setConsoleLinesPerSecond(int consoleLinesPerSecond) {
+            this.consoleLinesPerSecond = consoleLinesPerSecond;
+        }
     }
 
     /**
@@ -0,0 +1,305 @@
+package Project.Common;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Log handler that encodes formatted records straight into a memory-mapped
+ * segment file instead of going through a stream.
+ * <p>
+ * Rotation follows FileHandler: "%g" in the pattern is the generation, -0 is
+ * the current segment and older ones are shifted up to count - 1. A segment is
+ * mapped at its full size while open (the tail reads as zeros) and trimmed to
+ * the written length on rotate/close. When the OS flushes the pages to disk is
+ * decided by the FsyncPolicy.
+ * </p>
+ * <p>
+ * Like FileHandler, the handler holds a lock on a ".lck" file next to the
+ * current segment for as long as it is open. If another process (e.g. a second
+ * server started from the same directory) already holds it, the next free
+ * unique number is appended to the file names (server-0.log.1, ...) rather
+ * than both writing over the same mapping.
+ * </p>
+ */
+public class MappedLogHandler extends Handler {
+
+    public enum FsyncPolicy {
+        NEVER, // leave it to the OS page cache (still forced on rotate/close)
+        INTERVAL, // at most once per fsync interval, checked as records arrive
+        ALWAYS // after every record (durable, but back to one syscall per record)
+    }
+
+    // most processes that would share a pattern, same cap as FileHandler
+    private static final int MAX_LOCKS = 100;
+
+    private final String pattern;
+    private final int limit;
+    private final int count;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private int unique = 0;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long lastForce = System.nanoTime();
+    private boolean isDirty = false;
+
+    /**
+     * @param pattern             file name with a "%g" generation placeholder
+     * @param limit               segment size in bytes
+     * @param count               number of segments to keep
+     * @param fsyncPolicy         when to force the mapped pages to disk
+     * @param fsyncIntervalMillis used by FsyncPolicy.INTERVAL
+     * @throws IOException if the current segment can't be opened or every
+     *                     unique name is locked by another handler
+     */
+    public MappedLogHandler(String pattern, int limit, int count, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis)
+            throws IOException {
+        this.pattern = pattern;
+        this.limit = Math.max(4096, limit);
+        this.count = Math.max(1, count);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncIntervalMillis * 1_000_000L;
+        acquireLock();
+        try {
+            openSegment(true);
+        } catch (IOException e) {
+            releaseLock();
+            throw e;
+        }
+    }
+
+    private Path generation(int g) {
+        String name = pattern.replace("%g", Integer.toString(g));
+        return Paths.get(unique == 0 ? name : name + "." + unique);
+    }
+
+    /**
+     * Locks the first unique name no other handler (in this or another
+     * process) is using
+     */
+    private void acquireLock() throws IOException {
+        Path parent = generation(0).toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        for (unique = 0; unique < MAX_LOCKS; unique++) {
+            Path lockPath = Paths.get(generation(0) + ".lck");
+            FileChannel candidate = FileChannel.open(lockPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            FileLock acquired = null;
+            try {
+                acquired = candidate.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // held by another handler in this JVM
+            } finally {
+                if (acquired == null) {
+                    candidate.close();
+                }
+            }
+            if (acquired != null) {
+                lockChannel = candidate;
+                lock = acquired;
+                return;
+            }
+        }
+        throw new IOException("Couldn't lock any of " + MAX_LOCKS + " log files for " + pattern);
+    }
+
+    private void releaseLock() {
+        if (lockChannel == null) {
+            return;
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+            Files.deleteIfExists(Paths.get(generation(0) + ".lck"));
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        lockChannel = null;
+        lock = null;
+    }
+
+    /**
+     * Maps the current (-0) segment, appending after its content when asked
+     */
+    private void openSegment(boolean append) throws IOException {
+        Path path = generation(0);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long existing = append ? channel.size() : 0;
+        if (existing >= limit) {
+            channel.close();
+            rotateFiles();
+            openSegment(false);
+            return;
+        }
+        if (!append) {
+            channel.truncate(0);
+        }
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, limit);
+        segment.position((int) contentLength(existing));
+    }
+
+    /**
+     * @return where the content ends, skipping a zero filled tail left by a
+     *         process that died before trimming its segment
+     */
+    private long contentLength(long size) {
+        int end = (int) size;
+        while (end > 0 && segment.get(end - 1) == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            segment.force();
+            channel.truncate(segment.position());
+        } finally {
+            channel.close();
+        }
+        channel = null;
+        segment = null;
+        isDirty = false;
+    }
+
+    /**
+     * Shifts -0..-(count-2) up one generation, dropping the oldest
+     */
+    private void rotateFiles() throws IOException {
+        for (int g = count - 1; g > 0; g--) {
+            Path from = generation(g - 1);
+            if (Files.exists(from)) {
+                Files.move(from, generation(g), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (count == 1) {
+            Files.deleteIfExists(generation(0));
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeSegment();
+        rotateFiles();
+        openSegment(false);
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String message;
+        try {
+            message = getFormatter().format(record);
+        } catch (Exception e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        synchronized (this) {
+            if (segment == null) {
+                return; // closed
+            }
+            try {
+                append(CharBuffer.wrap(message));
+                afterWrite();
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Encodes directly into the mapping. A record that doesn't fit is discarded
+     * from this segment and re-encoded at the start of a new one; only a record
+     * larger than a whole segment is split.
+     */
+    private void append(CharBuffer chars) throws IOException {
+        encoder.reset();
+        int start = segment.position();
+        while (encoder.encode(chars, segment, true).isOverflow()) {
+            if (start > 0) {
+                segment.position(start); // the partial bytes are past the trim point
+                rotate();
+                chars.rewind();
+                encoder.reset();
+                start = 0;
+            } else {
+                rotate();
+            }
+        }
+        encoder.flush(segment);
+    }
+
+    private void afterWrite() {
+        isDirty = true;
+        switch (fsyncPolicy) {
+            case ALWAYS:
+                force();
+                break;
+            case INTERVAL:
+                if (System.nanoTime() - lastForce >= fsyncIntervalNanos) {
+                    force();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void force() {
+        segment.force();
+        lastForce = System.nanoTime();
+        isDirty = false;
+    }
+
+    /**
+     * Forces any unsynced records to disk regardless of the FsyncPolicy
+     */
+    @Override
+    public synchronized void flush() {
+        if (segment != null && isDirty) {
+            force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        } finally {
+            releaseLock();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package Project.Common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process wide registry of counters, gauges and histograms, rendered in the
+ * Prometheus text exposition format.
+ * <p>
+ * Registration is synchronized and meant to happen once (cache the returned
+ * Counter/Histogram); recording is lock-free (LongAdder / Histogram) so it's
+ * cheap enough to leave on in production.
+ * </p>
+ * Labels are passed as name/value pairs, e.g.
+ * {@code counter("payloads_total", "help", "type", "MESSAGE")}.
+ */
+public enum Metrics {
+    INSTANCE;
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private enum Kind {
+        COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+        private final String text;
+
+        Kind(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Monotonic count backed by a striped LongAdder
+     */
+    public static class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long amount) {
+            adder.add(amount);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    private static class Series {
+        private final String[] labels;
+        private final Object instrument;
+
+        private Series(String[] labels, Object instrument) {
+            this.labels = labels;
+            this.instrument = instrument;
+        }
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final Kind kind;
+        private final double scale; // multiplier applied to histogram values on export
+        private final List<Series> series = new ArrayList<>();
+
+        private Family(String name, String help, Kind kind, double scale) {
+            this.name = name;
+            this.help = help;
+            this.kind = kind;
+            this.scale = scale;
+        }
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Gets or creates a counter
+     *
+     * @param name   metric name (use the _total suffix)
+     * @param help   description
+     * @param labels name/value pairs
+     * @return the shared Counter for this name and labels
+     */
+    public synchronized Counter counter(String name, String help, String... labels) {
+        return (Counter) getOrCreate(name, help, Kind.COUNTER, 1, labels, Counter::new);
+    }
+
+    /**
+     * Gets or creates a histogram exported as a summary (quantiles, sum, count)
+     *
+     * @param name   metric name (include the unit, e.g. _seconds)
+     * @param help   description
+     * @param scale  multiplier from recorded values to the unit (1e-9 for nanos
+     *               to seconds)
+     * @param labels name/value pairs
+     * @return the shared Histogram for this name and labels
+     */
+    public synchronized Histogram histogram(String name, String help, double scale, String... labels) {
+        return (Histogram) getOrCreate(name, help, Kind.SUMMARY, scale, labels, Histogram::new);
+    }
+
+    /**
+     * Registers a value read at scrape time; re-registering replaces the supplier
+     *
+     * @param name     metric name
+     * @param help     description
+     * @param supplier current value
+     * @param labels   name/value pairs
+     */
+    public synchronized void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        register(family(name, help, Kind.GAUGE, 1), supplier, labels);
+    }
+
+    /**
+     * Registers a counter whose value is kept elsewhere (read at scrape time);
+     * re-registering replaces the supplier
+     *
+     * @param name     metric name (use the _total suffix)
+     * @param help     description
+     * @param supplier current (monotonic) value
+     * @param labels   name/value pairs
+     */
+    public synchronized void functionCounter(String name, String help, DoubleSupplier supplier, String... labels) {
+        register(family(name, help, Kind.COUNTER, 1), supplier, labels);
+    }
+
+    private void register(Family family, DoubleSupplier supplier, String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        family.series.removeIf(s -> Arrays.equals(s.labels, labels));
+        family.series.add(new Series(labels.clone(), supplier));
+    }
+
+    private Object getOrCreate(String name, String help, Kind kind, double scale, String[] labels,
+            Supplier<Object> factory) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        Family family = family(name, help, kind, scale);
+        for (Series s : family.series) {
+            if (Arrays.equals(s.labels, labels)) {
+                return s.instrument;
+            }
+        }
+        Object instrument = factory.get();
+        family.series.add(new Series(labels.clone(), instrument));
+        return instrument;
+    }
+
+    private Family family(String name, String help, Kind kind, double scale) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = new Family(name, help, kind, scale);
+            families.put(name, family);
+        } else if (family.kind != kind) {
+            throw new IllegalArgumentException(String.format("%s is already registered as a %s", name,
+                    family.kind.text));
+        }
+        return family;
+    }
+
+    /**
+     * Renders every metric in the Prometheus text format (version 0.0.4)
+     *
+     * @return the exposition text
+     */
+    public synchronized String scrape() {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Family family : families.values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help.replace("\n", " ")).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.kind.text).append('\n');
+            for (Series series : family.series) {
+                switch (family.kind) {
+                    case COUNTER:
+                        line(sb, family.name, series.labels, null, series.instrument instanceof Counter
+                                ? ((Counter) series.instrument).get()
+                                : ((DoubleSupplier) series.instrument).getAsDouble());
+                        break;
+                    case GAUGE:
+                        line(sb, family.name, series.labels, null,
+                                ((DoubleSupplier) series.instrument).getAsDouble());
+                        break;
+                    case SUMMARY:
+                        Histogram histogram = (Histogram) series.instrument;
+                        for (double q : QUANTILES) {
+                            line(sb, family.name, series.labels, Double.toString(q),
+                                    histogram.getValueAtPercentile(q * 100) * family.scale);
+                        }
+                        line(sb, family.name + "_sum", series.labels, null, histogram.getSum() * family.scale);
+                        line(sb, family.name + "_count", series.labels, null, histogram.getCount());
+                        break;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String name, String[] labels, String quantile, double value) {
+        sb.append(name);
+        if (labels.length > 0 || quantile != null) {
+            sb.append('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                sb.append(i > 0 ? "," : "").append(labels[i]).append("=\"").append(escape(labels[i + 1]))
+                        .append('"');
+            }
+            if (quantile != null) {
+                sb.append(labels.length > 0 ? "," : "").append("quantile=\"").append(quantile).append('"');
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+        sb.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -6,6 +6,7 @@ public class Payload implements Serializable {
     private PayloadType payloadType;
     private long clientId;
     private String message;
+    private TraceContext trace; // null unless tracing (see PayloadTracer)
 
     /**
      * @return the payloadType
@@ -49,6 +50,30 @@ public class Payload implements Serializable {
         this.message = message;
     }
 
+    /**
+     * @return the trace context or null if this Payload isn't traced
+     */
+    public TraceContext getTrace() {
+        return trace;
+    }
+
+    /**
+     * @param trace the trace context to carry (null to stop tracing)
+     */
+    public void setTrace(TraceContext trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Clears the data so the instance can be reused for another send
+     * (see PayloadPool on the server-side)
+     */
+    public void reset() {
+        clientId = 0;
+        message = null;
+        trace = null;
+    }
+
     @Override
     public String toString() {
         return String.format("Payload[%s] Client Id [%s] Message: [%s]", getPayloadType(), getClientId(), getMessage());
@@ -0,0 +1,145 @@
+package Project.Common;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collects completed traces: a per-stage latency breakdown (Histograms) and a
+ * flight recorder holding the slowest N traces, dumped with report().
+ * <p>
+ * Tracing is off by default; start() returns null while disabled so untraced
+ * Payloads only carry a null reference.
+ * </p>
+ */
+public enum PayloadTracer {
+    INSTANCE;
+
+    private static final int DEFAULT_SLOWEST = 20;
+
+    private static class Entry {
+        private final long recordedAt;
+        private final TraceContext trace;
+        private final long total;
+
+        private Entry(TraceContext trace) {
+            this.recordedAt = System.currentTimeMillis();
+            this.trace = trace;
+            this.total = trace.getTotal();
+        }
+    }
+
+    private volatile boolean enabled = false;
+    private final Histogram[] stages = new Histogram[TraceStage.values().length];
+    private final Histogram total = new Histogram();
+    // min-heap so the fastest of the slowest is evicted first
+    private final PriorityQueue<Entry> slowest = new PriorityQueue<>((a, b) -> Long.compare(a.total, b.total));
+    private int slowestCapacity = DEFAULT_SLOWEST;
+    private volatile long slowestThreshold = 0;
+
+    PayloadTracer() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Histogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param capacity how many of the slowest traces to keep
+     */
+    public synchronized void setSlowestCapacity(int capacity) {
+        slowestCapacity = Math.max(1, capacity);
+        while (slowest.size() > slowestCapacity) {
+            slowest.poll();
+        }
+    }
+
+    /**
+     * @param payloadType type of the Payload being traced
+     * @return a new TraceContext or null if tracing is disabled
+     */
+    public TraceContext start(PayloadType payloadType) {
+        if (!enabled) {
+            return null;
+        }
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return new TraceContext(id, payloadType);
+    }
+
+    /**
+     * Adds a completed trace to the breakdown and the flight recorder
+     *
+     * @param trace
+     */
+    public void record(TraceContext trace) {
+        for (TraceStage stage : TraceStage.values()) {
+            if (trace.hasStage(stage)) {
+                stages[stage.ordinal()].record(trace.getStage(stage));
+            }
+        }
+        long traceTotal = trace.getTotal();
+        total.record(traceTotal);
+        if (traceTotal < slowestThreshold) {
+            return;
+        }
+        synchronized (this) {
+            slowest.add(new Entry(trace));
+            while (slowest.size() > slowestCapacity) {
+                slowest.poll();
+            }
+            slowestThreshold = slowest.size() < slowestCapacity ? 0 : slowest.peek().total;
+        }
+    }
+
+    /**
+     * Renders the per-stage breakdown (milliseconds) followed by the slowest
+     * traces
+     *
+     * @return the report text
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Payload trace stages (ms)%n"));
+        for (TraceStage stage : TraceStage.values()) {
+            Histogram histogram = stages[stage.ordinal()];
+            if (histogram.getCount() > 0) {
+                sb.append(String.format("  %-15s %s%n", stage.name().toLowerCase(), histogram.summary(1e6)));
+            }
+        }
+        sb.append(String.format("  %-15s %s%n", "total", total.summary(1e6)));
+        List<Entry> entries = new ArrayList<>(slowest);
+        entries.sort((a, b) -> Long.compare(b.total, a.total));
+        sb.append(String.format("Slowest %d of %d traced:%n", entries.size(), total.getCount()));
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
+        for (Entry entry : entries) {
+            sb.append(String.format("  %s %-12s %.3fms %s%n", format.format(new Date(entry.recordedAt)),
+                    entry.trace.getPayloadType(), entry.total / 1e6, entry.trace));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Clears the breakdown and the flight recorder
+     */
+    public synchronized void reset() {
+        for (Histogram histogram : stages) {
+            histogram.reset();
+        }
+        total.reset();
+        slowest.clear();
+        slowestThreshold = 0;
+    }
+}
@@ -28,4 +28,7 @@ public enum PayloadType {
        POINTS,
        PICK,// syncs points data
        AWAY, // syncs away status
+       REDIRECT, // server telling the client the requested room lives on another node
+       BOARD, // whole game board in one update (see BoardPayload)
+       CELL, // a single board cell changed (see CellPayload)
 }
\ No newline at end of file
@@ -21,6 +21,12 @@ public class PointsPayload extends Payload {
         this.points = points;
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        points = 0;
+    }
+
     @Override
     public String toString() {
         return super.toString() + String.format(" points=%d", points);
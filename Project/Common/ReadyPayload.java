@@ -15,6 +15,12 @@ public class ReadyPayload extends Payload {
         this.isReady = isReady;
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        isReady = false;
+    }
+
     @Override
     public String toString() {
         return super.toString() + String.format(" isReady [%s]", isReady ? "ready" : "not ready");
@@ -0,0 +1,62 @@
+package Project.Common;
+
+/**
+ * Tells a client that the requested Room lives on another server node.
+ * The client is expected to reconnect to host:port and repeat the room action.
+ */
+public class RedirectPayload extends Payload {
+    private String host;
+    private int port;
+    private RoomAction roomAction;
+
+    public RedirectPayload() {
+        setPayloadType(PayloadType.REDIRECT);
+    }
+
+    /**
+     * @return the host of the node owning the room
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @param host the host to set
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * @return the client port of the node owning the room
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @param port the port to set
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * @return the action to repeat once connected (CREATE or JOIN)
+     */
+    public RoomAction getRoomAction() {
+        return roomAction;
+    }
+
+    /**
+     * @param roomAction the roomAction to set
+     */
+    public void setRoomAction(RoomAction roomAction) {
+        this.roomAction = roomAction;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" Redirect [%s:%s] action [%s]", host, port, roomAction);
+    }
+}
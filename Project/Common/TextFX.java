@@ -1,5 +1,7 @@
 package Project.Common;
 
+import java.util.regex.Pattern;
+
 /**
  * Utility to attempt to provide colored text in the terminal.
  * <p>
@@ -38,6 +40,64 @@ public abstract class TextFX {
     }
 
     public static final String RESET = "\033[0m";
+    private static final Pattern ANSI = Pattern.compile("\033\\[[0-9;]*m");
+    // off when NO_COLOR is set (https://no-color.org) or via setColorEnabled()
+    private static volatile boolean colorEnabled = System.getenv("NO_COLOR") == null;
+
+    /**
+     * A fixed message prefix (e.g. "Room[lobby]: ") rendered once, colored and
+     * plain, so wrappers don't rebuild it on every call.
+     */
+    public static class Prefix {
+        private final String colored;
+        private final String plain;
+
+        private Prefix(String label, Color color) {
+            this.plain = label;
+            this.colored = color.getCode() + label;
+        }
+
+        /**
+         * @param message
+         * @return the prefixed message, colorized only if color is enabled
+         */
+        public String apply(String message) {
+            return colorEnabled ? colored + message + RESET : plain + message;
+        }
+    }
+
+    /**
+     * Production switch: when disabled colorize() and Prefix return plain text
+     * 
+     * @param enabled
+     */
+    public static void setColorEnabled(boolean enabled) {
+        colorEnabled = enabled;
+    }
+
+    public static boolean isColorEnabled() {
+        return colorEnabled;
+    }
+
+    /**
+     * @param label the fixed text placed before each message
+     * @param color
+     * @return a reusable Prefix
+     */
+    public static Prefix prefix(String label, Color color) {
+        return new Prefix(label, color);
+    }
+
+    /**
+     * Removes ANSI color codes (for text that was colorized before color was
+     * disabled or that came from elsewhere)
+     * 
+     * @param text
+     * @return text without escape sequences
+     */
+    public static String strip(String text) {
+        return text.indexOf('\033') < 0 ? text : ANSI.matcher(text).replaceAll("");
+    }
 
     /**
      * Generates a String with the original message wrapped in the ASCII of the
@@ -56,11 +116,10 @@ public abstract class TextFX {
      * @return wrapped String
      */
     public static String colorize(String text, Color color) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(color.getCode());
-        builder.append(text);
-        builder.append(RESET);
-        return builder.toString();
+        if (!colorEnabled) {
+            return text;
+        }
+        return color.getCode() + text + RESET;
     }
 
     public static void main(String[] args) {
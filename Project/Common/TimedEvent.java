@@ -4,18 +4,35 @@ package Project.Common;
 
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * Simple countdown timer demo of java.util.Timer facility.
  * Formerly called Countdown
+ * <p>
+ * Deadline based: the remaining time is computed from a System.nanoTime()
+ * deadline and each tick is scheduled one-shot for the next whole second
+ * before it, so a late tick delays the callbacks but never the expiry. How late
+ * every tick/expiry fired is recorded in getFireLag().
+ * </p>
  */
 
 public class TimedEvent {
-    private int secondsRemaining;
-    private Runnable expireCallback = null;
-    private Consumer<Integer> tickCallback = null;
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // scheduled vs actual fire time of every tick and expiry across all timers
+    private static final Histogram FIRE_LAG = Metrics.INSTANCE.histogram("timed_event_fire_lag_seconds",
+            "How late TimedEvent ticks/expiries fired compared to their schedule", 1e-9);
+    private static final Metrics.Counter EXPIRED = Metrics.INSTANCE.counter("timed_event_expired_total",
+            "TimedEvents that reached their deadline");
+
+    private final int durationInSeconds;
+    private volatile long deadlineNanos;
+    private volatile Runnable expireCallback = null;
+    private volatile Consumer<Integer> tickCallback = null;
     final private Timer timer;
+    private TimerTask nextTask; // guarded by this
+    private boolean isCancelled = false; // guarded by this
 
     /**
      * Create a TimedEvent to trigger the passed in callback after a set duration
@@ -37,22 +54,89 @@ public class TimedEvent {
      */
     public TimedEvent(int durationInSeconds) {
         timer = new Timer();
-        secondsRemaining = durationInSeconds;
-        timer.scheduleAtFixedRate(new TimerTask() {
+        this.durationInSeconds = durationInSeconds;
+        deadlineNanos = System.nanoTime() + durationInSeconds * TICK_NANOS;
+        scheduleNext();
+    }
+
+    /**
+     * Schedules the next tick on the next whole second before the deadline (or
+     * the deadline itself)
+     */
+    private synchronized void scheduleNext() {
+        if (isCancelled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long remaining = deadlineNanos - now;
+        long untilNext = remaining <= 0 ? 0 : (remaining - 1) % TICK_NANOS + 1;
+        final long due = now + untilNext;
+        nextTask = new TimerTask() {
             public void run() {
-                secondsRemaining--;
-                if (tickCallback != null) {
-                    tickCallback.accept(secondsRemaining);
-                }
-                if (secondsRemaining <= 0) {
-                    timer.cancel();
-                    secondsRemaining = 0;
-                    if (expireCallback != null) {
-                        expireCallback.run();
-                    }
-                }
+                fire(this, due);
+            }
+        };
+        // rounded up so the tick never runs before it's due
+        timer.schedule(nextTask, (untilNext + 999_999) / 1_000_000);
+    }
+
+    /**
+     * Runs one tick (or the expiry) for task, unless setDurationInSeconds() or
+     * cancel() replaced it after it was already running
+     */
+    private void fire(TimerTask task, long due) {
+        long now = System.nanoTime();
+        long remaining;
+        synchronized (this) {
+            if (isCancelled || task != nextTask) {
+                return; // superseded, the current task carries the chain on
             }
-        }, 1000, 1000);
+            remaining = deadlineNanos - now;
+            if (remaining <= 0) {
+                isCancelled = true;
+                timer.cancel();
+            }
+        }
+        FIRE_LAG.record(Math.max(0, now - due));
+        // reported to the nearest whole second so a slightly late tick still shows
+        // its own second, but only 0 once the deadline has actually passed
+        int secondsRemaining = remaining <= 0 ? 0
+                : (int) Math.max(1, (remaining + TICK_NANOS / 2) / TICK_NANOS);
+        Consumer<Integer> tick = tickCallback;
+        if (tick != null) {
+            tick.accept(secondsRemaining);
+        }
+        if (remaining > 0) {
+            scheduleAfter(task); // an early/late tick before the deadline never expires
+            return;
+        }
+        EXPIRED.increment();
+        Runnable callback = expireCallback;
+        if (callback != null) {
+            expire(callback, now - deadlineNanos);
+        }
+    }
+
+    /**
+     * Schedules the tick after task's, only if task is still the current one
+     * (otherwise there'd be two tick chains)
+     */
+    private synchronized void scheduleAfter(TimerTask task) {
+        if (task == nextTask) {
+            scheduleNext();
+        }
+    }
+
+    private void expire(Runnable callback, long lag) {
+        FlightRecorderEvents.TimedEventExpired event = new FlightRecorderEvents.TimedEventExpired();
+        event.begin();
+        callback.run();
+        event.end();
+        if (event.shouldCommit()) {
+            event.timerDuration = durationInSeconds;
+            event.lag = lag;
+            event.commit();
+        }
     }
 
     /**
@@ -77,21 +161,56 @@ public class TimedEvent {
     /**
      * Removes all callback references and cancels the timer
      */
-    public void cancel() {
+    public synchronized void cancel() {
         expireCallback = null;
         tickCallback = null;
+        isCancelled = true;
         timer.cancel();
     }
 
     /**
-     * Used to override the remaining countdown durationInSeconds
+     * Used to override the remaining countdown durationInSeconds (moves the
+     * deadline to now + d)
      */
-    public void setDurationInSeconds(int d) {
-        secondsRemaining = d;
+    public synchronized void setDurationInSeconds(int d) {
+        deadlineNanos = System.nanoTime() + d * TICK_NANOS;
+        if (nextTask != null) {
+            nextTask.cancel();
+        }
+        scheduleNext();
     }
 
+    /**
+     * @return whole seconds left, rounded up (0 once expired)
+     */
     public int getRemainingTime() {
-        return secondsRemaining;
+        long remaining = getRemainingNanos();
+        return (int) ((remaining + TICK_NANOS - 1) / TICK_NANOS);
+    }
+
+    /**
+     * @return the System.nanoTime() the timer expires at
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return nanoseconds until the deadline (0 once passed)
+     */
+    public long getRemainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Scheduled vs actual fire time (nanos) of every tick and expiry across all
+     * TimedEvents; a growing tail means the timer threads are starved (CPU, GC
+     * or long callbacks). Also exported as timed_event_fire_lag_seconds.
+     * 
+     * @return the shared lag Histogram
+     */
+    public static Histogram getFireLag() {
+        return FIRE_LAG;
     }
 
     /**
@@ -102,9 +221,10 @@ public class TimedEvent {
     public static void main(String args[]) {
         TimedEvent cd = new TimedEvent(30, () -> {
             System.out.println("Time expired");
+            System.out.println("Fire lag (ms): " + TimedEvent.getFireLag().summary(1e6));
         });
         cd.setTickCallback((tick) -> {
             System.out.println("Tick: " + tick);
         });
     }
-}
\ No newline at end of file
+}
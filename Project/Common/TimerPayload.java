@@ -3,6 +3,8 @@ package Project.Common;
 public class TimerPayload extends Payload {
     private int time;
     private TimerType timerType;
+    // when the timer expires on the server's System.nanoTime() clock
+    private long deadlineNanos;
 
     public TimerPayload() {
         setPayloadType(PayloadType.TIME);
@@ -23,4 +25,24 @@ public class TimerPayload extends Payload {
     public void setTime(int time) {
         this.time = time;
     }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @param deadlineNanos expiry on the server's System.nanoTime() clock; the
+     *                      client converts it with its estimated clock offset
+     */
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        time = 0;
+        timerType = null;
+        deadlineNanos = 0;
+    }
 }
\ No newline at end of file
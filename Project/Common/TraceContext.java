@@ -0,0 +1,103 @@
+package Project.Common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Optional trace data carried by a Payload.
+ * <p>
+ * Each hop stamps its own monotonic clock (System.nanoTime()) and stores the
+ * resulting stage durations here, since nanoTime values can't be compared
+ * across JVMs. The server echoes the context on its first reply to the sender
+ * so the client can assemble the full breakdown.
+ * </p>
+ */
+public class TraceContext implements Serializable {
+    private static final long UNSET = -1;
+
+    private final long traceId;
+    private final PayloadType payloadType; // type of the traced request
+    private final long[] stageNanos = new long[TraceStage.values().length];
+    // local monotonic stamp of the current hop, meaningless on the other side
+    private transient long mark;
+
+    public TraceContext(long traceId, PayloadType payloadType) {
+        this.traceId = traceId;
+        this.payloadType = payloadType;
+        Arrays.fill(stageNanos, UNSET);
+        mark();
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public PayloadType getPayloadType() {
+        return payloadType;
+    }
+
+    /**
+     * Stamps the current hop's start
+     */
+    public void mark() {
+        mark = System.nanoTime();
+    }
+
+    /**
+     * @return nanos since the last mark() (only valid on the hop that made it)
+     */
+    public long sinceMark() {
+        return System.nanoTime() - mark;
+    }
+
+    public void setStage(TraceStage stage, long nanos) {
+        stageNanos[stage.ordinal()] = Math.max(0, nanos);
+    }
+
+    public boolean hasStage(TraceStage stage) {
+        return stageNanos[stage.ordinal()] != UNSET;
+    }
+
+    /**
+     * @param stage
+     * @return duration in nanos or 0 if the stage wasn't recorded
+     */
+    public long getStage(TraceStage stage) {
+        return Math.max(0, stageNanos[stage.ordinal()]);
+    }
+
+    /**
+     * Copies the stages another hop recorded without overwriting local ones
+     *
+     * @param other the echoed context
+     */
+    public void merge(TraceContext other) {
+        for (TraceStage stage : TraceStage.values()) {
+            if (!hasStage(stage) && other.hasStage(stage)) {
+                setStage(stage, other.getStage(stage));
+            }
+        }
+    }
+
+    /**
+     * @return sum of every recorded stage
+     */
+    public long getTotal() {
+        long total = 0;
+        for (TraceStage stage : TraceStage.values()) {
+            total += getStage(stage);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("trace=%016x", traceId));
+        for (TraceStage stage : TraceStage.values()) {
+            if (hasStage(stage)) {
+                sb.append(String.format(" %s=%.3fms", stage.name().toLowerCase(), getStage(stage) / 1e6));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package Project.Common;
+
+/**
+ * Hops a traced Payload passes through, in order (see TraceContext)
+ */
+public enum TraceStage {
+    CLIENT_SEND, // serialize + flush on the client
+    SERVER_QUEUE, // read loop to worker lane start
+    SERVER_PROCESS, // processPayload() until the first reply to the sender
+    SERVER_SEND, // writing that reply (server-side only)
+    NETWORK, // client round trip minus the server stages above
+    CLIENT_PROCESS, // client processPayload() of the reply
+    CLIENT_RENDER // Swing dispatch of the resulting UI update
+}
@@ -0,0 +1,17 @@
+package Project.Exceptions;
+
+/**
+ * The client's outbound queue is full (the connection isn't keeping up); the
+ * payload wasn't sent
+ */
+public class SendQueueFullException extends CustomIT114Exception {
+
+    public SendQueueFullException(String message) {
+        super(message);
+    }
+
+    public SendQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,253 @@
+package Project.LoadTest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import Project.Common.ConnectionPayload;
+import Project.Common.Constants;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+import Project.Common.Phase;
+import Project.Common.ReadyPayload;
+
+/**
+ * A single scripted, headless connection speaking the regular Payload protocol.
+ * <p>
+ * Script: connect and land in the lobby, create (or join if it already exists)
+ * its GameRoom, READY up, PICK whenever a round starts and READY again once a
+ * session ends. Chat messages carry their send time so the relay back to the
+ * sender gives a round-trip time.
+ * </p>
+ */
+public class Bot {
+    private static final String CHAT_PREFIX = "lt|";
+    private static final String[] CHOICES = { "r", "p", "s" };
+
+    private final int index;
+    private final String host;
+    private final int port;
+    private final String roomName; // null to stay in the lobby
+    private final LoadStats stats;
+
+    private Socket socket;
+    private ObjectOutputStream out;
+    // not synchronized: a virtual thread blocked in a write under a monitor pins its carrier
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private volatile long clientId = Constants.DEFAULT_CLIENT_ID;
+    private volatile boolean isRunning = false;
+    private volatile boolean inGameRoom = false;
+    private volatile String phase = Phase.READY.name();
+    private long connectStart;
+
+    /**
+     * @param index    unique bot number (used for the name)
+     * @param host
+     * @param port
+     * @param roomName GameRoom to play in or null to only chat in the lobby
+     * @param stats    shared run statistics
+     */
+    public Bot(int index, String host, int port, String roomName, LoadStats stats) {
+        this.index = index;
+        this.host = host;
+        this.port = port;
+        this.roomName = roomName;
+        this.stats = stats;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Opens the connection and sends the name; the caller's thread becomes the
+     * read loop until the connection closes
+     */
+    public void run() {
+        connectStart = System.nanoTime();
+        try {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 5000);
+            out = new ObjectOutputStream(socket.getOutputStream());
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+            isRunning = true;
+            ConnectionPayload hello = new ConnectionPayload();
+            hello.setPayloadType(PayloadType.CLIENT_CONNECT);
+            hello.setClientName("bot" + index);
+            send(hello);
+            listen(in);
+        } catch (IOException e) {
+            if (clientId == Constants.DEFAULT_CLIENT_ID) {
+                stats.connectFailures.increment();
+            } else if (isRunning) {
+                stats.droppedConnections.increment();
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void listen(ObjectInputStream in) throws IOException {
+        try {
+            while (isRunning) {
+                Payload payload = (Payload) in.readObject();
+                stats.payloadsReceived.increment();
+                handle(payload);
+            }
+        } catch (EOFException e) {
+            if (isRunning) {
+                stats.droppedConnections.increment();
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void handle(Payload payload) throws IOException {
+        switch (payload.getPayloadType()) {
+            case PayloadType.CLIENT_ID:
+                clientId = payload.getClientId();
+                stats.connectTime.record(System.nanoTime() - connectStart);
+                stats.connected.increment();
+                if (roomName != null) {
+                    sendRoomAction(PayloadType.ROOM_CREATE);
+                }
+                break;
+            case PayloadType.ROOM_JOIN:
+                if (payload.getClientId() == clientId && roomName != null
+                        && roomName.equalsIgnoreCase(payload.getMessage())) {
+                    inGameRoom = true;
+                    stats.gameRoomsJoined.increment();
+                    sendReady();
+                }
+                break;
+            case PayloadType.MESSAGE:
+                onMessage(payload);
+                break;
+            case PayloadType.PHASE:
+                if (!inGameRoom) {
+                    break;
+                }
+                phase = payload.getMessage();
+                if (Phase.IN_PROGRESS.name().equals(phase)) {
+                    stats.sessionsStarted.increment();
+                } else if (Phase.READY.name().equals(phase)) {
+                    sendReady();
+                }
+                break;
+            case PayloadType.RESET_TURN:
+                // sent at the start of every round (after the phase changes)
+                if (inGameRoom && Phase.IN_PROGRESS.name().equals(phase)) {
+                    sendPick();
+                }
+                break;
+            case PayloadType.REDIRECT:
+                // clustered rooms aren't followed; the bot keeps chatting in the lobby
+                stats.redirects.increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onMessage(Payload payload) throws IOException {
+        String message = payload.getMessage();
+        if (payload.getClientId() == clientId && message != null && message.startsWith(CHAT_PREFIX)) {
+            long sentAt = Long.parseLong(message.substring(CHAT_PREFIX.length()));
+            stats.roundTrip.record(System.nanoTime() - sentAt);
+        } else if (payload.getClientId() == Constants.DEFAULT_CLIENT_ID && message != null) {
+            stats.serverNotices.increment();
+            if (roomName != null && !inGameRoom && message.equalsIgnoreCase("Room " + roomName + " already exists")) {
+                sendRoomAction(PayloadType.ROOM_JOIN);
+            }
+        }
+    }
+
+    /**
+     * Sends a chat message stamped with the current time
+     */
+    public void chat() {
+        if (clientId == Constants.DEFAULT_CLIENT_ID) {
+            return;
+        }
+        Payload payload = new Payload();
+        payload.setPayloadType(PayloadType.MESSAGE);
+        payload.setMessage(CHAT_PREFIX + System.nanoTime());
+        try {
+            send(payload);
+            stats.chatsSent.increment();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void sendRoomAction(PayloadType type) throws IOException {
+        Payload payload = new Payload();
+        payload.setPayloadType(type);
+        payload.setMessage(roomName);
+        send(payload);
+    }
+
+    private void sendReady() throws IOException {
+        send(new ReadyPayload());
+        stats.readiesSent.increment();
+    }
+
+    private void sendPick() throws IOException {
+        ReadyPayload pick = new ReadyPayload();
+        pick.setPayloadType(PayloadType.PICK);
+        pick.setReady(true);
+        pick.setMessage(CHOICES[ThreadLocalRandom.current().nextInt(CHOICES.length)]);
+        send(pick);
+        stats.picksSent.increment();
+    }
+
+    private void send(Payload payload) throws IOException {
+        sendLock.lock();
+        try {
+            if (out == null) {
+                return;
+            }
+            out.writeObject(payload);
+            out.flush();
+            out.reset(); // long runs would otherwise keep every sent Payload referenced
+        } finally {
+            sendLock.unlock();
+        }
+        stats.payloadsSent.increment();
+    }
+
+    /**
+     * Sends DISCONNECT and closes the socket
+     */
+    public void disconnect() {
+        if (isRunning) {
+            Payload payload = new Payload();
+            payload.setPayloadType(PayloadType.DISCONNECT);
+            try {
+                send(payload);
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        close();
+    }
+
+    private void close() {
+        isRunning = false;
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
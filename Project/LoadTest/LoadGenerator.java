@@ -0,0 +1,152 @@
+package Project.LoadTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load generator: opens many Bot connections against a running server
+ * and reports connect time, chat round-trip latency and server throughput.
+ * <p>
+ * Each connection's read loop runs on a virtual thread so thousands of players
+ * fit in one JVM. Connections ramp up at a fixed rate (keep it below the
+ * server's connection rate limit).
+ * </p>
+ * Options:
+ *
+ * <pre>
+ * -host HOST        server host (default 127.0.0.1)
+ * -port PORT        server port (default 3000)
+ * -clients N        concurrent connections (default 100)
+ * -room-size N      players per GameRoom, 0 keeps everyone in the lobby (default 4)
+ * -chat-rate R      chat messages per second per client (default 0.5)
+ * -connect-rate R   new connections per second (default 40)
+ * -duration S       seconds to run once every client is connected (default 60)
+ * </pre>
+ */
+public class LoadGenerator {
+    private String host = "127.0.0.1";
+    private int port = 3000;
+    private int clients = 100;
+    private int roomSize = 4;
+    private double chatRate = 0.5;
+    private double connectRate = 40;
+    private int durationSeconds = 60;
+
+    private final LoadStats stats = new LoadStats();
+    private final List<Bot> bots = new ArrayList<>();
+
+    private void parseOptions(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-host":
+                    host = value;
+                    break;
+                case "-port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "-clients":
+                    clients = Integer.parseInt(value);
+                    break;
+                case "-room-size":
+                    roomSize = Integer.parseInt(value);
+                    break;
+                case "-chat-rate":
+                    chatRate = Double.parseDouble(value);
+                    break;
+                case "-connect-rate":
+                    connectRate = Double.parseDouble(value);
+                    break;
+                case "-duration":
+                    durationSeconds = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        System.out.println(String.format(
+                "Load test against %s:%s with %s clients (room size %s, %.2f chats/s each, %.0f connects/s) for %ss",
+                host, port, clients, roomSize, chatRate, connectRate, durationSeconds));
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread t = new Thread(r, "loadtest-scheduler");
+                    t.setDaemon(true);
+                    return t;
+                });
+        long chatPeriodMicros = chatRate > 0 ? (long) (1_000_000 / chatRate) : 0;
+        long connectPeriodNanos = (long) (1_000_000_000L / connectRate);
+        long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> progress(start), 5, 5, TimeUnit.SECONDS);
+
+        // ramp up
+        long nextConnect = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            String roomName = roomSize > 0 ? "loadtest-" + (i / roomSize) : null;
+            Bot bot = new Bot(i + 1, host, port, roomName, stats);
+            bots.add(bot);
+            Thread.ofVirtual().name("bot-" + (i + 1)).start(bot::run);
+            if (chatPeriodMicros > 0) {
+                // random phase so chats are spread out instead of arriving in waves
+                scheduler.scheduleAtFixedRate(bot::chat,
+                        1_000_000 + ThreadLocalRandom.current().nextLong(chatPeriodMicros), chatPeriodMicros,
+                        TimeUnit.MICROSECONDS);
+            }
+            nextConnect += connectPeriodNanos;
+            long wait = nextConnect - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        long rampedAt = System.nanoTime();
+        System.out.println(String.format("Ramp up finished in %.1fs", (rampedAt - start) / 1e9));
+
+        // steady state
+        long receivedAtRamp = stats.payloadsReceived.sum();
+        long sentAtRamp = stats.payloadsSent.sum();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        long steadyNanos = System.nanoTime() - rampedAt;
+        long received = stats.payloadsReceived.sum() - receivedAtRamp;
+        long sent = stats.payloadsSent.sum() - sentAtRamp;
+
+        scheduler.shutdownNow();
+        bots.forEach(Bot::disconnect);
+        report(steadyNanos, sent, received);
+    }
+
+    private void progress(long start) {
+        long active = bots.stream().filter(Bot::isRunning).count();
+        System.out.println(String.format("[%5.0fs] active=%d sent=%d received=%d rtt(ms) p99=%.1f",
+                (System.nanoTime() - start) / 1e9, active, stats.payloadsSent.sum(),
+                stats.payloadsReceived.sum(), stats.roundTrip.getValueAtPercentile(99) / 1e6));
+    }
+
+    private void report(long steadyNanos, long sent, long received) {
+        double seconds = steadyNanos / 1e9;
+        System.out.println();
+        System.out.println("=== Load test results ===");
+        System.out.println(String.format("Connections: %d connected, %d failed, %d dropped",
+                stats.connected.sum(), stats.connectFailures.sum(), stats.droppedConnections.sum()));
+        System.out.println("Connect time (ms): " + stats.connectTime.summary(1e6));
+        System.out.println("Chat round trip (ms): " + stats.roundTrip.summary(1e6));
+        System.out.println(String.format("Throughput (steady %.1fs): %.0f payloads/s sent to server, %.0f payloads/s "
+                + "delivered by server", seconds, sent / seconds, received / seconds));
+        System.out.println(String.format(
+                "Game: %d room joins, %d readies, %d picks, %d session starts; %d chats; %d server notices, %d redirects",
+                stats.gameRoomsJoined.sum(), stats.readiesSent.sum(), stats.picksSent.sum(),
+                stats.sessionsStarted.sum(), stats.chatsSent.sum(), stats.serverNotices.sum(),
+                stats.redirects.sum()));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parseOptions(args);
+        generator.run();
+    }
+}
@@ -0,0 +1,28 @@
+package Project.LoadTest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import Project.Common.Histogram;
+
+/**
+ * Counters and latency histograms shared by every Bot in a run
+ */
+public class LoadStats {
+    // nanoseconds from socket connect to receiving our CLIENT_ID
+    public final Histogram connectTime = new Histogram();
+    // nanoseconds from sending a chat message to receiving its relay back
+    public final Histogram roundTrip = new Histogram();
+
+    public final LongAdder connected = new LongAdder();
+    public final LongAdder connectFailures = new LongAdder();
+    public final LongAdder droppedConnections = new LongAdder();
+    public final LongAdder payloadsSent = new LongAdder();
+    public final LongAdder payloadsReceived = new LongAdder();
+    public final LongAdder chatsSent = new LongAdder();
+    public final LongAdder gameRoomsJoined = new LongAdder();
+    public final LongAdder readiesSent = new LongAdder();
+    public final LongAdder picksSent = new LongAdder();
+    public final LongAdder sessionsStarted = new LongAdder();
+    public final LongAdder serverNotices = new LongAdder();
+    public final LongAdder redirects = new LongAdder();
+}
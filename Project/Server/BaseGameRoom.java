@@ -76,7 +76,15 @@ public abstract class BaseGameRoom extends Room {
     protected abstract void onClientRemoved(ServerThread client);
 
     @Override
-    protected synchronized void addClient(ServerThread client) {
+    protected void addClient(ServerThread client) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, getName(), "addClient", () -> addClientLocked(client));
+        } else {
+            addClientLocked(client);
+        }
+    }
+
+    private synchronized void addClientLocked(ServerThread client) {
         if (!isRunning()) { // block action if Room isn't running
             return;
         }
@@ -86,7 +94,15 @@ public abstract class BaseGameRoom extends Room {
     }
 
     @Override
-    protected synchronized void removeClient(ServerThread client) {
+    protected void removeClient(ServerThread client) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, getName(), "removeClient", () -> removeClientLocked(client));
+        } else {
+            removeClientLocked(client);
+        }
+    }
+
+    private synchronized void removeClientLocked(ServerThread client) {
         if (!isRunning()) { // block action if Room isn't running
             return;
         }
@@ -97,7 +113,15 @@ public abstract class BaseGameRoom extends Room {
     }
 
     @Override
-    protected synchronized void disconnect(ServerThread client) {
+    protected void disconnect(ServerThread client) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, getName(), "disconnect", () -> disconnectLocked(client));
+        } else {
+            disconnectLocked(client);
+        }
+    }
+
+    private synchronized void disconnectLocked(ServerThread client) {
         super.disconnect(client);
         LoggerUtil.INSTANCE.info("Players in room: " + clientsInRoom.size());
         onClientRemoved(client);
@@ -110,7 +134,7 @@ public abstract class BaseGameRoom extends Room {
         if (readyTimer != null) {
             readyTimer.cancel();
             readyTimer = null;
-            sendCurrentTime(TimerType.READY, -1);
+            sendCurrentTime(TimerType.READY, -1, 0);
         }
     }
 
@@ -130,8 +154,9 @@ public abstract class BaseGameRoom extends Room {
             });
             readyTimer.setTickCallback((time) -> {
                 System.out.println("Ready Timer: " + time);
-                sendCurrentTime(TimerType.READY, time);
             });
+            // clients count down locally, they only need the deadline again if it changes
+            sendCurrentTime(TimerType.READY, readyTimer.getRemainingTime(), readyTimer.getDeadlineNanos());
         }
     }
 
@@ -169,14 +194,15 @@ public abstract class BaseGameRoom extends Room {
 
     // send/sync data to ServerThread(s)
     /**
-     * Note: due to log output, this will get really spammy
+     * Sends a timer's deadline to everyone (once per start/change, not per tick)
      * 
      * @param timerType
-     * @param time      the remaining time or -1 to cancel
+     * @param time          the remaining time or -1 to cancel
+     * @param deadlineNanos expiry on the server's System.nanoTime() clock
      */
-    protected void sendCurrentTime(TimerType timerType, int time) {
+    protected void sendCurrentTime(TimerType timerType, int time, long deadlineNanos) {
         clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendCurrentTime(timerType, time);
+            boolean failedToSend = !spInRoom.sendCurrentTime(timerType, time, deadlineNanos);
             if (failedToSend) {
                 removeClient(spInRoom);
             }
@@ -184,6 +210,18 @@ public abstract class BaseGameRoom extends Room {
         });
     }
 
+    /**
+     * Syncs a running ready timer's deadline to a single (late joining) client
+     * 
+     * @param sp
+     */
+    protected void syncReadyTimer(ServerThread sp) {
+        TimedEvent timer = readyTimer;
+        if (timer != null) {
+            sp.sendCurrentTime(TimerType.READY, timer.getRemainingTime(), timer.getDeadlineNanos());
+        }
+    }
+
     /**
      * Syncs the current phase to a single client
      * 
@@ -4,9 +4,16 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.logging.Level;
 
+import Project.Common.LoggerUtil;
 import Project.Common.Payload;
+import Project.Common.PayloadTracer;
 import Project.Common.PayloadType;
+import Project.Common.TraceContext;
+import Project.Common.TraceStage;
 import Project.Common.User;
 
 /**
@@ -15,11 +22,23 @@ import Project.Common.User;
  */
 public abstract class BaseServerThread extends Thread {
 
-    protected boolean isRunning = false; // control variable to stop this thread
+    protected volatile boolean isRunning = false; // control variable to stop this thread
     protected ObjectOutputStream out; // exposed here for send()
     protected Socket client; // communication directly to "my" client
+    // only set when the Socket came from a ServerSocketChannel (used for shared
+    // broadcast frames)
+    protected GatheringByteChannel channel;
+    // true after a raw frame; the stream's handle table must be reset before its
+    // next write
+    private boolean streamNeedsReset = false;
+    // traced Payload from this client currently being processed; its first reply
+    // (sent from the processing thread) carries the context back
+    private volatile TraceContext activeTrace;
+    private volatile Thread activeTraceThread;
+    private TraceContext replyTrace;
     protected User user = new User();
-    protected Room currentRoom;
+    // volatile since room changes happen on a worker lane (see GameWorkerPool)
+    protected volatile Room currentRoom;
 
     /**
      * Returns the current Room associated with this ServerThread
@@ -103,27 +122,86 @@ public abstract class BaseServerThread extends Thread {
      */
     protected abstract void processPayload(Payload payload);
 
+    /**
+     * Hands a received Payload off for processing.
+     * Defaults to processing inline on the read thread.
+     * 
+     * @param payload
+     */
+    protected void dispatchPayload(Payload payload) {
+        processPayload(payload);
+    }
+
+    /**
+     * Hands off the room disconnect and cleanup once the socket is done.
+     * Defaults to running inline on the read thread; must run after every
+     * Payload already passed to dispatchPayload().
+     * 
+     * @param closed
+     */
+    protected void dispatchClosed(Runnable closed) {
+        closed.run();
+    }
+
+    /**
+     * Cheap admission check run on the read loop before a Payload is logged or
+     * processed
+     * 
+     * @param payload
+     * @return true if the payload should be processed
+     */
+    protected boolean admitPayload(Payload payload) {
+        return true;
+    }
+
     /**
      * Sends the payload over the socket
+     * <p>
+     * Synchronized since Rooms on different worker lanes (and timers) may send
+     * to the same client at once
+     * </p>
      * 
      * @param payload
      * @return true if no errors were encountered
      */
-    protected boolean sendToClient(Payload payload) {
+    protected synchronized boolean sendToClient(Payload payload) {
         if (!isRunning) {
             return true;
         }
         try {
             // added to reduce log spam
             boolean ignoreTimePayloads = true;
-            if (!(ignoreTimePayloads && payload.getPayloadType() == PayloadType.TIME)) {
+            if (!(ignoreTimePayloads && payload.getPayloadType() == PayloadType.TIME)
+                    && LoggerUtil.INSTANCE.isLoggable(Level.INFO)) {
                 info("Sending to client: " + payload);
             }
 
-            out.writeObject(payload);
+            TraceContext trace = null;
+            if (isTraceReplyPending()) {
+                trace = activeTrace;
+                activeTrace = null;
+                trace.setStage(TraceStage.SERVER_PROCESS, trace.sinceMark());
+                payload.setTrace(trace);
+            }
+            if (streamNeedsReset) {
+                // the client already cleared its handle table at the end of the last frame
+                out.reset();
+                streamNeedsReset = false;
+            }
+            // unshared so a reused (pooled) instance is written in full rather than as a
+            // back-reference to the previous send
+            out.writeUnshared(payload);
             out.flush();
+            ServerMetrics.INSTANCE.payloadSent(payload.getPayloadType());
+            if (trace != null) {
+                payload.setTrace(null);
+                // measured after the write so it only lands in the server-side breakdown
+                trace.setStage(TraceStage.SERVER_SEND, trace.sinceMark() - trace.getStage(TraceStage.SERVER_PROCESS));
+                replyTrace = trace;
+            }
             return true;
         } catch (IOException e) {
+            ServerMetrics.INSTANCE.sendFailed();
             info("Error sending message to client (most likely disconnected)");
             // comment this out to inspect the stack trace
             // e.printStackTrace();
@@ -132,6 +210,88 @@ public abstract class BaseServerThread extends Thread {
         }
     }
 
+    /**
+     * @return true if this client can receive shared broadcast frames
+     */
+    protected boolean canSendFrames() {
+        // a pending trace reply has to go through sendToClient() to carry the context
+        return channel != null && out != null && !isTraceReplyPending();
+    }
+
+    private boolean isTraceReplyPending() {
+        return activeTrace != null && activeTraceThread == Thread.currentThread();
+    }
+
+    /**
+     * Starts the server-side stages of a traced Payload; the next send to this
+     * client from the calling thread carries the context back
+     *
+     * @param trace       the received context
+     * @param queuedNanos time between the read loop and processing
+     */
+    protected void beginTrace(TraceContext trace, long queuedNanos) {
+        trace.setStage(TraceStage.SERVER_QUEUE, queuedNanos);
+        trace.mark();
+        activeTraceThread = Thread.currentThread();
+        activeTrace = trace;
+    }
+
+    /**
+     * Finishes the server-side stages and records them (see PayloadTracer)
+     */
+    protected void endTrace() {
+        TraceContext trace = activeTrace;
+        if (trace != null) {
+            // processed without replying to the sender
+            trace.setStage(TraceStage.SERVER_PROCESS, trace.sinceMark());
+        } else {
+            trace = replyTrace;
+        }
+        activeTrace = null;
+        activeTraceThread = null;
+        replyTrace = null;
+        if (trace != null) {
+            PayloadTracer.INSTANCE.record(trace);
+        }
+    }
+
+    /**
+     * Writes a pre-encoded broadcast frame directly to the SocketChannel, bypassing
+     * the per-connection ObjectOutputStream.
+     * <p>
+     * Safe to interleave with sendToClient() since both hold this monitor and
+     * sendToClient() always flushes the stream before returning.
+     * </p>
+     * 
+     * @param frame shared frame (retained for the duration of the write)
+     * @return true if no errors were encountered
+     */
+    protected synchronized boolean sendFrame(FramePool.Frame frame) {
+        if (!isRunning) {
+            return true;
+        }
+        frame.retain();
+        try {
+            ByteBuffer[] parts = frame.gather();
+            ByteBuffer body = parts[parts.length - 1];
+            while (body.hasRemaining()) {
+                channel.write(parts);
+            }
+            streamNeedsReset = true;
+            // raw channel writes bypass the counting stream
+            ServerMetrics.INSTANCE.bytesSent(frame.size() + 1);
+            ServerMetrics.INSTANCE.payloadSent(frame.getPayloadType());
+            return true;
+        } catch (IOException e) {
+            ServerMetrics.INSTANCE.sendFailed();
+            info("Error sending frame to client (most likely disconnected)");
+            cleanup();
+            return false;
+        } finally {
+            frame.release();
+        }
+    }
+
     /**
      * Terminates the server-side of the connection
      */
@@ -146,12 +306,38 @@ public abstract class BaseServerThread extends Thread {
         cleanup(); // good practice to ensure data is written out immediately
     }
 
+    /**
+     * Wires an already open output stream without starting the read loop.
+     * Used by the benchmarks to drive the send path with in-memory clients.
+     * 
+     * @param out
+     */
+    protected void attachOutput(ObjectOutputStream out) {
+        attachOutput(out, null);
+    }
+
+    /**
+     * Wires an already open output stream and a channel for shared broadcast
+     * frames without starting the read loop.
+     * 
+     * @param out
+     * @param channel receives raw frames (can be null)
+     */
+    protected void attachOutput(ObjectOutputStream out, GatheringByteChannel channel) {
+        this.out = out;
+        this.channel = channel;
+        isRunning = true;
+    }
+
     @Override
     public void run() {
         info("Thread starting");
-        try (ObjectOutputStream out = new ObjectOutputStream(client.getOutputStream());
-                ObjectInputStream in = new ObjectInputStream(client.getInputStream());) {
+        ServerMetrics metrics = ServerMetrics.INSTANCE;
+        try (ObjectOutputStream out = new ObjectOutputStream(metrics.countSent(client.getOutputStream()));
+                ObjectInputStream in = new ObjectInputStream(metrics.countReceived(client.getInputStream()));) {
+            out.flush(); // send the stream header now so raw frames can't get ahead of it
             this.out = out;
+            this.channel = client.getChannel();
             isRunning = true;
             new java.util.Timer().schedule(new java.util.TimerTask() {
                 @Override
@@ -174,8 +360,12 @@ public abstract class BaseServerThread extends Thread {
                 try {
                     fromClient = (Payload) in.readObject(); // blocking method
                     if (fromClient != null) {
+                        if (!admitPayload(fromClient)) {
+                            continue;
+                        }
+                        metrics.payloadReceived(fromClient.getPayloadType());
                         info("Received from my client: " + fromClient);
-                        processPayload(fromClient);
+                        dispatchPayload(fromClient);
                     } else {
                         throw new IOException("Connection interrupted"); // Specific exception for a clean break
                     }
@@ -198,12 +388,14 @@ public abstract class BaseServerThread extends Thread {
             e.printStackTrace();
             info("My Client disconnected");
         } finally {
-            if (currentRoom != null) {
-                currentRoom.handleDisconnect(this);
-            }
-            isRunning = false;
             info("Exited thread loop. Cleaning up connection");
-            cleanup();
+            dispatchClosed(() -> {
+                if (currentRoom != null) {
+                    currentRoom.handleDisconnect(this);
+                }
+                isRunning = false;
+                cleanup();
+            });
         }
     }
 
@@ -0,0 +1,435 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small in-process benchmark harness modeled after JMH.
+ * <p>
+ * Each benchmark/parameter combination runs in its own forked JVM (by default)
+ * so JIT profiles and singletons (Server, LoggerUtil) don't leak between
+ * benchmarks. A run is a number of warmup iterations followed by measurement
+ * iterations of a fixed duration; the score is throughput (ops/s) with a 99.9%
+ * confidence interval, plus average time and allocated bytes per op.
+ * </p>
+ * <p>
+ * Results are written as JSON in the same shape as JMH's -rf json output
+ * (benchmark, params, primaryMetric, secondaryMetrics) so runs can be compared
+ * with --compare or external JMH tooling.
+ * </p>
+ * Options:
+ *
+ * <pre>
+ * -wi N       warmup iterations (default 3)
+ * -i N        measurement iterations (default 5)
+ * -t MS       iteration time in milliseconds (default 1000)
+ * -f N        forks per benchmark, 0 runs in this JVM (default 1)
+ * -o FILE     JSON output (default benchmark-results.json)
+ * -p REGEX    only run benchmarks whose name matches
+ * --compare BASELINE.json CURRENT.json
+ * </pre>
+ */
+public class BenchmarkRunner {
+    private static final String FORK_FLAG = "--fork-child";
+    // two-sided Student's t quantiles (99.9%) for 1..30 degrees of freedom
+    private static final double[] T_999 = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781,
+            4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850, 3.819, 3.792, 3.768,
+            3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+    private static volatile Object sink;
+
+    /**
+     * A single benchmarked operation plus its state
+     */
+    public interface Workload extends AutoCloseable {
+        /**
+         * One operation; called in a tight loop
+         */
+        void op() throws Exception;
+
+        /**
+         * Releases the state; declared without throws so try-with-resources
+         * doesn't have to handle InterruptedException
+         */
+        @Override
+        default void close() {
+        }
+    }
+
+    /**
+     * Builds the state for one parameter combination
+     */
+    @FunctionalInterface
+    public interface Fixture {
+        Workload setUp(Map<String, String> params) throws Exception;
+    }
+
+    private static class Definition {
+        private final String name;
+        private final Map<String, List<String>> params;
+        private final Fixture fixture;
+
+        private Definition(String name, Map<String, List<String>> params, Fixture fixture) {
+            this.name = name;
+            this.params = params;
+            this.fixture = fixture;
+        }
+    }
+
+    /**
+     * Measurement of one benchmark/parameter combination
+     */
+    public static class Result {
+        private final String benchmark;
+        private final Map<String, String> params;
+        private final List<Double> opsPerSecond = new ArrayList<>();
+        private final List<Double> nanosPerOp = new ArrayList<>();
+        private final List<Double> bytesPerOp = new ArrayList<>();
+
+        private Result(String benchmark, Map<String, String> params) {
+            this.benchmark = benchmark;
+            this.params = params;
+        }
+
+        public double getScore() {
+            return mean(opsPerSecond);
+        }
+
+        public double getScoreError() {
+            return error(opsPerSecond);
+        }
+
+        private String label() {
+            return params.isEmpty() ? benchmark : benchmark + params;
+        }
+    }
+
+    private final Class<?> suiteClass;
+    private final List<Definition> definitions = new ArrayList<>();
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+    private int forks = 1;
+    private String output = "benchmark-results.json";
+    private Pattern filter = null;
+
+    /**
+     * @param suiteClass class whose main() registers the benchmarks and calls
+     *                   execute() (re-launched for each fork)
+     */
+    public BenchmarkRunner(Class<?> suiteClass) {
+        this.suiteClass = suiteClass;
+    }
+
+    /**
+     * Registers a benchmark; every combination of the parameter values is run
+     *
+     * @param name    unique benchmark name
+     * @param params  parameter name to candidate values (insertion ordered)
+     * @param fixture creates the Workload for a combination
+     * @return this runner
+     */
+    public BenchmarkRunner register(String name, Map<String, List<String>> params, Fixture fixture) {
+        definitions.add(new Definition(name, params == null ? Map.of() : params, fixture));
+        return this;
+    }
+
+    /**
+     * Keeps results "used" so the JIT can't eliminate the benchmarked code
+     *
+     * @param value
+     */
+    public static void consume(Object value) {
+        sink = value;
+    }
+
+    /**
+     * Parses command line options and runs (or compares) the benchmarks
+     *
+     * @param args
+     * @throws Exception
+     */
+    public void execute(String[] args) throws Exception {
+        if (args.length > 0 && FORK_FLAG.equals(args[0])) {
+            runChild(args);
+            return;
+        }
+        if (args.length == 3 && "--compare".equals(args[0])) {
+            compare(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        parseOptions(args);
+        List<Result> results = new ArrayList<>();
+        for (Definition definition : definitions) {
+            if (filter != null && !filter.matcher(definition.name).find()) {
+                continue;
+            }
+            for (Map<String, String> combination : expand(definition.params)) {
+                Result result = forks > 0 ? runForked(definition, combination) : run(definition, combination);
+                print(result);
+                results.add(result);
+            }
+        }
+        Files.writeString(Paths.get(output), toJson(results));
+        System.out.println("Results written to " + output);
+    }
+
+    private void parseOptions(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "-wi":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "-i":
+                    iterations = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "-t":
+                    iterationMillis = Long.parseLong(value);
+                    break;
+                case "-f":
+                    forks = Integer.parseInt(value);
+                    break;
+                case "-o":
+                    output = value;
+                    break;
+                case "-p":
+                    filter = Pattern.compile(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i++;
+        }
+    }
+
+    private static List<Map<String, String>> expand(Map<String, List<String>> params) {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> entry : params.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> partial : combinations) {
+                for (String value : entry.getValue()) {
+                    Map<String, String> combination = new LinkedHashMap<>(partial);
+                    combination.put(entry.getKey(), value);
+                    next.add(combination);
+                }
+            }
+            combinations = next;
+        }
+        return combinations;
+    }
+
+    private Result run(Definition definition, Map<String, String> params) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        Result result = new Result(definition.name, params);
+        try (Workload workload = definition.fixture.setUp(params)) {
+            for (int i = 0; i < warmupIterations + iterations; i++) {
+                long ops = 0;
+                long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                long deadline = start + iterationMillis * 1_000_000L;
+                long now;
+                do {
+                    workload.op();
+                    ops++;
+                } while ((now = System.nanoTime()) < deadline);
+                long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+                if (i >= warmupIterations) {
+                    long elapsed = now - start;
+                    result.opsPerSecond.add(ops * 1e9 / elapsed);
+                    result.nanosPerOp.add((double) elapsed / ops);
+                    result.bytesPerOp.add((double) bytes / ops);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Result runForked(Definition definition, Map<String, String> params) throws Exception {
+        Result merged = new Result(definition.name, params);
+        for (int f = 0; f < forks; f++) {
+            Path resultFile = Files.createTempFile("benchmark", ".json");
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(suiteClass.getName());
+            command.add(FORK_FLAG);
+            command.add(resultFile.toString());
+            command.add(definition.name);
+            command.add(String.valueOf(warmupIterations));
+            command.add(String.valueOf(iterations));
+            command.add(String.valueOf(iterationMillis));
+            params.forEach((k, v) -> command.add(k + "=" + v));
+            // benchmark output (logging etc) is noise here; only the result file matters
+            Process process = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            int exit = process.waitFor();
+            try {
+                if (exit != 0) {
+                    throw new IllegalStateException(String.format("Fork of %s exited with %s", merged.label(), exit));
+                }
+                Result child = parseResults(Files.readString(resultFile)).get(0);
+                merged.opsPerSecond.addAll(child.opsPerSecond);
+                merged.nanosPerOp.addAll(child.nanosPerOp);
+                merged.bytesPerOp.addAll(child.bytesPerOp);
+            } finally {
+                Files.deleteIfExists(resultFile);
+            }
+        }
+        return merged;
+    }
+
+    private void runChild(String[] args) throws Exception {
+        Path resultFile = Paths.get(args[1]);
+        String name = args[2];
+        warmupIterations = Integer.parseInt(args[3]);
+        iterations = Integer.parseInt(args[4]);
+        iterationMillis = Long.parseLong(args[5]);
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 6; i < args.length; i++) {
+            String[] kv = args[i].split("=", 2);
+            params.put(kv[0], kv[1]);
+        }
+        Definition definition = definitions.stream().filter(d -> d.name.equals(name)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown benchmark " + name));
+        Files.writeString(resultFile, toJson(List.of(run(definition, params))));
+        // benchmarks may leave non-daemon threads (timers, sockets) behind
+        System.exit(0);
+    }
+
+    private static void print(Result result) {
+        System.out.println(String.format(Locale.ROOT, "%-60s %14.1f +- %10.1f ops/s %12.1f ns/op %10.1f B/op",
+                result.label(), result.getScore(), result.getScoreError(), mean(result.nanosPerOp),
+                mean(result.bytesPerOp)));
+    }
+
+    private static double mean(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN);
+    }
+
+    private static double error(List<Double> values) {
+        int n = values.size();
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double mean = mean(values);
+        double variance = values.stream().mapToDouble(v -> (v - mean) * (v - mean)).sum() / (n - 1);
+        double t = n - 1 <= T_999.length ? T_999[n - 2] : 3.291;
+        return t * Math.sqrt(variance / n);
+    }
+
+    // start JSON (JMH layout, only the fields we produce)
+    private static String toJson(List<Result> results) {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int r = 0; r < results.size(); r++) {
+            Result result = results.get(r);
+            sb.append("  {\n");
+            sb.append("    \"benchmark\": ").append(quote(result.benchmark)).append(",\n");
+            sb.append("    \"mode\": \"thrpt\",\n");
+            sb.append("    \"params\": {");
+            int p = 0;
+            for (Map.Entry<String, String> entry : result.params.entrySet()) {
+                sb.append(p++ > 0 ? ", " : "").append(quote(entry.getKey())).append(": ")
+                        .append(quote(entry.getValue()));
+            }
+            sb.append("},\n");
+            sb.append("    \"primaryMetric\": ").append(metric(result.opsPerSecond, "ops/s")).append(",\n");
+            sb.append("    \"secondaryMetrics\": {\n");
+            sb.append("      \"avgt\": ").append(metric(result.nanosPerOp, "ns/op")).append(",\n");
+            sb.append("      \"gc.alloc.rate.norm\": ").append(metric(result.bytesPerOp, "B/op")).append("\n");
+            sb.append("    }\n");
+            sb.append("  }").append(r + 1 < results.size() ? ",\n" : "\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    private static String metric(List<Double> values, String unit) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            raw.append(i > 0 ? ", " : "").append(number(values.get(i)));
+        }
+        return String.format("{\"score\": %s, \"scoreError\": %s, \"scoreUnit\": %s, \"rawData\": [[%s]]}",
+                number(mean(values)), number(error(values)), quote(unit), raw);
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static final Pattern ENTRY = Pattern.compile(
+            "\"benchmark\": \"([^\"]*)\".*?\"params\": \\{([^}]*)\\}.*?\"primaryMetric\": \\{.*?\"rawData\": \\[\\[([^\\]]*)\\]\\]"
+                    + ".*?\"avgt\": \\{.*?\"rawData\": \\[\\[([^\\]]*)\\]\\]"
+                    + ".*?\"gc.alloc.rate.norm\": \\{.*?\"rawData\": \\[\\[([^\\]]*)\\]\\]",
+            Pattern.DOTALL);
+    private static final Pattern PARAM = Pattern.compile("\"([^\"]*)\": \"([^\"]*)\"");
+
+    /**
+     * Reads results written by this runner (not a general JSON parser)
+     */
+    private static List<Result> parseResults(String json) {
+        List<Result> results = new ArrayList<>();
+        Matcher m = ENTRY.matcher(json);
+        while (m.find()) {
+            Map<String, String> params = new LinkedHashMap<>();
+            Matcher pm = PARAM.matcher(m.group(2));
+            while (pm.find()) {
+                params.put(pm.group(1), pm.group(2));
+            }
+            Result result = new Result(m.group(1), params);
+            parseRaw(m.group(3), result.opsPerSecond);
+            parseRaw(m.group(4), result.nanosPerOp);
+            parseRaw(m.group(5), result.bytesPerOp);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static void parseRaw(String raw, List<Double> into) {
+        for (String value : raw.split(",")) {
+            if (!value.isBlank()) {
+                into.add(Double.parseDouble(value.trim()));
+            }
+        }
+    }
+    // end JSON
+
+    /**
+     * Prints the throughput change of every benchmark present in both files
+     */
+    private static void compare(Path baselineFile, Path currentFile) throws IOException {
+        Map<String, Result> baseline = new LinkedHashMap<>();
+        for (Result result : parseResults(Files.readString(baselineFile))) {
+            baseline.put(result.label(), result);
+        }
+        for (Result current : parseResults(Files.readString(currentFile))) {
+            Result base = baseline.get(current.label());
+            if (base == null) {
+                System.out.println(String.format("%-60s (new)", current.label()));
+                continue;
+            }
+            double change = (current.getScore() - base.getScore()) / base.getScore() * 100;
+            // overlapping confidence intervals aren't a meaningful difference
+            boolean significant = Math.abs(current.getScore() - base.getScore()) > current.getScoreError()
+                    + base.getScoreError();
+            System.out.println(String.format(Locale.ROOT, "%-60s %14.1f -> %14.1f ops/s %+7.1f%%%s",
+                    current.label(), base.getScore(), current.getScore(), change, significant ? "" : " (noise)"));
+        }
+    }
+}
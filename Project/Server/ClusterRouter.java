@@ -0,0 +1,319 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+import Project.Common.TextFX;
+import Project.Common.TextFX.Color;
+
+/**
+ * Partitions Rooms across multiple Server nodes.
+ * <p>
+ * Room names are placed on a consistent hash ring so every node agrees on who
+ * owns a room without any coordination. The lobby is the exception: every node
+ * hosts its own lobby so clients always have somewhere to land.
+ * </p>
+ * <p>
+ * Nodes talk to each other over a side channel (client port +
+ * PEER_PORT_OFFSET) which is only used for cross-node broadcasts. It listens
+ * on this node's configured host only, accepts connections only from the
+ * addresses of the configured nodes and deserializes nothing but plain
+ * Payloads.
+ * </p>
+ * Example (3 nodes on one machine):
+ *
+ * <pre>
+ * java Project.Server.Server 3000 127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002
+ * java Project.Server.Server 3001 127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002
+ * java Project.Server.Server 3002 127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002
+ * </pre>
+ */
+public enum ClusterRouter {
+    INSTANCE;
+
+    public static final int PEER_PORT_OFFSET = 10000;
+    private static final int VIRTUAL_NODES = 64; // ring points per node, smooths out the distribution
+    // peers only ever send plain MESSAGE Payloads (no trace), anything else is refused
+    private static final ObjectInputFilter PEER_FILTER = ObjectInputFilter.Config.createFilter(
+            "Project.Common.Payload;Project.Common.PayloadType;java.lang.Enum;maxdepth=4;maxrefs=64;"
+                    + "maxbytes=65536;!*");
+
+    private final TreeMap<Long, Node> ring = new TreeMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Node, ObjectOutputStream> peerLinks = new ConcurrentHashMap<>();
+    // peer writes happen off the caller's thread so a slow node can't stall a Room
+    private final ExecutorService peerSender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cluster-peer-sender");
+        t.setDaemon(true);
+        return t;
+    });
+    private Node self;
+    private volatile boolean isRunning = false;
+
+    private final TextFX.Prefix logPrefix = TextFX.prefix("Cluster: ", Color.BLUE);
+
+    private void info(String message) {
+        LoggerUtil.INSTANCE.info(logPrefix.apply(message));
+    }
+
+    /**
+     * A single server node (host and client-facing port)
+     */
+    public static class Node {
+        private final String host;
+        private final int port;
+
+        public Node(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * Parses host:port
+         *
+         * @param text
+         * @return the Node
+         */
+        public static Node parse(String text) {
+            String[] parts = text.trim().split(":");
+            return new Node(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public int getPeerPort() {
+            return port + PEER_PORT_OFFSET;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node other = (Node) o;
+            return port == other.port && host.equals(other.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port);
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    /**
+     * Enables clustered mode.
+     *
+     * @param selfPort the client port this node listens on
+     * @param nodeList comma separated host:port list of every node (including
+     *                 this one)
+     */
+    protected synchronized void configure(int selfPort, String nodeList) {
+        ring.clear();
+        nodes.clear();
+        self = null;
+        for (String entry : nodeList.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            Node node = Node.parse(entry);
+            nodes.add(node);
+            if (node.getPort() == selfPort && self == null) {
+                self = node;
+            }
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        if (self == null) {
+            throw new IllegalArgumentException(String.format("Port %s isn't part of the node list %s", selfPort,
+                    nodeList));
+        }
+        isRunning = true;
+        info(String.format("Node %s joined cluster of %s nodes", self, nodes.size()));
+        Thread listener = new Thread(this::listenToPeers, "cluster-peer-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public boolean isEnabled() {
+        return isRunning && nodes.size() > 1;
+    }
+
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Finds the node responsible for a room
+     *
+     * @param roomName
+     * @return the owning node (this node if not clustered)
+     */
+    public synchronized Node ownerOf(String roomName) {
+        if (ring.isEmpty()) {
+            return self;
+        }
+        Map.Entry<Long, Node> entry = ring.ceilingEntry(hash(roomName.toLowerCase()));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * @param roomName
+     * @return the owning node if it's not this one, otherwise null
+     */
+    protected Node remoteOwnerOf(String roomName) {
+        if (!isEnabled() || Room.LOBBY.equalsIgnoreCase(roomName)) {
+            return null;
+        }
+        Node owner = ownerOf(roomName);
+        return self.equals(owner) ? null : owner;
+    }
+
+    /**
+     * Forwards an already formatted message to every other node
+     *
+     * @param formattedMessage
+     */
+    protected void broadcastToPeers(String formattedMessage) {
+        if (!isEnabled()) {
+            return;
+        }
+        Payload payload = new Payload();
+        payload.setPayloadType(PayloadType.MESSAGE);
+        payload.setMessage(formattedMessage);
+        for (Node node : nodes) {
+            if (!node.equals(self)) {
+                peerSender.execute(() -> sendToPeer(node, payload));
+            }
+        }
+    }
+
+    private void sendToPeer(Node node, Payload payload) {
+        try {
+            ObjectOutputStream out = peerLinks.get(node);
+            if (out == null) {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(node.getHost(), node.getPeerPort()), 1000);
+                out = new ObjectOutputStream(socket.getOutputStream());
+                peerLinks.put(node, out);
+                info("Connected to peer " + node);
+            }
+            out.writeObject(payload);
+            out.flush();
+            out.reset(); // don't let the stream hold on to every payload we've sent
+        } catch (IOException e) {
+            info(String.format("Peer %s unreachable (%s), dropping broadcast", node, e.getMessage()));
+            ObjectOutputStream stale = peerLinks.remove(node);
+            if (stale != null) {
+                try {
+                    stale.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every address the configured nodes' hosts resolve to
+     */
+    private Set<InetAddress> resolvePeerAddresses() {
+        Set<InetAddress> addresses = new HashSet<>();
+        for (Node node : getNodes()) {
+            try {
+                addresses.addAll(List.of(InetAddress.getAllByName(node.getHost())));
+            } catch (IOException e) {
+                info(String.format("Can't resolve node %s (%s), it won't be accepted as a peer", node,
+                        e.getMessage()));
+            }
+        }
+        return addresses;
+    }
+
+    private void listenToPeers() {
+        // bound to this node's configured host, not every interface
+        InetSocketAddress bindAddress = new InetSocketAddress(self.getHost(), self.getPeerPort());
+        try (ServerSocket peerSocket = new ServerSocket()) {
+            peerSocket.bind(bindAddress);
+            Set<InetAddress> peerAddresses = resolvePeerAddresses();
+            info("Listening for peers on " + bindAddress);
+            while (isRunning) {
+                Socket peer = peerSocket.accept();
+                if (!peerAddresses.contains(peer.getInetAddress())) {
+                    info("Refused peer connection from unknown address " + peer.getInetAddress());
+                    try {
+                        peer.close();
+                    } catch (IOException ignored) {
+                    }
+                    continue;
+                }
+                Thread reader = new Thread(() -> readFromPeer(peer), "cluster-peer-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.severe("Cluster peer listener stopped", e);
+        }
+    }
+
+    private void readFromPeer(Socket peer) {
+        try (ObjectInputStream in = new ObjectInputStream(peer.getInputStream())) {
+            in.setObjectInputFilter(PEER_FILTER);
+            while (isRunning) {
+                Payload payload = (Payload) in.readObject();
+                if (payload.getPayloadType() == PayloadType.MESSAGE) {
+                    Server.INSTANCE.relayFromPeer(payload.getMessage());
+                }
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            info("Peer connection closed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a with a murmur style finalizer; stable across JVMs which is
+     * what keeps every node's ring identical
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
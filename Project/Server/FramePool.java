@@ -0,0 +1,189 @@
+package Project.Server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+
+/**
+ * Encodes a Payload once into a shared, reference-counted direct buffer so a
+ * broadcast can write the same bytes to many SocketChannels.
+ * <p>
+ * A frame is the Java serialization of a single object without the stream
+ * header, followed by a TC_RESET. Each recipient writes it as a gathering write
+ * of a leading TC_RESET (so its ObjectInputStream starts from an empty handle
+ * table) plus a read-only duplicate of the frame. See
+ * BaseServerThread.sendFrame() for the writer side of the handshake.
+ * </p>
+ * <p>
+ * Backing buffers come from power-of-two size classes and go back to the pool
+ * once every holder has called release().
+ * </p>
+ */
+public enum FramePool {
+    INSTANCE;
+
+    private static final byte TC_RESET = 0x79; // java.io.ObjectStreamConstants.TC_RESET
+    private static final int STREAM_HEADER_LENGTH = 4; // magic + version
+    private static final int MIN_CLASS_SIZE = 1024;
+    private static final int MAX_CLASS_SIZE = 64 * 1024; // larger frames are allocated unpooled
+    private static final int MAX_POOLED_PER_CLASS = 64;
+
+    private static final ByteBuffer RESET_MARKER = ByteBuffer.allocateDirect(1).put(TC_RESET).flip()
+            .asReadOnlyBuffer();
+
+    private final List<Queue<ByteBuffer>> sizeClasses = new ArrayList<>();
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    FramePool() {
+        int classCount = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE)
+                - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE) + 1;
+        for (int i = 0; i < classCount; i++) {
+            sizeClasses.add(new ArrayBlockingQueue<>(MAX_POOLED_PER_CLASS));
+        }
+    }
+
+    /**
+     * An encoded Payload shared by every recipient of a broadcast
+     */
+    public static class Frame {
+        private final ByteBuffer buffer;
+        private final ByteBuffer readOnly;
+        private final PayloadType payloadType;
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        private Frame(ByteBuffer buffer, PayloadType payloadType) {
+            this.buffer = buffer;
+            this.readOnly = buffer.asReadOnlyBuffer();
+            this.payloadType = payloadType;
+        }
+
+        /**
+         * Adds a holder; each retain() must be paired with a release()
+         *
+         * @return this frame
+         */
+        public Frame retain() {
+            int count;
+            do {
+                count = refCount.get();
+                if (count <= 0) {
+                    throw new IllegalStateException("Frame already released");
+                }
+            } while (!refCount.compareAndSet(count, count + 1));
+            return this;
+        }
+
+        /**
+         * Drops a holder; the last release returns the buffer to the pool
+         */
+        public void release() {
+            int count = refCount.decrementAndGet();
+            if (count == 0) {
+                FramePool.INSTANCE.recycle(buffer);
+            } else if (count < 0) {
+                throw new IllegalStateException("Frame released too many times");
+            }
+        }
+
+        /**
+         * @return the buffers to hand to a gathering write (independent positions
+         *         per call)
+         */
+        public ByteBuffer[] gather() {
+            return new ByteBuffer[] { RESET_MARKER.duplicate(), readOnly.duplicate() };
+        }
+
+        /**
+         * @return encoded size in bytes (excluding the leading reset marker)
+         */
+        public int size() {
+            return readOnly.remaining();
+        }
+
+        /**
+         * @return the type of the encoded Payload
+         */
+        public PayloadType getPayloadType() {
+            return payloadType;
+        }
+    }
+
+    /**
+     * Serializes a Payload into a new Frame with a reference count of 1 (owned by
+     * the caller)
+     *
+     * @param payload
+     * @return the encoded Frame
+     * @throws IOException
+     */
+    public Frame encode(Payload payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeUnshared(payload);
+            oos.reset(); // trailing TC_RESET so the next stream write starts clean
+        }
+        byte[] data = bytes.toByteArray();
+        int length = data.length - STREAM_HEADER_LENGTH;
+        ByteBuffer buffer = acquire(length);
+        buffer.put(data, STREAM_HEADER_LENGTH, length).flip();
+        encoded.increment();
+        return new Frame(buffer, payload.getPayloadType());
+    }
+
+    private ByteBuffer acquire(int size) {
+        int index = classIndex(size);
+        if (index >= 0) {
+            ByteBuffer buffer = sizeClasses.get(index).poll();
+            if (buffer != null) {
+                reused.increment();
+                buffer.clear();
+                return buffer;
+            }
+            allocated.increment();
+            return ByteBuffer.allocateDirect(MIN_CLASS_SIZE << index);
+        }
+        allocated.increment();
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int index = classIndex(capacity);
+        // only exact class sizes go back (oversized frames are left to the GC)
+        if (index >= 0 && (MIN_CLASS_SIZE << index) == capacity) {
+            sizeClasses.get(index).offer(buffer); // dropped if the class is already full
+        }
+    }
+
+    private static int classIndex(int size) {
+        if (size > MAX_CLASS_SIZE) {
+            return -1;
+        }
+        int rounded = Math.max(MIN_CLASS_SIZE, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    }
+
+    public long getEncodedCount() {
+        return encoded.sum();
+    }
+
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+
+    public long getReusedCount() {
+        return reused.sum();
+    }
+}
@@ -1,15 +1,22 @@
 package Project.Server;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import Project.Common.Constants;
+import Project.Common.FlightRecorderEvents;
 import Project.Common.LoggerUtil;
 import Project.Common.Phase;
 import Project.Common.TimedEvent;
+import Project.Common.TimerType;
 import Project.Exceptions.NotReadyException;
 import Project.Exceptions.PhaseMismatchException;
 import Project.Exceptions.PlayerNotFoundException;
@@ -21,6 +28,12 @@ public class GameRoom extends BaseGameRoom {
     private TimedEvent turnTimer = null;
 
     private int round = 0;
+    // open from onRoundStart() until onRoundEnd() (see FlightRecorderEvents)
+    private FlightRecorderEvents.GameRound roundEvent = null;
+    // binary record of the current session (see SessionJournal/SessionReplay)
+    private SessionJournal journal = null;
+    // seeded per session so a journal can be replayed deterministically
+    private Random battleRandom = new Random();
     // Explicit constructor to call the super constructor
     public GameRoom(String name) {
         super(name); // Call the appropriate constructor of BaseGameRoom
@@ -37,6 +50,7 @@ public class GameRoom extends BaseGameRoom {
         syncReadyStatus(sp);
         syncTurnStatus(sp);
         syncPlayerPoints(sp);
+        syncReadyTimer(sp);
     }
 
     /** {@inheritDoc} */
@@ -45,6 +59,9 @@ public class GameRoom extends BaseGameRoom {
         // added after Summer 2024 Demo
         // Stops the timers so room can clean up
         LoggerUtil.INSTANCE.info("Player Removed, remaining: " + clientsInRoom.size());
+        if (sp != null) {
+            journal(sj -> sj.playerLeft(sp.getClientId()));
+        }
         if (clientsInRoom.isEmpty()) {
             resetReadyTimer();
             resetTurnTimer();
@@ -54,8 +71,11 @@ public class GameRoom extends BaseGameRoom {
     }
 
     // timer handlers
-    private void startRoundTimer() {
-        roundTimer = new TimedEvent(30, () -> onRoundEnd());
+    protected void startRoundTimer() {
+        roundTimer = new TimedEvent(30, () -> {
+            journal(sj -> sj.timerExpired(TimerType.ROUND));
+            onRoundEnd();
+        });
         roundTimer.setTickCallback((time) -> System.out.println("Round Time: " + time));
     }
 
@@ -66,8 +86,11 @@ public class GameRoom extends BaseGameRoom {
         }
     }
 
-    private void startTurnTimer() {
-        turnTimer = new TimedEvent(30, () -> onTurnEnd());
+    protected void startTurnTimer() {
+        turnTimer = new TimedEvent(30, () -> {
+            journal(sj -> sj.timerExpired(TimerType.TURN));
+            onTurnEnd();
+        });
         turnTimer.setTickCallback((time) -> System.out.println("Turn Time: " + time));
     }
 
@@ -79,12 +102,69 @@ public class GameRoom extends BaseGameRoom {
     }
     // end timer handlers
 
+    // session journal
+    /**
+     * @return the seed for this session's battle outcomes
+     */
+    protected long newSessionSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * @return the journal for a new session or null to skip journaling
+     */
+    protected SessionJournal openJournal() {
+        try {
+            return SessionJournal.open(getName());
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning("Failed to open session journal for " + getName(), e);
+            return null;
+        }
+    }
+
+    private void journal(Consumer<SessionJournal> write) {
+        SessionJournal current = journal;
+        if (current != null) {
+            write.accept(current);
+        }
+    }
+
+    private void startJournal() {
+        long seed = newSessionSeed();
+        battleRandom = new Random(seed);
+        journal = openJournal();
+        Map<Long, String> players = new TreeMap<>();
+        clientsInRoom.values().stream().filter(ServerThread::isReady)
+                .forEach(sp -> players.put(sp.getClientId(), sp.getClientName()));
+        journal(sj -> sj.sessionStart(getName(), seed, players));
+    }
+
+    private void endJournal() {
+        SessionJournal current = journal;
+        journal = null;
+        if (current != null) {
+            current.sessionEnd();
+            current.close();
+        }
+    }
+
+    @Override
+    protected void changePhase(Phase phase) {
+        boolean changed = currentPhase != phase;
+        super.changePhase(phase);
+        if (changed) {
+            journal(sj -> sj.phase(phase));
+        }
+    }
+    // end session journal
+
     // lifecycle methods
 
     /** {@inheritDoc} */
     @Override
     protected void onSessionStart() {
         LoggerUtil.INSTANCE.info("onSessionStart() start");
+        startJournal();
         changePhase(Phase.IN_PROGRESS);
         round = 0;
         LoggerUtil.INSTANCE.info("onSessionStart() end");
@@ -98,6 +178,9 @@ public class GameRoom extends BaseGameRoom {
         resetRoundTimer();
         resetTurnStatus();
         round++;
+        journal(sj -> sj.roundStart(round));
+        roundEvent = new FlightRecorderEvents.GameRound();
+        roundEvent.begin();
         relay(null, String.format("Round %d has started", round));
         startRoundTimer();
         LoggerUtil.INSTANCE.info("onRoundStart() end");
@@ -140,6 +223,7 @@ public class GameRoom extends BaseGameRoom {
     protected void onRoundEnd() {
         LoggerUtil.INSTANCE.info("onRoundEnd() start");
         resetRoundTimer(); // reset timer if round ended without the time expiring
+        commitRoundEvent();
         ProcessBattles();
         LoggerUtil.INSTANCE.info("onRoundEnd() end");
         if (round >= 3) {
@@ -151,10 +235,27 @@ public class GameRoom extends BaseGameRoom {
         }
     }
 
+    private void commitRoundEvent() {
+        FlightRecorderEvents.GameRound event = roundEvent;
+        roundEvent = null;
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = getName();
+            event.round = round;
+            event.players = clientsInRoom.size();
+            event.picks = (int) clientsInRoom.values().stream().filter(ServerThread::didTakeTurn).count();
+            event.commit();
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void onSessionEnd() {
         LoggerUtil.INSTANCE.info("onSessionEnd() start");
+        commitRoundEvent(); // round abandoned (everyone left)
         resetReadyStatus();
         resetTurnStatus();
         clientsInRoom.values().forEach(this::syncPlayerPoints);
@@ -162,6 +263,7 @@ public class GameRoom extends BaseGameRoom {
         LoggerUtil.INSTANCE.info("onSessionEnd() end");
         ProcessBattles();
         endGame(); // Call endGame when the session ends
+        endJournal();
     }
     // end lifecycle methods
 
@@ -299,6 +401,7 @@ public void sendAwayStatus(long clientId, boolean isAway) {
                 return;
             }
             currentUser.setTookTurn(true);
+            journal(sj -> sj.turn(currentUser.getClientId()));
             // TODO handle example text possibly or other turn related intention from client
             sendTurnStatus(currentUser, currentUser.didTakeTurn());
             checkAllTookTurn();
@@ -318,11 +421,15 @@ public void sendAwayStatus(long clientId, boolean isAway) {
             LoggerUtil.INSTANCE.severe("handleTurnAction exception", e);
         }
     }
-private void ProcessBattles(){
+protected void ProcessBattles(){
     LoggerUtil.INSTANCE.info("ProcessBattles() start");
+    FlightRecorderEvents.BattlesProcessed event = new FlightRecorderEvents.BattlesProcessed();
+    event.begin();
 
+    // sorted so the pairings (and the seeded outcomes) don't depend on map order
     List<ServerThread> readyPlayers = clientsInRoom.values().stream()
-    .filter(ServerThread::isReady).collect(Collectors.toList());
+    .filter(ServerThread::isReady).sorted(Comparator.comparingLong(ServerThread::getClientId))
+    .collect(Collectors.toList());
 
     List<ServerThread> toEliminate = readyPlayers.stream()
     .filter(p->p.getChoice()==null).collect(Collectors.toList());
@@ -337,51 +444,69 @@ private void ProcessBattles(){
         for (int j = i+1; j<battlers.size(); j++){
             ServerThread player2 = battlers.get(j);
         // Simulate a battle between player1 and player2
-            int result = new Random().nextInt(3); // 0: draw, 1: player1 wins, 2: player2 wins
-
-            
-         if (result == 1) {
-            player1.changePoints(1);
-            player2.setEliminated(true);
-            sendGameEvent(player1.getDisplayName() + " wins against " + player2.getDisplayName());
-        } else if (result == 2) {
-            player2.changePoints(1);
-            player1.setEliminated(true);
-            sendGameEvent(player2.getDisplayName() + " wins against " + player1.getDisplayName());
-        } else {
-            for (int k = j + 1; k < battlers.size(); k++) {
-                ServerThread player3 = battlers.get(k);
-                int result3 = new Random().nextInt(3); // 0: draw, 1: player1 wins, 2: player3 wins
-                if (result3 == 1) {
-                    player1.changePoints(1);
-                    player3.setEliminated(true);
-                    sendGameEvent(player1.getDisplayName() + " wins against " + player3.getDisplayName());
-                } else if (result3 == 2) {
-                    player3.changePoints(1);
-                    player1.setEliminated(true);
-                    sendGameEvent(player3.getDisplayName() + " wins against " + player1.getDisplayName());
-                } else if (result3 == 1) {
-                    player3.changePoints(1);
-                    player2.setEliminated(true);
-                    sendGameEvent(player3.getDisplayName() + " wins against " + player2.getDisplayName());
-                } else if (result3 == 2) {
-                    player2.changePoints(1);
-                    player3.setEliminated(true);
-                    sendGameEvent(player2.getDisplayName() + " wins against " + player3.getDisplayName());
-                }else {
-                    sendGameEvent("Battle between " + player1.getDisplayName() + ", " + player2.getDisplayName() + " and " + player3.getDisplayName() + " is a draw");
-                }
+            int result = battleRandom.nextInt(3); // 0: draw, 1: player1 wins, 2: player2 wins
+            if (result == 1) {
+                recordWin(player1, player2, player1, player2);
+            } else if (result == 2) {
+                recordWin(player2, player1, player1, player2);
+            } else {
+                resolveDraw(player1, player2, battlers.subList(j + 1, battlers.size()));
             }
         }
-        }
         // Update all players with their new points
         LoggerUtil.INSTANCE.info("ProcessBattles() end");
         String message = "Battle results have been processed.";
         sendGameEvent(message); 
         }
+        battlers.forEach(p -> journal(sj -> sj.points(p.getClientId(), p.getPoints())));
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = getName();
+            event.battlers = battlers.size();
+            event.commit();
+        }
         }
             
     
+    /**
+     * Scores a two player battle and journals it as exactly one BATTLE record
+     *
+     * @param first  first battler (journal order)
+     * @param second second battler (journal order)
+     */
+    private void recordWin(ServerThread winner, ServerThread loser, ServerThread first, ServerThread second) {
+        journal(sj -> sj.battle(winner.getClientId(), first.getClientId(), second.getClientId()));
+        winner.changePoints(1);
+        loser.setEliminated(true);
+        sendGameEvent(winner.getDisplayName() + " wins against " + loser.getDisplayName());
+    }
+
+    /**
+     * player1 and player2 drew; player1 then faces each later battler. A draw
+     * there is a three-way draw (one BATTLE of all three), otherwise it's a two
+     * player result. The plain two player draw is only journaled if it didn't
+     * turn into a three-way one.
+     */
+    private void resolveDraw(ServerThread player1, ServerThread player2, List<ServerThread> challengers) {
+        boolean isThreeWay = false;
+        for (ServerThread player3 : challengers) {
+            int result3 = battleRandom.nextInt(3); // 0: draw, 1: player1 wins, 2: player3 wins
+            if (result3 == 1) {
+                recordWin(player1, player3, player1, player3);
+            } else if (result3 == 2) {
+                recordWin(player3, player1, player1, player3);
+            } else {
+                isThreeWay = true;
+                journal(sj -> sj.battle(0, player1.getClientId(), player2.getClientId(), player3.getClientId()));
+                sendGameEvent("Battle between " + player1.getDisplayName() + ", " + player2.getDisplayName()
+                        + " and " + player3.getDisplayName() + " is a draw");
+            }
+        }
+        if (!isThreeWay) {
+            journal(sj -> sj.battle(0, player1.getClientId(), player2.getClientId()));
+        }
+    }
+
     private void endGame(){
         changePhase(Phase.ENDED); // Assuming changePhase is the intended method
         sendGameEvent("Game Over");
@@ -406,6 +531,7 @@ protected void handleAwayAction(ServerThread sender){
     try{
         checkPlayerInRoom(sender);
         sender.setAway(!sender.isAway());
+        journal(sj -> sj.away(sender.getClientId()));
         if (sender.isAway()){
             sendGameEvent(String.format("%s is now away", sender.getDisplayName()));
         } else {
@@ -435,6 +561,7 @@ protected void handleAwayAction(ServerThread sender){
     
             sp.setChoice(choice); // Assuming ServerThread has setChoice(String) method
             sp.setTookTurn(true);
+            journal(sj -> sj.pick(sp.getClientId(), choice));
     
             relay(null, sp.getDisplayName() + " has made their pick.");
             sendTurnStatus(sp, true);
@@ -0,0 +1,156 @@
+package Project.Server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import Project.Common.LoggerUtil;
+import Project.Common.TextFX;
+import Project.Common.TextFX.Color;
+
+/**
+ * Executes decoded client payloads off of the socket read threads.
+ * <p>
+ * The pool is made of single-threaded lanes, each with a bounded queue. Work is
+ * keyed (usually by Room name) so everything for one Room runs on the same
+ * lane in submission order, while different Rooms run in parallel. The number
+ * of lanes is independent of the number of connections.
+ * </p>
+ */
+public enum GameWorkerPool {
+    INSTANCE;
+
+    private int laneCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private int queueCapacity = 1024;
+    private ThreadPoolExecutor[] lanes = null;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    private final TextFX.Prefix logPrefix = TextFX.prefix("Workers: ", Color.GREEN);
+
+    private void info(String message) {
+        LoggerUtil.INSTANCE.info(logPrefix.apply(message));
+    }
+
+    /**
+     * Sets the pool size; must be called before the first submit()
+     *
+     * @param laneCount     number of worker threads (each is its own ordered lane)
+     * @param queueCapacity max queued tasks per lane before submissions are
+     *                      rejected
+     */
+    public synchronized void configure(int laneCount, int queueCapacity) {
+        if (lanes != null) {
+            throw new IllegalStateException("GameWorkerPool already started");
+        }
+        this.laneCount = Math.max(1, laneCount);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    private synchronized ThreadPoolExecutor[] getLanes() {
+        if (lanes == null) {
+            lanes = new ThreadPoolExecutor[laneCount];
+            for (int i = 0; i < laneCount; i++) {
+                final int laneId = i;
+                lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), r -> {
+                            Thread t = new Thread(r, "game-worker-" + laneId);
+                            t.setDaemon(true);
+                            return t;
+                        });
+                lanes[i].prestartCoreThread(); // submitBlocking() queues without execute()
+            }
+            info(String.format("Started %s lanes (queue capacity %s each)", laneCount, queueCapacity));
+        }
+        return lanes;
+    }
+
+    /**
+     * Maps a key (Room name, client id, etc) to a lane
+     *
+     * @param key
+     * @return the lane index
+     */
+    public int laneFor(Object key) {
+        return Math.floorMod(key.hashCode(), getLanes().length);
+    }
+
+    /**
+     * Queues a task on a specific lane
+     *
+     * @param lane lane index from laneFor()
+     * @param task
+     * @return false if the lane's queue is full (task not queued)
+     */
+    public boolean submit(int lane, Runnable task) {
+        try {
+            getLanes()[lane].execute(task);
+            submitted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Queues a task on a specific lane, waiting for room if the queue is full.
+     * For work that must not be dropped; the caller is held back instead.
+     *
+     * @param lane lane index from laneFor()
+     * @param task
+     * @return false only if interrupted while waiting (task not queued)
+     */
+    public boolean submitBlocking(int lane, Runnable task) {
+        ThreadPoolExecutor executor = getLanes()[lane];
+        try {
+            executor.execute(task);
+            submitted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            // full, but this task isn't rejected: wait for room (counted as blocked)
+        }
+        blocked.increment();
+        try {
+            executor.getQueue().put(task);
+            submitted.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    /**
+     * @return total tasks currently waiting across all lanes
+     */
+    public int getQueuedCount() {
+        int total = 0;
+        for (ThreadPoolExecutor lane : getLanes()) {
+            total += lane.getQueue().size();
+        }
+        return total;
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return submitBlocking() calls that had to wait for a full lane
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+}
@@ -0,0 +1,187 @@
+package Project.Server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import Project.Common.Histogram;
+
+/**
+ * Optional monitor contention profiling for the Room/Server critical sections.
+ * <p>
+ * The profiled sections stay synchronized methods; their callers only go
+ * through locked() when isEnabled(), so with profiling off the hot paths are a
+ * plain monitor enter with no lambda allocated. While enabled
+ * (-Dprofile.locks=true) each outermost acquisition records how long
+ * the thread waited for the monitor and how long it held it, per owner (Room
+ * name or "Server") and method. Per-thread blocked totals come from the JVM's
+ * thread contention monitoring. The report is served at /locks.
+ * </p>
+ */
+public enum LockProfiler {
+    INSTANCE;
+
+    // waits shorter than this are an uncontended acquisition
+    private static final long CONTENDED_NANOS = 1_000;
+    // owners past this are folded into OTHER so short-lived rooms can't grow the map forever
+    private static final int MAX_OWNERS = 1024;
+    private static final String OTHER = "(other)";
+    private static final int TOP = 10;
+
+    private static class Section {
+        private final String owner;
+        private final String method;
+        private final Histogram wait = new Histogram();
+        private final Histogram hold = new Histogram();
+        private final LongAdder contended = new LongAdder();
+
+        private Section(String owner, String method) {
+            this.owner = owner;
+            this.method = method;
+        }
+    }
+
+    private volatile boolean enabled = false;
+    private volatile long enabledAt = 0;
+    private final Map<String, Map<String, Section>> owners = new ConcurrentHashMap<>();
+    private final AtomicInteger ownerCount = new AtomicInteger();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns profiling (and the JVM's per-thread contention monitoring) on or off
+     *
+     * @param enabled
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadContentionMonitoringSupported()) {
+            threads.setThreadContentionMonitoringEnabled(enabled);
+        }
+        if (enabled && !this.enabled) {
+            enabledAt = System.currentTimeMillis();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Runs body while holding monitor's lock, the same as a synchronized method
+     *
+     * @param monitor the object to synchronize on (usually this)
+     * @param owner   reported owner (Room name, "Server")
+     * @param method  reported section name
+     * @param body
+     */
+    public void locked(Object monitor, String owner, String method, Runnable body) {
+        // reentrant calls (e.g. BaseGameRoom -> Room) can't wait, only the outermost counts
+        if (!enabled || Thread.holdsLock(monitor)) {
+            synchronized (monitor) {
+                body.run();
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        synchronized (monitor) {
+            long acquired = System.nanoTime();
+            try {
+                body.run();
+            } finally {
+                record(owner, method, acquired - start, System.nanoTime() - acquired);
+            }
+        }
+    }
+
+    private void record(String owner, String method, long waitNanos, long holdNanos) {
+        Map<String, Section> methods = owners.get(owner);
+        if (methods == null) {
+            if (ownerCount.get() >= MAX_OWNERS) {
+                owner = OTHER;
+            }
+            methods = owners.computeIfAbsent(owner, (o) -> {
+                ownerCount.incrementAndGet();
+                return new ConcurrentHashMap<>();
+            });
+        }
+        String sectionOwner = owner;
+        Section section = methods.computeIfAbsent(method, (m) -> new Section(sectionOwner, m));
+        section.wait.record(waitNanos);
+        section.hold.record(holdNanos);
+        if (waitNanos >= CONTENDED_NANOS) {
+            section.contended.increment();
+        }
+    }
+
+    /**
+     * Clears the recorded sections (the JVM's per-thread totals can't be reset)
+     */
+    public void reset() {
+        owners.clear();
+        ownerCount.set(0);
+    }
+
+    /**
+     * Renders the most contended owners, sections and threads (times in
+     * microseconds unless noted)
+     *
+     * @return the report text
+     */
+    public String report() {
+        if (!enabled) {
+            return String.format("Lock profiling is off, start the server with -Dprofile.locks=true%n");
+        }
+        List<Section> sections = owners.values().stream().flatMap(m -> m.values().stream())
+                .collect(Collectors.toList());
+        StringBuilder sb = new StringBuilder(String.format("Lock profile since %s%n",
+                new SimpleDateFormat("HH:mm:ss").format(new Date(enabledAt))));
+
+        sb.append(String.format("%nTop owners by total wait%n  %-24s %10s %10s %12s %12s%n", "owner",
+                "acquired", "contended", "wait ms", "hold ms"));
+        sections.stream().collect(Collectors.groupingBy(s -> s.owner)).entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, List<Section>> e) -> -sum(e.getValue(), true)))
+                .limit(TOP)
+                .forEach(e -> sb.append(String.format("  %-24s %10d %10d %12.3f %12.3f%n", e.getKey(),
+                        e.getValue().stream().mapToLong(s -> s.wait.getCount()).sum(),
+                        e.getValue().stream().mapToLong(s -> s.contended.sum()).sum(),
+                        sum(e.getValue(), true) / 1e6, sum(e.getValue(), false) / 1e6)));
+
+        sb.append(String.format("%nTop sections by total wait%n"));
+        sections.stream().sorted(Comparator.comparingLong((Section s) -> -s.wait.getSum())).limit(TOP)
+                .forEach(s -> sb.append(String.format("  %s#%s contended=%d/%d wait ms=%.3f hold ms=%.3f%n"
+                        + "    wait(us) %s%n    hold(us) %s%n", s.owner, s.method, s.contended.sum(),
+                        s.wait.getCount(), s.wait.getSum() / 1e6, s.hold.getSum() / 1e6,
+                        s.wait.summary(1e3), s.hold.summary(1e3))));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadContentionMonitoringEnabled()) {
+            sb.append(String.format("%nTop threads by blocked time%n  %-32s %10s %14s%n", "thread", "blocked",
+                    "blocked ms"));
+            Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds())).filter(Objects::nonNull)
+                    .filter(t -> t.getBlockedCount() > 0)
+                    .sorted(Comparator.comparingLong((ThreadInfo t) -> -t.getBlockedTime())).limit(TOP)
+                    .forEach(t -> sb.append(String.format("  %-32s %10d %14d%n", t.getThreadName(),
+                            t.getBlockedCount(), t.getBlockedTime())));
+        }
+        return sb.toString();
+    }
+
+    private static long sum(List<Section> sections, boolean wait) {
+        long total = 0;
+        for (Section section : sections) {
+            total += wait ? section.wait.getSum() : section.hold.getSum();
+        }
+        return total;
+    }
+}
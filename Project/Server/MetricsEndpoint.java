@@ -0,0 +1,105 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import Project.Common.LoggerUtil;
+import Project.Common.Metrics;
+import Project.Common.TextFX;
+import Project.Common.TextFX.Color;
+
+/**
+ * Local (loopback only) HTTP endpoint for scraping metrics and other plain text
+ * admin pages.
+ * <p>
+ * Listens on the client port + PORT_OFFSET, e.g. a server on 3000 serves
+ * http://127.0.0.1:23000/metrics in the Prometheus text format.
+ * </p>
+ */
+public enum MetricsEndpoint {
+    INSTANCE;
+
+    public static final int PORT_OFFSET = 20000;
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private HttpServer httpServer;
+
+    private final TextFX.Prefix logPrefix = TextFX.prefix("Metrics: ", Color.GREEN);
+
+    private void info(String message) {
+        LoggerUtil.INSTANCE.info(logPrefix.apply(message));
+    }
+
+    /**
+     * Starts serving /metrics; failures are logged and otherwise ignored so the
+     * game server still runs
+     *
+     * @param port
+     */
+    protected synchronized void start(int port) {
+        if (httpServer != null) {
+            return;
+        }
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            httpServer.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "metrics-http");
+                t.setDaemon(true);
+                return t;
+            }));
+            register("/metrics", PROMETHEUS_CONTENT_TYPE, Metrics.INSTANCE::scrape);
+            httpServer.start();
+            info("Serving http://127.0.0.1:" + port + "/metrics");
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning("Metrics endpoint disabled, couldn't bind port " + port, e);
+            httpServer = null;
+        }
+    }
+
+    /**
+     * Adds a plain text page
+     *
+     * @param path e.g. /traces
+     * @param body generated per request
+     */
+    public synchronized void register(String path, Supplier<String> body) {
+        register(path, "text/plain; charset=utf-8", body);
+    }
+
+    private void register(String path, String contentType, Supplier<String> body) {
+        if (httpServer == null) {
+            return;
+        }
+        httpServer.createContext(path, exchange -> respond(exchange, contentType, body));
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, Supplier<String> body) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    protected synchronized void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+}
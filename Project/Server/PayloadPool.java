@@ -0,0 +1,79 @@
+package Project.Server;
+
+import Project.Common.ConnectionPayload;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+import Project.Common.PointsPayload;
+import Project.Common.ReadyPayload;
+import Project.Common.TimerPayload;
+
+/**
+ * Per-connection set of reusable outbound Payloads.
+ * <p>
+ * Each ServerThread owns one pool holding a single instance of each Payload
+ * subclass. Since sendToClient() serializes synchronously, an instance is free
+ * to be reset and reused as soon as the send returns.
+ * </p>
+ * <p>
+ * Important: Not thread-safe. Callers must hold the owning ServerThread's
+ * monitor from acquire through sendToClient().
+ * </p>
+ */
+public class PayloadPool {
+    private static volatile boolean enabled = true;
+
+    private final Payload payload = new Payload();
+    private final ReadyPayload readyPayload = new ReadyPayload();
+    private final PointsPayload pointsPayload = new PointsPayload();
+    private final TimerPayload timerPayload = new TimerPayload();
+    private final ConnectionPayload connectionPayload = new ConnectionPayload();
+
+    /**
+     * Turns pooling on/off for every connection (off allocates a new Payload per
+     * send, mostly useful for comparisons)
+     *
+     * @param isEnabled
+     */
+    public static void setEnabled(boolean isEnabled) {
+        enabled = isEnabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    protected Payload payload(PayloadType type) {
+        Payload p = enabled ? payload : new Payload();
+        p.reset();
+        p.setPayloadType(type);
+        return p;
+    }
+
+    protected ReadyPayload ready(PayloadType type) {
+        ReadyPayload p = enabled ? readyPayload : new ReadyPayload();
+        p.reset();
+        p.setPayloadType(type);
+        return p;
+    }
+
+    protected PointsPayload points() {
+        PointsPayload p = enabled ? pointsPayload : new PointsPayload();
+        p.reset();
+        p.setPayloadType(PayloadType.POINTS);
+        return p;
+    }
+
+    protected TimerPayload timer() {
+        TimerPayload p = enabled ? timerPayload : new TimerPayload();
+        p.reset();
+        p.setPayloadType(PayloadType.TIME);
+        return p;
+    }
+
+    protected ConnectionPayload connection(PayloadType type) {
+        ConnectionPayload p = enabled ? connectionPayload : new ConnectionPayload();
+        p.reset();
+        p.setPayloadType(type);
+        return p;
+    }
+}
@@ -0,0 +1,294 @@
+package Project.Server;
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import Project.Common.PayloadType;
+
+/**
+ * Server-side admission control.
+ * <p>
+ * Each client gets a token bucket per PayloadType plus an overall bucket so a
+ * single spamming client can't flood a Room's relay or the room registry.
+ * The Server also uses a global bucket to limit how fast new connections are
+ * accepted.
+ * </p>
+ * Over-limit requests are counted and dropped before any Room logic runs.
+ */
+public enum RateLimiter {
+    INSTANCE;
+
+    private RateLimitConfig config = new RateLimitConfig();
+    private TokenBucket connectionBucket = config.createConnectionBucket();
+    private final EnumMap<PayloadType, LongAdder> accepted = new EnumMap<>(PayloadType.class);
+    private final EnumMap<PayloadType, LongAdder> rejected = new EnumMap<>(PayloadType.class);
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    RateLimiter() {
+        for (PayloadType type : PayloadType.values()) {
+            accepted.put(type, new LongAdder());
+            rejected.put(type, new LongAdder());
+        }
+    }
+
+    /**
+     * Sets the configuration for the limiter.
+     * Only affects ClientLimits created after this call.
+     *
+     * @param config the RateLimitConfig containing all the limits
+     */
+    public synchronized void setConfig(RateLimitConfig config) {
+        this.config = config;
+        this.connectionBucket = config.createConnectionBucket();
+    }
+
+    public RateLimitConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Creates the per-client set of buckets (one per ServerThread)
+     *
+     * @return a new ClientLimits instance based on the current config
+     */
+    protected ClientLimits newClientLimits() {
+        return new ClientLimits(config);
+    }
+
+    /**
+     * Global admission check for new connections (called from the accept loop)
+     *
+     * @return true if the connection may proceed
+     */
+    protected boolean admitConnection() {
+        if (!config.isEnabled() || connectionBucket.tryAcquire()) {
+            acceptedConnections.increment();
+            return true;
+        }
+        rejectedConnections.increment();
+        return false;
+    }
+
+    public long getAcceptedCount(PayloadType type) {
+        return accepted.get(type).sum();
+    }
+
+    public long getRejectedCount(PayloadType type) {
+        return rejected.get(type).sum();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    /**
+     * @return a single line summary of the non-zero counters
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("connections accepted=%d rejected=%d", getAcceptedConnections(),
+                getRejectedConnections()));
+        for (PayloadType type : PayloadType.values()) {
+            long a = getAcceptedCount(type);
+            long r = getRejectedCount(type);
+            if (a > 0 || r > 0) {
+                sb.append(String.format(" | %s accepted=%d rejected=%d", type, a, r));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Per-client buckets.
+     * <p>
+     * Note: Only touched from the owning ServerThread's read loop so no
+     * synchronization is needed.
+     * </p>
+     */
+    protected class ClientLimits {
+        private final boolean enabled;
+        private final TokenBucket overall;
+        private final EnumMap<PayloadType, TokenBucket> perType = new EnumMap<>(PayloadType.class);
+
+        private ClientLimits(RateLimitConfig config) {
+            enabled = config.isEnabled();
+            overall = new TokenBucket(config.getClientRatePerSecond(), config.getClientBurst());
+            for (PayloadType type : PayloadType.values()) {
+                TokenBucket bucket = config.createBucket(type);
+                if (bucket != null) {
+                    perType.put(type, bucket);
+                }
+            }
+        }
+
+        /**
+         * Attempts to take a token for the given type and the overall bucket;
+         * neither is charged unless both have one
+         *
+         * @param type
+         * @return true if the payload may be processed
+         */
+        protected boolean tryAcquire(PayloadType type) {
+            if (!enabled || type == null || RateLimitConfig.isExempt(type)) {
+                return true;
+            }
+            TokenBucket bucket = perType.get(type);
+            if (bucket != null && !bucket.tryAcquire()) {
+                rejected.get(type).increment();
+                return false;
+            }
+            boolean allowed = overall.tryAcquire();
+            if (!allowed && bucket != null) {
+                bucket.refund(); // nothing was processed, don't charge the type's budget
+            }
+            (allowed ? accepted : rejected).get(type).increment();
+            return allowed;
+        }
+    }
+
+    /**
+     * Classic token bucket; refills continuously based on System.nanoTime()
+     */
+    protected static class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        protected TokenBucket(double ratePerSecond, int burst) {
+            this.ratePerNano = ratePerSecond / 1_000_000_000d;
+            this.capacity = Math.max(1, burst);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        protected boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Gives back a token taken by tryAcquire() for work that didn't happen
+         */
+        protected void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+
+    /**
+     * Configuration class for the RateLimiter.
+     * Rates are in tokens per second and burst is the bucket capacity.
+     */
+    public static class RateLimitConfig {
+        private boolean enabled = true;
+        private double clientRatePerSecond = 20; // default overall rate per client
+        private int clientBurst = 40;
+        private double connectionRatePerSecond = 50; // default global accept rate
+        private int connectionBurst = 100;
+        private final EnumMap<PayloadType, double[]> typeLimits = new EnumMap<>(PayloadType.class);
+
+        public RateLimitConfig() {
+            setTypeLimit(PayloadType.MESSAGE, 5, 10);
+            setTypeLimit(PayloadType.REVERSE, 5, 10);
+            setTypeLimit(PayloadType.ROOM_LIST, 2, 5);
+            setTypeLimit(PayloadType.ROOM_CREATE, 1, 3);
+            setTypeLimit(PayloadType.ROOM_JOIN, 2, 5);
+            setTypeLimit(PayloadType.ROOM_LEAVE, 2, 5);
+            setTypeLimit(PayloadType.READY, 2, 5);
+            setTypeLimit(PayloadType.TURN, 5, 5);
+            setTypeLimit(PayloadType.PICK, 5, 5);
+            setTypeLimit(PayloadType.AWAY, 2, 5);
+        }
+
+        /**
+         * Handshake and disconnect are never dropped
+         *
+         * @param type
+         * @return true if the type bypasses limits
+         */
+        protected static boolean isExempt(PayloadType type) {
+            return type == PayloadType.CLIENT_CONNECT || type == PayloadType.DISCONNECT;
+        }
+
+        private TokenBucket createBucket(PayloadType type) {
+            double[] limit = typeLimits.get(type);
+            return limit == null ? null : new TokenBucket(limit[0], (int) limit[1]);
+        }
+
+        private TokenBucket createConnectionBucket() {
+            return new TokenBucket(connectionRatePerSecond, connectionBurst);
+        }
+
+        /**
+         * Sets (or replaces) the limit for a specific PayloadType
+         *
+         * @param type          the payload type
+         * @param ratePerSecond sustained rate
+         * @param burst         bucket capacity
+         */
+        public void setTypeLimit(PayloadType type, double ratePerSecond, int burst) {
+            typeLimits.put(type, new double[] { ratePerSecond, burst });
+        }
+
+        /**
+         * Removes the limit for a specific PayloadType (only the overall limit
+         * applies)
+         *
+         * @param type the payload type
+         */
+        public void clearTypeLimit(PayloadType type) {
+            typeLimits.remove(type);
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getClientRatePerSecond() {
+            return clientRatePerSecond;
+        }
+
+        public void setClientRatePerSecond(double clientRatePerSecond) {
+            this.clientRatePerSecond = clientRatePerSecond;
+        }
+
+        public int getClientBurst() {
+            return clientBurst;
+        }
+
+        public void setClientBurst(int clientBurst) {
+            this.clientBurst = clientBurst;
+        }
+
+        public double getConnectionRatePerSecond() {
+            return connectionRatePerSecond;
+        }
+
+        public void setConnectionRatePerSecond(double connectionRatePerSecond) {
+            this.connectionRatePerSecond = connectionRatePerSecond;
+        }
+
+        public int getConnectionBurst() {
+            return connectionBurst;
+        }
+
+        public void setConnectionBurst(int connectionBurst) {
+            this.connectionBurst = connectionBurst;
+        }
+    }
+}
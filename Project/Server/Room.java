@@ -1,9 +1,15 @@
 package Project.Server;
 
+import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+import Project.Common.ConnectionPayload;
 import Project.Common.Constants;
+import Project.Common.FlightRecorderEvents;
 import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
 import Project.Common.RoomAction;
 import Project.Common.TextFX;
 import Project.Common.TextFX.Color;
@@ -16,13 +22,19 @@ public class Room implements AutoCloseable {
     protected final ConcurrentHashMap<Long, ServerThread> clientsInRoom = new ConcurrentHashMap<Long, ServerThread>();
 
     public final static String LOBBY = "lobby";
+    // below this many recipients the per-client (pooled) sends are cheaper than
+    // encoding a shared frame
+    private final static int SHARED_FRAME_MIN_RECIPIENTS = 8;
+
+    private final TextFX.Prefix logPrefix;
 
     private void info(String message) {
-        LoggerUtil.INSTANCE.info(TextFX.colorize(String.format("Room[%s]: %s", name, message), Color.PURPLE));
+        LoggerUtil.INSTANCE.info(logPrefix.apply(message));
     }
 
     public Room(String name) {
         this.name = name;
+        logPrefix = TextFX.prefix(String.format("Room[%s]: ", name), Color.PURPLE);
         isRunning = true;
         info("Created");
     }
@@ -35,7 +47,15 @@ public class Room implements AutoCloseable {
         return isRunning;
     }
 
-    protected synchronized void addClient(ServerThread client) {
+    protected void addClient(ServerThread client) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, name, "addClient", () -> addClientLocked(client));
+        } else {
+            addClientLocked(client);
+        }
+    }
+
+    private synchronized void addClientLocked(ServerThread client) {
         if (!isRunning) { // block action if Room isn't running
             return;
         }
@@ -49,10 +69,17 @@ public class Room implements AutoCloseable {
         syncExistingClients(client);
         // notify clients of someone joining
         joinStatusRelay(client, true);
+    }
 
+    protected void removeClient(ServerThread client) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, name, "removeClient", () -> removeClientLocked(client));
+        } else {
+            removeClientLocked(client);
+        }
     }
 
-    protected synchronized void removeClient(ServerThread client) {
+    private synchronized void removeClientLocked(ServerThread client) {
         if (!isRunning) { // block action if Room isn't running
             return;
         }
@@ -88,22 +115,77 @@ public class Room implements AutoCloseable {
     }
 
     private void joinStatusRelay(ServerThread client, boolean didJoin) {
-        clientsInRoom.values().removeIf(serverThread -> {
-
-            // Share info of the client joining or leaving the room
-            boolean failedToSync = !serverThread.sendClientInfo(
-                    client.getClientId(), // client id
-                    client.getClientName(), // client name
-                    getName(), // room name
-                    didJoin ? RoomAction.JOIN : RoomAction.LEAVE // action
-            );
-            if (failedToSync) {
-                LoggerUtil.INSTANCE.warning(
-                        String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
-                disconnect(serverThread);
+        // same shape as ServerThread.sendClientInfo()
+        ConnectionPayload payload = new ConnectionPayload();
+        payload.setPayloadType(didJoin ? PayloadType.ROOM_JOIN : PayloadType.ROOM_LEAVE);
+        payload.setClientId(client.getClientId());
+        payload.setClientName(client.getClientName());
+        payload.setMessage(getName());// pass room name
+
+        // Share info of the client joining or leaving the room
+        broadcast(payload, serverThread -> serverThread.sendClientInfo(
+                client.getClientId(), // client id
+                client.getClientName(), // client name
+                getName(), // room name
+                didJoin ? RoomAction.JOIN : RoomAction.LEAVE // action
+        ));
+    }
+
+    /**
+     * Sends the same Payload to every client in the Room.
+     * <p>
+     * For larger rooms the Payload is serialized once into a shared FramePool
+     * frame that's written to each client's SocketChannel. Small rooms, and
+     * clients without a channel, use the regular per-client send.
+     * </p>
+     * Note: Clients that fail to receive it get removed from clientsInRoom.
+     * 
+     * @param payload      the Payload every recipient gets
+     * @param fallbackSend per-client send; returns false on failure
+     */
+    protected void broadcast(Payload payload, Predicate<ServerThread> fallbackSend) {
+        FlightRecorderEvents.RoomBroadcast event = new FlightRecorderEvents.RoomBroadcast();
+        event.begin();
+        int recipients = clientsInRoom.size();
+        FramePool.Frame frame = null;
+        if (clientsInRoom.size() >= SHARED_FRAME_MIN_RECIPIENTS) {
+            try {
+                frame = FramePool.INSTANCE.encode(payload);
+            } catch (IOException e) {
+                LoggerUtil.INSTANCE.warning("Failed to encode broadcast frame, sending per client", e);
             }
-            return failedToSync;
-        });
+        }
+        final FramePool.Frame sharedFrame = frame;
+        final int frameSize = frame != null ? frame.size() : 0;
+        try {
+            clientsInRoom.values().removeIf(serverThread -> {
+                boolean failedToSend = sharedFrame != null && serverThread.canSendFrames()
+                        ? !serverThread.sendFrame(sharedFrame)
+                        : !fallbackSend.test(serverThread);
+                if (failedToSend) {
+                    ServerMetrics.INSTANCE.broadcastFailed();
+                    LoggerUtil.INSTANCE.warning(
+                            String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
+                    disconnect(serverThread);
+                }
+                return failedToSend;
+            });
+        } finally {
+            if (sharedFrame != null) {
+                sharedFrame.release();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.room = name;
+                event.payloadType = payload.getPayloadType().name();
+                event.recipients = recipients;
+                event.sharedFrame = sharedFrame != null;
+                event.frameSize = frameSize;
+                // includes anyone removed by the cascading disconnect() calls
+                event.failed = Math.max(0, recipients - clientsInRoom.size());
+                event.commit();
+            }
+        }
     }
 
     /**
@@ -118,14 +200,22 @@ public class Room implements AutoCloseable {
      * @param sender  ServerThread (client) sending the message or null if it's a
      *                server-generated message
      */
-    protected synchronized void relay(ServerThread sender, String message) {
+    protected void relay(ServerThread sender, String message) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, name, "relay", () -> relayLocked(sender, message));
+        } else {
+            relayLocked(sender, message);
+        }
+    }
+
+    private synchronized void relayLocked(ServerThread sender, String message) {
         if (!isRunning) { // block action if Room isn't running
             return;
         }
 
         final long senderId = sender == null ? Constants.DEFAULT_CLIENT_ID : sender.getClientId();
         // Note: formattedMessage must be final (or effectively final) since outside
-        // scope can't be changed inside a callback function (see removeIf() below)
+        // scope can't be changed inside a callback function (see broadcast() below)
         // Note: Changed in Milestone 3 since client will use its own knownClients list
         // to lookup the name
         final String formattedMessage = message;
@@ -136,15 +226,12 @@ public class Room implements AutoCloseable {
         // it's one way we can safely remove items during iteration
         info(String.format("sending message to %s recipients: %s", clientsInRoom.size(), formattedMessage));
 
-        clientsInRoom.values().removeIf(serverThread -> {
-            boolean failedToSend = !serverThread.sendMessage(senderId, formattedMessage);
-            if (failedToSend) {
-                LoggerUtil.INSTANCE.warning(
-                        String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
-                disconnect(serverThread);
-            }
-            return failedToSend;
-        });
+        // same shape as ServerThread.sendMessage()
+        Payload payload = new Payload();
+        payload.setPayloadType(PayloadType.MESSAGE);
+        payload.setClientId(senderId);
+        payload.setMessage(formattedMessage);
+        broadcast(payload, serverThread -> serverThread.sendMessage(senderId, formattedMessage));
     }
 
     /**
@@ -155,12 +242,21 @@ public class Room implements AutoCloseable {
      * 
      * @param client
      */
-    protected synchronized void disconnect(ServerThread client) {
+    protected void disconnect(ServerThread client) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, name, "disconnect", () -> disconnectLocked(client));
+        } else {
+            disconnectLocked(client);
+        }
+    }
+
+    private synchronized void disconnectLocked(ServerThread client) {
         if (!isRunning) { // block action if Room isn't running
             return;
         }
         ServerThread disconnectingServerThread = clientsInRoom.remove(client.getClientId());
         if (disconnectingServerThread != null) {
+            ServerMetrics.INSTANCE.roomDisconnect();
 
             clientsInRoom.values().removeIf(serverThread -> {
                 if (serverThread.getClientId() == disconnectingServerThread.getClientId()) {
@@ -183,7 +279,15 @@ public class Room implements AutoCloseable {
         autoCleanup();
     }
 
-    protected synchronized void disconnectAll() {
+    protected void disconnectAll() {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, name, "disconnectAll", () -> disconnectAllLocked());
+        } else {
+            disconnectAllLocked();
+        }
+    }
+
+    private synchronized void disconnectAllLocked() {
         info("Disconnect All triggered");
         if (!isRunning) {
             return;
@@ -232,6 +336,13 @@ public class Room implements AutoCloseable {
     }
 
     public void handleCreateRoom(ServerThread sender, String roomName) {
+        ClusterRouter.Node owner = Server.INSTANCE.getRemoteOwner(roomName);
+        if (owner != null) {
+            info(String.format("Room %s belongs to node %s, redirecting %s", roomName, owner,
+                    sender.getDisplayName()));
+            sender.sendRedirect(owner, roomName, RoomAction.CREATE);
+            return;
+        }
         try {
             Server.INSTANCE.createRoom(roomName);
             Server.INSTANCE.joinRoom(roomName, sender);
@@ -246,6 +357,13 @@ public class Room implements AutoCloseable {
     }
 
     public void handleJoinRoom(ServerThread sender, String roomName) {
+        ClusterRouter.Node owner = Server.INSTANCE.getRemoteOwner(roomName);
+        if (owner != null) {
+            info(String.format("Room %s belongs to node %s, redirecting %s", roomName, owner,
+                    sender.getDisplayName()));
+            sender.sendRedirect(owner, roomName, RoomAction.JOIN);
+            return;
+        }
         try {
             Server.INSTANCE.joinRoom(roomName, sender);
         } catch (RoomNotFoundException e) {
@@ -253,7 +371,7 @@ public class Room implements AutoCloseable {
         }
     }
 
-    protected synchronized void handleDisconnect(BaseServerThread sender) {
+    protected void handleDisconnect(BaseServerThread sender) {
         handleDisconnect((ServerThread) sender);
     }
 
@@ -262,18 +380,18 @@ public class Room implements AutoCloseable {
      * 
      * @param serverThread
      */
-    protected synchronized void handleDisconnect(ServerThread sender) {
+    protected void handleDisconnect(ServerThread sender) {
         disconnect(sender);
     }
 
-    protected synchronized void handleReverseText(ServerThread sender, String text) {
+    protected void handleReverseText(ServerThread sender, String text) {
         StringBuilder sb = new StringBuilder(text);
         sb.reverse();
         String rev = sb.toString();
         relay(sender, rev);
     }
 
-    protected synchronized void handleMessage(ServerThread sender, String text) {
+    protected void handleMessage(ServerThread sender, String text) {
         relay(sender, text);
     }
     // end handle methods
@@ -1,13 +1,18 @@
 package Project.Server;
 
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import Project.Common.LoggerUtil;
+import Project.Common.MappedLogHandler;
+import Project.Common.PayloadTracer;
+import Project.Common.Phase;
 import Project.Common.TextFX;
 import Project.Common.TextFX.Color;
 import Project.Exceptions.DuplicateRoomException;
@@ -22,8 +27,35 @@ public enum Server {
         config.setFileSizeLimit(2048 * 1024); // 2MB
         config.setFileCount(1);
         config.setLogLocation("server.log");
+        // mapped segments instead of a write() per record; synced at most once a second
+        config.setMemoryMapped(true);
+        config.setFsyncPolicy(MappedLogHandler.FsyncPolicy.INTERVAL);
+        // production mode (java -Dproduction=true ...): plain text and a console that
+        // can't slow the server down, the log file still gets every line
+        if (Boolean.getBoolean("production")) {
+            config.setAnsiColors(false);
+            config.setConsoleLinesPerSecond(20);
+        }
         // Set the logger configuration
         LoggerUtil.INSTANCE.setConfig(config);
+
+        // server-side admission control (see RateLimiter.RateLimitConfig for defaults)
+        RateLimiter.RateLimitConfig limits = new RateLimiter.RateLimitConfig();
+        limits.setClientRatePerSecond(20);
+        limits.setClientBurst(40);
+        limits.setConnectionRatePerSecond(50);
+        RateLimiter.INSTANCE.setConfig(limits);
+
+        // game logic runs on its own lanes, independent of the connection count
+        GameWorkerPool.INSTANCE.configure(Math.max(2, Runtime.getRuntime().availableProcessors()), 1024);
+
+        ServerMetrics.INSTANCE.registerGauges();
+
+        // monitor wait/hold times per Room and method, served at /locks
+        LockProfiler.INSTANCE.setEnabled(Boolean.getBoolean("profile.locks"));
+
+        // one binary journal per game session (replay with SessionReplay)
+        SessionJournal.setDirectory(Paths.get("journal"));
     }
     private int port = 3000;
     // connected clients
@@ -33,13 +65,16 @@ public enum Server {
     private boolean isRunning = true;
     private long nextClientId = 0;
 
+    private final TextFX.Prefix logPrefix = TextFX.prefix("Server: ", Color.YELLOW);
+
     private void info(String message) {
-        LoggerUtil.INSTANCE.info(TextFX.colorize(String.format("Server: %s", message), Color.YELLOW));
+        LoggerUtil.INSTANCE.info(logPrefix.apply(message));
     }
 
     private Server() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             info("JVM is shutting down. Perform cleanup tasks.");
+            info("Rate limit counters: " + RateLimiter.INSTANCE.summary());
             shutdown();
         }));
     }
@@ -65,12 +100,26 @@ public enum Server {
         this.port = port;
         // server listening
         info("Listening on port " + this.port);
+        // loopback only scrape endpoint (see MetricsEndpoint)
+        MetricsEndpoint.INSTANCE.start(port + MetricsEndpoint.PORT_OFFSET);
+        // stage breakdown + slowest traced payloads sent by clients with /trace on
+        MetricsEndpoint.INSTANCE.register("/traces", PayloadTracer.INSTANCE::report);
+        MetricsEndpoint.INSTANCE.register("/locks", LockProfiler.INSTANCE::report);
         // Simplified client connection loop
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
+        // opened as a (blocking) channel so each Socket has a SocketChannel for shared
+        // broadcast frames (see FramePool)
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
             createRoom(Room.LOBBY);// create the first room (lobby)
             while (isRunning) {
                 info("Waiting for next client");
-                Socket incomingClient = serverSocket.accept(); // blocking action, waits for a client connection
+                Socket incomingClient = serverChannel.accept().socket(); // blocking action, waits for a client connection
+                if (!RateLimiter.INSTANCE.admitConnection()) {
+                    // global admission limit hit, drop before allocating a ServerThread
+                    info("Connection rejected (rate limited)");
+                    incomingClient.close();
+                    continue;
+                }
                 info("Client connected");
                 // wrap socket in a ServerThread, pass a callback to notify the Server when
                 // they're initialized
@@ -96,7 +145,16 @@ public enum Server {
      * 
      * @param serverThread
      */
-    private synchronized void onServerThreadInitialized(ServerThread serverThread) {
+    private void onServerThreadInitialized(ServerThread serverThread) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, "Server", "onServerThreadInitialized",
+                    () -> onServerThreadInitializedLocked(serverThread));
+        } else {
+            onServerThreadInitializedLocked(serverThread);
+        }
+    }
+
+    private synchronized void onServerThreadInitializedLocked(ServerThread serverThread) {
         // Generate Server controlled clientId
         nextClientId = Math.max(++nextClientId, 1);
         serverThread.setClientId(nextClientId);
@@ -162,6 +220,27 @@ public enum Server {
                 .collect(Collectors.toList()); // return a mutable list
     }
 
+    protected int getRoomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * @return clients across every Room
+     */
+    protected int countClients() {
+        return rooms.values().stream().mapToInt(room -> room.clientsInRoom.size()).sum();
+    }
+
+    /**
+     * @param phase
+     * @return clients in game rooms currently in the given phase
+     */
+    protected int countPlayers(Phase phase) {
+        return rooms.values().stream()
+                .filter(room -> room instanceof BaseGameRoom && ((BaseGameRoom) room).currentPhase == phase)
+                .mapToInt(room -> room.clientsInRoom.size()).sum();
+    }
+
     protected void removeRoom(Room room) {
         rooms.remove(room.getName().toLowerCase());
         info(String.format("Removed room %s", room.getName()));
@@ -181,7 +260,16 @@ public enum Server {
      * @param sender  ServerThread (client) sending the message or null if it's a
      *                server-generated message
      */
-    private synchronized void relayToAllRooms(ServerThread sender, String message) {
+    private void relayToAllRooms(ServerThread sender, String message) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, "Server", "relayToAllRooms",
+                    () -> relayToAllRoomsLocked(sender, message));
+        } else {
+            relayToAllRoomsLocked(sender, message);
+        }
+    }
+
+    private synchronized void relayToAllRoomsLocked(ServerThread sender, String message) {
         // Note: any desired changes to the message must be done before this line
         String senderString = sender == null ? "Server" : sender.getDisplayName();
         // Note: formattedMessage must be final (or effectively final) since outside
@@ -195,6 +283,38 @@ public enum Server {
         rooms.values().forEach(room -> {
             room.relay(sender, formattedMessage);
         });
+        // let the other nodes relay it to their rooms too
+        ClusterRouter.INSTANCE.broadcastToPeers(formattedMessage);
+    }
+
+    /**
+     * Relays a message forwarded by another cluster node to the local rooms only
+     * (never forwarded again)
+     * 
+     * @param formattedMessage
+     */
+    protected void relayFromPeer(String formattedMessage) {
+        if (LockProfiler.INSTANCE.isEnabled()) {
+            LockProfiler.INSTANCE.locked(this, "Server", "relayFromPeer", () -> relayFromPeerLocked(formattedMessage));
+        } else {
+            relayFromPeerLocked(formattedMessage);
+        }
+    }
+
+    private synchronized void relayFromPeerLocked(String formattedMessage) {
+        rooms.values().forEach(room -> {
+            room.relay(null, formattedMessage);
+        });
+    }
+
+    /**
+     * Checks if a room belongs to another node when running clustered
+     * 
+     * @param name the room name
+     * @return the owning node or null if this node owns it
+     */
+    protected ClusterRouter.Node getRemoteOwner(String name) {
+        return ClusterRouter.INSTANCE.remoteOwnerOf(name);
     }
 
     /**
@@ -204,7 +324,7 @@ public enum Server {
      * @param sender
      * @param message
      */
-    public synchronized void broadcastMessageToAllRooms(ServerThread sender, String message) {
+    public void broadcastMessageToAllRooms(ServerThread sender, String message) {
         relayToAllRooms(sender, message);
     }
 
@@ -218,6 +338,11 @@ public enum Server {
             // can ignore, will either be index out of bounds or type mismatch
             // will default to the defined value prior to the try/catch
         }
+        // optional clustered mode: second arg is the comma separated host:port list
+        // of every node (see ClusterRouter)
+        if (args.length > 1) {
+            ClusterRouter.INSTANCE.configure(port, args[1]);
+        }
         server.start(port);
         LoggerUtil.INSTANCE.warning("Server Stopped");
     }
@@ -0,0 +1,297 @@
+package Project.Server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import Project.Common.ConnectionPayload;
+import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+import Project.Common.ReadyPayload;
+import Project.Common.RoomResultPayload;
+import Project.Common.TimedEvent;
+import Project.Exceptions.DuplicateRoomException;
+
+/**
+ * Benchmarks for the server hot paths (see BenchmarkRunner for the options).
+ * <p>
+ * Everything runs in-process: clients are ServerThreads whose stream (and
+ * optional channel) discard what's written, so no sockets are opened.
+ * </p>
+ * Example:
+ *
+ * <pre>
+ * java Project.Server.ServerBenchmarks -wi 3 -i 5 -o before.json
+ * java Project.Server.ServerBenchmarks -p room.relay -o after.json
+ * java Project.Server.ServerBenchmarks --compare before.json after.json
+ * </pre>
+ */
+public class ServerBenchmarks {
+
+    /**
+     * Stand-in for a client SocketChannel; accepts and drops every byte
+     */
+    private static class DiscardChannel implements GatheringByteChannel {
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                total += srcs[i].remaining();
+                srcs[i].position(srcs[i].limit());
+            }
+            return total;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Configures LoggerUtil for this JVM; only the first call takes effect (each
+     * fork runs one benchmark so the benchmark's own choice wins)
+     *
+     * @param level level for the file handler (console is always off)
+     */
+    private static void configureLogging(Level level) {
+        configureLogging(level, false);
+    }
+
+    /**
+     * @param level        level for the file handler (console is always off)
+     * @param memoryMapped true for MappedLogHandler instead of FileHandler
+     */
+    private static void configureLogging(Level level, boolean memoryMapped) {
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setMemoryMapped(memoryMapped);
+        config.setLogLocation(System.getProperty("java.io.tmpdir") + "/benchmark.log");
+        config.setFileSizeLimit(1024 * 1024);
+        config.setFileCount(1);
+        config.setFileLogLevel(level);
+        config.setConsoleLogLevel(Level.OFF);
+        LoggerUtil.INSTANCE.setConfig(config);
+    }
+
+    /**
+     * Creates named in-memory clients
+     *
+     * @param count
+     * @param sharedFrames true to give each client a channel so broadcasts use
+     *                     FramePool frames
+     * @return the clients
+     * @throws IOException
+     */
+    private static List<ServerThread> createClients(int count, boolean sharedFrames) throws IOException {
+        List<ServerThread> clients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ServerThread st = new ServerThread(new Socket(), (s) -> {
+            });
+            st.setClientId(i + 1);
+            st.setClientName("player" + (i + 1));
+            st.attachOutput(new ObjectOutputStream(OutputStream.nullOutputStream()),
+                    sharedFrames ? new DiscardChannel() : null);
+            clients.add(st);
+        }
+        return clients;
+    }
+
+    private static Payload samplePayload(String type) {
+        switch (type) {
+            case "ConnectionPayload": {
+                ConnectionPayload payload = new ConnectionPayload();
+                payload.setPayloadType(PayloadType.ROOM_JOIN);
+                payload.setClientId(42);
+                payload.setClientName("player42");
+                payload.setMessage("lobby");
+                return payload;
+            }
+            case "ReadyPayload": {
+                ReadyPayload payload = new ReadyPayload();
+                payload.setPayloadType(PayloadType.READY);
+                payload.setClientId(42);
+                payload.setReady(true);
+                return payload;
+            }
+            case "RoomResultPayload": {
+                RoomResultPayload payload = new RoomResultPayload();
+                List<String> rooms = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    rooms.add("room-" + i);
+                }
+                payload.setRooms(rooms);
+                return payload;
+            }
+            default: {
+                Payload payload = new Payload();
+                payload.setPayloadType(PayloadType.MESSAGE);
+                payload.setClientId(42);
+                payload.setMessage("Hello from the benchmark");
+                return payload;
+            }
+        }
+    }
+
+    private static Map<String, List<String>> params(String name, String... values) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        params.put(name, List.of(values));
+        return params;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(ServerBenchmarks.class);
+
+        // serialize + deserialize through fresh object streams (what each frame costs)
+        runner.register("payload.roundTrip",
+                params("type", "Payload", "ConnectionPayload", "ReadyPayload", "RoomResultPayload"), (p) -> {
+                    configureLogging(Level.WARNING);
+                    Payload payload = samplePayload(p.get("type"));
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+                    return () -> {
+                        bytes.reset();
+                        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                            out.writeObject(payload);
+                        }
+                        try (ObjectInputStream in = new ObjectInputStream(
+                                new ByteArrayInputStream(bytes.toByteArray()))) {
+                            BenchmarkRunner.consume(in.readObject());
+                        }
+                    };
+                });
+
+        Map<String, List<String>> relayParams = params("recipients", "10", "100", "500");
+        relayParams.put("sharedFrames", List.of("false", "true"));
+        runner.register("room.relay", relayParams, (p) -> {
+            configureLogging(Level.WARNING);
+            Room room = new Room("bench-relay");
+            for (ServerThread client : createClients(Integer.parseInt(p.get("recipients")),
+                    Boolean.parseBoolean(p.get("sharedFrames")))) {
+                room.addClient(client);
+            }
+            return () -> room.relay(null, "Hello from the benchmark");
+        });
+
+        runner.register("serverThread.send", params("pooled", "false", "true"), (p) -> {
+            configureLogging(Level.WARNING);
+            ServerThread client = createClients(1, false).get(0);
+            PayloadPool.setEnabled(Boolean.parseBoolean(p.get("pooled")));
+            return new BenchmarkRunner.Workload() {
+                private int points = 0;
+
+                @Override
+                public void op() {
+                    client.sendPlayerPoints(1, points++);
+                }
+
+                @Override
+                public void close() {
+                    PayloadPool.setEnabled(true);
+                }
+            };
+        });
+
+        // round-start style broadcast: a ready status and a points update to every
+        // client; compare the allocation (B/op) with and without the PayloadPool
+        Map<String, List<String>> roundStartParams = params("recipients", "10", "100");
+        roundStartParams.put("pooled", List.of("false", "true"));
+        runner.register("broadcast.roundStart", roundStartParams, (p) -> {
+            configureLogging(Level.WARNING);
+            List<ServerThread> clients = createClients(Integer.parseInt(p.get("recipients")), false);
+            PayloadPool.setEnabled(Boolean.parseBoolean(p.get("pooled")));
+            return new BenchmarkRunner.Workload() {
+                private int round = 0;
+
+                @Override
+                public void op() {
+                    long subject = (round % clients.size()) + 1;
+                    for (ServerThread client : clients) {
+                        client.sendReadyStatus(subject, (round & 1) == 0);
+                        client.sendPlayerPoints(subject, round);
+                    }
+                    round++;
+                }
+
+                @Override
+                public void close() {
+                    PayloadPool.setEnabled(true);
+                }
+            };
+        });
+
+        runner.register("gameRoom.processBattles", params("players", "4", "8", "16"), (p) -> {
+            configureLogging(Level.WARNING);
+            GameRoom room = new GameRoom("bench-battles");
+            List<ServerThread> players = createClients(Integer.parseInt(p.get("players")), false);
+            players.forEach(room::addClient);
+            return () -> {
+                for (ServerThread player : players) {
+                    player.setReady(true);
+                    player.setChoice("r");
+                    player.setEliminated(false);
+                }
+                room.ProcessBattles();
+            };
+        });
+
+        // rooms are only added, so values must stay ascending when running in one JVM (-f 0)
+        runner.register("server.listRooms", params("rooms", "10", "100", "1000"), (p) -> {
+            configureLogging(Level.WARNING);
+            int rooms = Integer.parseInt(p.get("rooms"));
+            for (int i = 0; i < rooms; i++) {
+                try {
+                    Server.INSTANCE.createRoom("bench-room-" + i);
+                } catch (DuplicateRoomException e) {
+                    // left over from a smaller run in the same JVM
+                }
+            }
+            return () -> BenchmarkRunner.consume(Server.INSTANCE.listRooms("room-1"));
+        });
+
+        runner.register("timedEvent.createCancel", null, (p) -> {
+            configureLogging(Level.WARNING);
+            return () -> {
+                TimedEvent event = new TimedEvent(30, () -> {
+                });
+                event.cancel();
+            };
+        });
+
+        // "file" writes every line to the rotating log file, "mapped" to memory-mapped
+        // segments; "filtered" measures the cost of a call below the handlers' level
+        runner.register("logger.info", params("handler", "file", "mapped", "filtered"), (p) -> {
+            String handler = p.get("handler");
+            configureLogging("filtered".equals(handler) ? Level.WARNING : Level.INFO, "mapped".equals(handler));
+            return () -> LoggerUtil.INSTANCE.info("Thread[42]: Sending to client: Payload[MESSAGE] Client Id [42]");
+        });
+
+        runner.execute(args);
+    }
+}
@@ -0,0 +1,181 @@
+package Project.Server;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import Project.Common.Histogram;
+import Project.Common.Metrics;
+import Project.Common.PayloadType;
+import Project.Common.Phase;
+
+/**
+ * The server's metric catalog.
+ * <p>
+ * Instruments are looked up once here (per PayloadType where labeled) so the
+ * hot paths only touch a cached Counter/Histogram. Gauges are read from the
+ * Server, RateLimiter, GameWorkerPool and FramePool at scrape time.
+ * </p>
+ */
+public enum ServerMetrics {
+    INSTANCE;
+
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    private final Metrics.Counter[] payloadsReceived = new Metrics.Counter[PayloadType.values().length];
+    private final Metrics.Counter[] payloadsSent = new Metrics.Counter[PayloadType.values().length];
+    private final Histogram[] processTime = new Histogram[PayloadType.values().length];
+    private final Histogram queueWait;
+    private final Metrics.Counter bytesReceived;
+    private final Metrics.Counter bytesSent;
+    private final Metrics.Counter sendFailures;
+    private final Metrics.Counter broadcastFailures;
+    private final Metrics.Counter roomDisconnects;
+
+    ServerMetrics() {
+        Metrics metrics = Metrics.INSTANCE;
+        for (PayloadType type : PayloadType.values()) {
+            payloadsReceived[type.ordinal()] = metrics.counter("server_payloads_received_total",
+                    "Payloads received from clients (after rate limiting)", "type", type.name());
+            payloadsSent[type.ordinal()] = metrics.counter("server_payloads_sent_total",
+                    "Payloads sent to clients (including shared broadcast frames)", "type", type.name());
+            processTime[type.ordinal()] = metrics.histogram("server_process_payload_seconds",
+                    "Time spent in ServerThread.processPayload()", NANOS_TO_SECONDS, "type", type.name());
+        }
+        queueWait = metrics.histogram("server_worker_queue_wait_seconds",
+                "Time a received payload waited for its GameWorkerPool lane", NANOS_TO_SECONDS);
+        bytesReceived = metrics.counter("server_bytes_received_total", "Bytes read from client sockets");
+        bytesSent = metrics.counter("server_bytes_sent_total", "Bytes written to client sockets");
+        sendFailures = metrics.counter("server_send_failures_total", "Sends that failed (client likely gone)");
+        broadcastFailures = metrics.counter("server_room_broadcast_failures_total",
+                "Room relay/broadcast recipients that failed and were removed");
+        roomDisconnects = metrics.counter("server_room_disconnects_total", "Clients disconnected from a Room");
+    }
+
+    /**
+     * Registers the gauges backed by other server components (call once on
+     * startup)
+     */
+    protected void registerGauges() {
+        Metrics metrics = Metrics.INSTANCE;
+        metrics.gauge("server_rooms", "Rooms currently open (including the lobby)",
+                () -> Server.INSTANCE.getRoomCount());
+        metrics.gauge("server_clients", "Clients currently in a Room", () -> Server.INSTANCE.countClients());
+        for (Phase phase : Phase.values()) {
+            metrics.gauge("server_players", "Players in GameRooms by the room's current phase",
+                    () -> Server.INSTANCE.countPlayers(phase), "phase", phase.name());
+        }
+        GameWorkerPool pool = GameWorkerPool.INSTANCE;
+        metrics.gauge("server_worker_queued", "Tasks waiting across all worker lanes", pool::getQueuedCount);
+        metrics.functionCounter("server_worker_submitted_total", "Tasks accepted by the worker pool",
+                pool::getSubmittedCount);
+        metrics.functionCounter("server_worker_rejected_total", "Tasks rejected because a lane was full",
+                pool::getRejectedCount);
+        metrics.functionCounter("server_worker_blocked_total",
+                "Must-run tasks (connect/disconnect) that waited for a full lane", pool::getBlockedCount);
+        FramePool frames = FramePool.INSTANCE;
+        metrics.functionCounter("server_frames_encoded_total", "Shared broadcast frames encoded",
+                frames::getEncodedCount);
+        metrics.functionCounter("server_frame_buffers_allocated_total", "Direct buffers allocated for frames",
+                frames::getAllocatedCount);
+        metrics.functionCounter("server_frame_buffers_reused_total", "Frame buffers reused from the pool",
+                frames::getReusedCount);
+        RateLimiter limiter = RateLimiter.INSTANCE;
+        for (PayloadType type : PayloadType.values()) {
+            metrics.functionCounter("server_rate_limit_accepted_total", "Payloads admitted by the rate limiter",
+                    () -> limiter.getAcceptedCount(type), "type", type.name());
+            metrics.functionCounter("server_rate_limit_rejected_total", "Payloads dropped by the rate limiter",
+                    () -> limiter.getRejectedCount(type), "type", type.name());
+        }
+        metrics.functionCounter("server_connections_accepted_total", "Connections admitted",
+                limiter::getAcceptedConnections);
+        metrics.functionCounter("server_connections_rejected_total", "Connections dropped by the rate limiter",
+                limiter::getRejectedConnections);
+    }
+
+    public void payloadReceived(PayloadType type) {
+        payloadsReceived[type.ordinal()].increment();
+    }
+
+    public void payloadSent(PayloadType type) {
+        payloadsSent[type.ordinal()].increment();
+    }
+
+    /**
+     * @param type
+     * @param queuedNanos    time spent waiting for a worker lane
+     * @param processedNanos time spent in processPayload()
+     */
+    public void payloadProcessed(PayloadType type, long queuedNanos, long processedNanos) {
+        queueWait.record(queuedNanos);
+        processTime[type.ordinal()].record(processedNanos);
+    }
+
+    public void bytesSent(long count) {
+        bytesSent.add(count);
+    }
+
+    public void sendFailed() {
+        sendFailures.increment();
+    }
+
+    public void broadcastFailed() {
+        broadcastFailures.increment();
+    }
+
+    public void roomDisconnect() {
+        roomDisconnects.increment();
+    }
+
+    /**
+     * Wraps a socket stream so everything written is counted as bytes sent
+     *
+     * @param out
+     * @return the counting stream
+     */
+    protected OutputStream countSent(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesSent.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesSent.add(len);
+            }
+        };
+    }
+
+    /**
+     * Wraps a socket stream so everything read is counted as bytes received
+     *
+     * @param in
+     * @return the counting stream
+     */
+    protected InputStream countReceived(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b >= 0) {
+                    bytesReceived.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    bytesReceived.add(n);
+                }
+                return n;
+            }
+        };
+    }
+}
@@ -3,29 +3,44 @@ package Project.Server;
 import java.net.Socket;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import Project.Common.BoardPayload;
+import Project.Common.CellPayload;
 import Project.Common.ConnectionPayload;
 import Project.Common.Constants;
+import Project.Common.FlightRecorderEvents;
 import Project.Common.LoggerUtil;
 import Project.Common.Payload;
 import Project.Common.PayloadType;
 import Project.Common.Phase;
 import Project.Common.PointsPayload;
 import Project.Common.ReadyPayload;
+import Project.Common.RedirectPayload;
 import Project.Common.RoomAction;
 import Project.Common.RoomResultPayload;
 import Project.Common.TextFX;
 import Project.Common.TextFX.Color;
 import Project.Common.TimerPayload;
 import Project.Common.TimerType;
+import Project.Common.TraceContext;
 
 /**
  * A server-side representation of a single client
  */
 public class ServerThread extends BaseServerThread {
     private Consumer<ServerThread> onInitializationComplete; // callback to inform when this object is ready
+    private final RateLimiter.ClientLimits limits = RateLimiter.INSTANCE.newClientLimits();
+    private long lastLimitNotice = 0;
+    // payloads queued on a worker lane but not yet processed
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private int lane = -1;
+    // reusable outbound payloads, guarded by this ServerThread's monitor
+    private final PayloadPool pool = new PayloadPool();
     private boolean isAway;
+    private volatile TextFX.Prefix logPrefix = null;
+    private volatile long logPrefixId;
 public boolean isAway() { return isAway; }
 public void setAway(boolean away) { this.isAway = away; }
 
@@ -37,8 +52,16 @@ public void setAway(boolean away) { this.isAway = away; }
      * @param message
      */
     protected void info(String message) {
-        LoggerUtil.INSTANCE
-                .info(TextFX.colorize(String.format("Thread[%s]: %s", this.getClientId(), message), Color.CYAN));
+        long clientId = this.getClientId();
+        boolean isCurrent = logPrefixId == clientId; // read before logPrefix (written after it)
+        TextFX.Prefix prefix = logPrefix;
+        if (prefix == null || !isCurrent) {
+            // rendered once per id (the id is assigned after the thread starts)
+            prefix = TextFX.prefix(String.format("Thread[%s]: ", clientId), Color.CYAN);
+            logPrefix = prefix;
+            logPrefixId = clientId;
+        }
+        LoggerUtil.INSTANCE.info(prefix.apply(message));
     }
 
     /**
@@ -62,10 +85,13 @@ public void setAway(boolean away) { this.isAway = away; }
     }
 
     // Start Send*() Methods
+    // Note: send methods using the PayloadPool are synchronized so the pooled
+    // instance isn't reused until sendToClient() has serialized it
     public synchronized boolean sendAwayStatus(long clientId, boolean isAway) {
-       ReadyPayload rp = new ReadyPayload();
+        // NOTE using ReadyPayload's flag to carry the away status
+        ReadyPayload rp = pool.ready(PayloadType.AWAY);
         rp.setClientId(clientId);
-        rp.setAway(isAway);
+        rp.setReady(isAway);
         return sendToClient(rp);
     }
     /**
@@ -75,8 +101,8 @@ public void setAway(boolean away) { this.isAway = away; }
      * @param points
      * @return
      */
-    public boolean sendPlayerPoints(long clientId, int points) {
-        PointsPayload rp = new PointsPayload();
+    public synchronized boolean sendPlayerPoints(long clientId, int points) {
+        PointsPayload rp = pool.points();
         rp.setPoints(points);
         rp.setClientId(clientId);
         return sendToClient(rp);
@@ -87,22 +113,23 @@ public void setAway(boolean away) { this.isAway = away; }
     }
 
     /**
-     * Syncs the current time of a specific TimerType
+     * Syncs the deadline of a specific TimerType; the client counts down locally
      * 
      * @param timerType
-     * @param time
+     * @param time          whole seconds left or -1 to cancel
+     * @param deadlineNanos expiry on this server's System.nanoTime() clock
      * @return
      */
-    public boolean sendCurrentTime(TimerType timerType, int time) {
-        TimerPayload tp = new TimerPayload();
+    public synchronized boolean sendCurrentTime(TimerType timerType, int time, long deadlineNanos) {
+        TimerPayload tp = pool.timer();
         tp.setTime(time);
         tp.setTimerType(timerType);
+        tp.setDeadlineNanos(deadlineNanos);
         return sendToClient(tp);
     }
 
-    public boolean sendResetTurnStatus() {
-        ReadyPayload rp = new ReadyPayload();
-        rp.setPayloadType(PayloadType.RESET_TURN);
+    public synchronized boolean sendResetTurnStatus() {
+        ReadyPayload rp = pool.ready(PayloadType.RESET_TURN);
         return sendToClient(rp);
     }
 
@@ -110,26 +137,23 @@ public void setAway(boolean away) { this.isAway = away; }
         return sendTurnStatus(clientId, didTakeTurn, false);
     }
 
-    public boolean sendTurnStatus(long clientId, boolean didTakeTurn, boolean quiet) {
+    public synchronized boolean sendTurnStatus(long clientId, boolean didTakeTurn, boolean quiet) {
         // NOTE for now using ReadyPayload as it has the necessary properties
         // An actual turn may include other data for your project
-        ReadyPayload rp = new ReadyPayload();
-        rp.setPayloadType(quiet ? PayloadType.SYNC_TURN : PayloadType.TURN);
+        ReadyPayload rp = pool.ready(quiet ? PayloadType.SYNC_TURN : PayloadType.TURN);
         rp.setClientId(clientId);
         rp.setReady(didTakeTurn);
         return sendToClient(rp);
     }
 
-    public boolean sendCurrentPhase(Phase phase) {
-        Payload p = new Payload();
-        p.setPayloadType(PayloadType.PHASE);
+    public synchronized boolean sendCurrentPhase(Phase phase) {
+        Payload p = pool.payload(PayloadType.PHASE);
         p.setMessage(phase.name());
         return sendToClient(p);
     }
 
-    public boolean sendResetReady() {
-        ReadyPayload rp = new ReadyPayload();
-        rp.setPayloadType(PayloadType.RESET_READY);
+    public synchronized boolean sendResetReady() {
+        ReadyPayload rp = pool.ready(PayloadType.RESET_READY);
         return sendToClient(rp);
     }
 
@@ -145,26 +169,67 @@ public void setAway(boolean away) { this.isAway = away; }
      * @param quiet    silently mark ready
      * @return
      */
-    public boolean sendReadyStatus(long clientId, boolean isReady, boolean quiet) {
-        ReadyPayload rp = new ReadyPayload();
+    public synchronized boolean sendReadyStatus(long clientId, boolean isReady, boolean quiet) {
+        ReadyPayload rp = pool.ready(quiet ? PayloadType.SYNC_READY : PayloadType.READY);
         rp.setClientId(clientId);
         rp.setReady(isReady);
-        if (quiet) {
-            rp.setPayloadType(PayloadType.SYNC_READY);
-        }
         return sendToClient(rp);
     }
 
+    /**
+     * Hands the client off to the node that owns the room
+     * 
+     * @param node       the owning node
+     * @param roomName   the room to create/join once connected
+     * @param roomAction CREATE or JOIN
+     * @return true for successful send
+     */
+    protected boolean sendRedirect(ClusterRouter.Node node, String roomName, RoomAction roomAction) {
+        RedirectPayload rp = new RedirectPayload();
+        rp.setHost(node.getHost());
+        rp.setPort(node.getPort());
+        rp.setMessage(roomName);
+        rp.setRoomAction(roomAction);
+        return sendToClient(rp);
+    }
+
+    /**
+     * Syncs the whole game board in one payload (e.g. when joining a session in
+     * progress); arrays are row major and rows * columns long
+     * 
+     * @return true for successful send
+     */
+    public boolean sendBoard(int rows, int columns, String[] values, boolean[] isFlipped, boolean[] isCollected) {
+        BoardPayload bp = new BoardPayload();
+        bp.setBoard(rows, columns, values, isFlipped, isCollected);
+        return sendToClient(bp);
+    }
+
+    /**
+     * Syncs a single board cell
+     * 
+     * @param row    -1 (with column -1) turns every cell face down
+     * @param column
+     * @return true for successful send
+     */
+    public boolean sendCell(int row, int column, String value, boolean isFlipped, boolean isCollected) {
+        CellPayload cp = new CellPayload();
+        cp.setCoordinates(row, column);
+        cp.setValue(value);
+        cp.setFlipped(isFlipped);
+        cp.setCollected(isCollected);
+        return sendToClient(cp);
+    }
+
     public boolean sendRooms(List<String> rooms) {
         RoomResultPayload rrp = new RoomResultPayload();
         rrp.setRooms(rooms);
         return sendToClient(rrp);
     }
 
-    protected boolean sendDisconnect(long clientId) {
-        Payload payload = new Payload();
+    protected synchronized boolean sendDisconnect(long clientId) {
+        Payload payload = pool.payload(PayloadType.DISCONNECT);
         payload.setClientId(clientId);
-        payload.setPayloadType(PayloadType.DISCONNECT);
         return sendToClient(payload);
     }
 
@@ -194,22 +259,23 @@ public void setAway(boolean away) { this.isAway = away; }
      *                   sync)
      * @return true for successful send
      */
-    protected boolean sendClientInfo(long clientId, String clientName, String roomName, RoomAction action,
-            boolean isSync) {
-        ConnectionPayload payload = new ConnectionPayload();
+    protected synchronized boolean sendClientInfo(long clientId, String clientName, String roomName,
+            RoomAction action, boolean isSync) {
+        PayloadType type = null;
         switch (action) {
             case JOIN:
-                payload.setPayloadType(PayloadType.ROOM_JOIN);
+                type = PayloadType.ROOM_JOIN;
                 break;
             case LEAVE:
-                payload.setPayloadType(PayloadType.ROOM_LEAVE);
+                type = PayloadType.ROOM_LEAVE;
                 break;
             default:
                 break;
         }
         if (isSync) {
-            payload.setPayloadType(PayloadType.SYNC_CLIENT);
+            type = PayloadType.SYNC_CLIENT;
         }
+        ConnectionPayload payload = pool.connection(type);
         payload.setClientId(clientId);
         payload.setClientName(clientName);
         payload.setMessage(roomName);// pass room name
@@ -222,12 +288,12 @@ public void setAway(boolean away) { this.isAway = away; }
      * 
      * @return true for successful send
      */
-    protected boolean sendClientId() {
-        ConnectionPayload payload = new ConnectionPayload();
-        payload.setPayloadType(PayloadType.CLIENT_ID);
+    protected synchronized boolean sendClientId() {
+        ConnectionPayload payload = pool.connection(PayloadType.CLIENT_ID);
         payload.setClientId(getClientId());
         payload.setClientName(getClientName());// Can be used as a Server-side override of username (i.e., profanity
                                                // filter)
+        payload.setClockNanos(System.nanoTime()); // lets the client estimate our clock offset
         return sendToClient(payload);
     }
 
@@ -237,15 +303,124 @@ public void setAway(boolean away) { this.isAway = away; }
      * @param message
      * @return true for successful send
      */
-    protected boolean sendMessage(long clientId, String message) {
-        Payload payload = new Payload();
-        payload.setPayloadType(PayloadType.MESSAGE);
+    protected synchronized boolean sendMessage(long clientId, String message) {
+        Payload payload = pool.payload(PayloadType.MESSAGE);
         payload.setMessage(message);
         payload.setClientId(clientId);
         return sendToClient(payload);
     }
 
     // End Send*() Methods
+    @Override
+    protected boolean admitPayload(Payload incoming) {
+        if (limits.tryAcquire(incoming.getPayloadType())) {
+            return true;
+        }
+        // notify at most once per second so rejections stay cheap
+        long now = System.nanoTime();
+        if (now - lastLimitNotice > 1_000_000_000L) {
+            lastLimitNotice = now;
+            info("Rate limited " + incoming.getPayloadType());
+            sendMessage(Constants.DEFAULT_CLIENT_ID, "You're doing that too often, please slow down");
+        }
+        return false;
+    }
+
+    /**
+     * @return the lane this client's next task goes on: the current Room's, or
+     *         the previous one while earlier tasks are still pending
+     */
+    private int selectLane() {
+        if (pendingTasks.get() == 0 || lane < 0) {
+            Room room = currentRoom;
+            String key = room != null ? room.getName().toLowerCase() : "client-" + threadId();
+            lane = GameWorkerPool.INSTANCE.laneFor(key);
+        }
+        return lane;
+    }
+
+    /**
+     * Queues the room disconnect on the same lane, behind the payloads this
+     * client already sent, so none of them run after it was removed
+     */
+    @Override
+    protected void dispatchClosed(Runnable closed) {
+        int lane = selectLane();
+        pendingTasks.incrementAndGet();
+        boolean queued = GameWorkerPool.INSTANCE.submitBlocking(lane, () -> {
+            try {
+                closed.run();
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.severe("Error disconnecting client", e);
+            } finally {
+                pendingTasks.decrementAndGet();
+            }
+        });
+        if (!queued) {
+            pendingTasks.decrementAndGet();
+            closed.run(); // interrupted while waiting for room, don't skip the disconnect
+        }
+    }
+
+    /**
+     * Queues the payload on the worker lane of the current Room so the read
+     * thread can go straight back to the socket.
+     * <p>
+     * While earlier payloads are still pending the same lane is reused so this
+     * client's payloads are always processed in order (even across a room
+     * change). If the lane is full the payload is dropped, except for the ones
+     * the rate limiter exempts (connect/disconnect), which wait for room.
+     * </p>
+     */
+    @Override
+    protected void dispatchPayload(Payload incoming) {
+        GameWorkerPool pool = GameWorkerPool.INSTANCE;
+        int lane = selectLane();
+        pendingTasks.incrementAndGet();
+        final long queuedAt = System.nanoTime();
+        Runnable task = () -> {
+            try {
+                if (isRunning()) {
+                    long startedAt = System.nanoTime();
+                    TraceContext trace = incoming.getTrace();
+                    if (trace != null) {
+                        beginTrace(trace, startedAt - queuedAt);
+                    }
+                    FlightRecorderEvents.PayloadProcessed event = new FlightRecorderEvents.PayloadProcessed();
+                    event.begin();
+                    try {
+                        processPayload(incoming);
+                    } finally {
+                        if (trace != null) {
+                            endTrace();
+                        }
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.payloadType = incoming.getPayloadType().name();
+                            event.clientId = getClientId();
+                            event.queueWait = startedAt - queuedAt;
+                            event.commit();
+                        }
+                    }
+                    ServerMetrics.INSTANCE.payloadProcessed(incoming.getPayloadType(), startedAt - queuedAt,
+                            System.nanoTime() - startedAt);
+                }
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.severe(String.format("Error processing %s", incoming.getPayloadType()), e);
+            } finally {
+                pendingTasks.decrementAndGet();
+            }
+        };
+        boolean queued = RateLimiter.RateLimitConfig.isExempt(incoming.getPayloadType())
+                ? pool.submitBlocking(lane, task)
+                : pool.submit(lane, task);
+        if (!queued) {
+            pendingTasks.decrementAndGet();
+            info("Worker queue full, dropped " + incoming.getPayloadType());
+            sendMessage(Constants.DEFAULT_CLIENT_ID, "Server is busy, please try again");
+        }
+    }
+
     @Override
     protected void processPayload(Payload incoming) {
 
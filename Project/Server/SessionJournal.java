@@ -0,0 +1,433 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Project.Common.LoggerUtil;
+import Project.Common.Phase;
+import Project.Common.TimerType;
+
+/**
+ * Append-only binary journal of one GameRoom session.
+ * <p>
+ * Layout: a header (magic + version) followed by length-prefixed records
+ * {@code [int length][byte type][long elapsedNanos][body]} where length covers
+ * everything after itself. Files are written through a memory-mapped region
+ * that's extended 64KB at a time and truncated to the written size on close.
+ * </p>
+ * Input records (picks, turns, leaves, timer expiries) are everything
+ * SessionReplay needs to re-run the session; output records (phases, battles,
+ * points) are what it compares against.
+ */
+public class SessionJournal {
+    private static final int MAGIC = 0x54444A31; // "TDJ1"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES;
+    private static final int REGION_SIZE = 64 * 1024;
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static volatile Path directory = null; // null disables file journals
+
+    public enum RecordType {
+        SESSION_START(false), // long seed, utf room, int count, count x (long id, utf name)
+        PHASE(false), // utf phase
+        ROUND_START(false), // int round
+        PICK(true), // long clientId, utf choice
+        TURN(true), // long clientId
+        AWAY(true), // long clientId
+        PLAYER_LEFT(true), // long clientId
+        TIMER_EXPIRED(true), // utf timerType
+        BATTLE(false), // long winnerId (0 for a draw), int count, count x long id
+        POINTS(false), // long clientId, int points
+        SESSION_END(false);
+
+        public final boolean isInput;
+
+        RecordType(boolean isInput) {
+            this.isInput = isInput;
+        }
+    }
+
+    /**
+     * A decoded record; the body is read with the get*() methods in the order
+     * documented on RecordType
+     */
+    public static class Record {
+        private final RecordType type;
+        private final long elapsedNanos;
+        private final byte[] body;
+        private final ByteBuffer reader;
+
+        private Record(RecordType type, long elapsedNanos, byte[] body) {
+            this.type = type;
+            this.elapsedNanos = elapsedNanos;
+            this.body = body;
+            this.reader = ByteBuffer.wrap(body);
+        }
+
+        public RecordType getType() {
+            return type;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Moves the body reader back to the start so the record can be decoded
+         * again
+         *
+         * @return this record
+         */
+        public Record rewind() {
+            reader.rewind();
+            return this;
+        }
+
+        public long getLong() {
+            return reader.getLong();
+        }
+
+        public int getInt() {
+            return reader.getInt();
+        }
+
+        public String getString() {
+            byte[] bytes = new byte[reader.getShort() & 0xFFFF];
+            reader.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param other
+         * @return true if the type and body match (timing is ignored)
+         */
+        public boolean sameAs(Record other) {
+            return type == other.type && Arrays.equals(body, other.body);
+        }
+
+        @Override
+        public String toString() {
+            Record copy = new Record(type, elapsedNanos, body);
+            StringBuilder sb = new StringBuilder(String.format("%9.3fms %s", elapsedNanos / 1e6, type));
+            switch (type) {
+                case SESSION_START:
+                    sb.append(String.format(" seed=%d room=%s players=", copy.getLong(), copy.getString()));
+                    int count = copy.getInt();
+                    for (int i = 0; i < count; i++) {
+                        sb.append(i > 0 ? "," : "").append(copy.getLong()).append(':').append(copy.getString());
+                    }
+                    break;
+                case PHASE:
+                case TIMER_EXPIRED:
+                    sb.append(' ').append(copy.getString());
+                    break;
+                case ROUND_START:
+                    sb.append(" round=").append(copy.getInt());
+                    break;
+                case PICK:
+                    sb.append(String.format(" client=%d choice=%s", copy.getLong(), copy.getString()));
+                    break;
+                case TURN:
+                case AWAY:
+                case PLAYER_LEFT:
+                    sb.append(" client=").append(copy.getLong());
+                    break;
+                case BATTLE:
+                    long winner = copy.getLong();
+                    int battlers = copy.getInt();
+                    long[] ids = new long[battlers];
+                    for (int i = 0; i < battlers; i++) {
+                        ids[i] = copy.getLong();
+                    }
+                    sb.append(String.format(" %s winner=%s", Arrays.toString(ids), winner == 0 ? "draw" : winner));
+                    break;
+                case POINTS:
+                    sb.append(String.format(" client=%d points=%d", copy.getLong(), copy.getInt()));
+                    break;
+                default:
+                    sb.append(String.format(" (%d bytes)", body.length));
+                    break;
+            }
+            return sb.toString();
+        }
+    }
+
+    private final FileChannel channel; // null for in-memory journals
+    private final Path path;
+    private final long startNanos = System.nanoTime();
+    private final ByteBuffer scratch = ByteBuffer.allocate(REGION_SIZE);
+    private ByteBuffer buffer;
+    private long regionStart = 0;
+    private boolean isClosed = false;
+
+    private SessionJournal(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        buffer = channel != null ? channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE)
+                : ByteBuffer.allocate(REGION_SIZE);
+        buffer.putInt(MAGIC).putShort(VERSION);
+    }
+
+    /**
+     * Sets where session journals are written
+     *
+     * @param dir the directory (created on demand) or null to disable
+     */
+    public static void setDirectory(Path dir) {
+        directory = dir;
+    }
+
+    /**
+     * Opens a new memory-mapped journal file for a session
+     *
+     * @param room
+     * @return the journal or null if journals are disabled
+     * @throws IOException
+     */
+    public static SessionJournal open(String room) throws IOException {
+        Path dir = directory;
+        if (dir == null) {
+            return null;
+        }
+        Files.createDirectories(dir);
+        String fileName = String.format("%s-%s-%d.journal", room.replaceAll("[^A-Za-z0-9_-]", "_"),
+                new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()), SEQUENCE.incrementAndGet());
+        Path path = dir.resolve(fileName);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new SessionJournal(path, channel);
+    }
+
+    /**
+     * @return a journal kept on the heap (used by SessionReplay to capture the
+     *         replayed output)
+     */
+    public static SessionJournal inMemory() {
+        try {
+            return new SessionJournal(null, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // heap buffers don't do IO
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // writers, one per RecordType
+    public synchronized void sessionStart(String room, long seed, Map<Long, String> players) {
+        begin(RecordType.SESSION_START);
+        scratch.putLong(seed);
+        putString(room);
+        scratch.putInt(players.size());
+        players.forEach((id, name) -> {
+            scratch.putLong(id);
+            putString(name);
+        });
+        finish();
+    }
+
+    public synchronized void phase(Phase phase) {
+        begin(RecordType.PHASE);
+        putString(phase.name());
+        finish();
+    }
+
+    public synchronized void roundStart(int round) {
+        begin(RecordType.ROUND_START);
+        scratch.putInt(round);
+        finish();
+    }
+
+    public synchronized void pick(long clientId, String choice) {
+        begin(RecordType.PICK);
+        scratch.putLong(clientId);
+        putString(choice);
+        finish();
+    }
+
+    public synchronized void turn(long clientId) {
+        clientRecord(RecordType.TURN, clientId);
+    }
+
+    public synchronized void away(long clientId) {
+        clientRecord(RecordType.AWAY, clientId);
+    }
+
+    public synchronized void playerLeft(long clientId) {
+        clientRecord(RecordType.PLAYER_LEFT, clientId);
+    }
+
+    public synchronized void timerExpired(TimerType timerType) {
+        begin(RecordType.TIMER_EXPIRED);
+        putString(timerType.name());
+        finish();
+    }
+
+    /**
+     * @param winnerId   winning client or 0 for a draw
+     * @param battlerIds everyone in the battle
+     */
+    public synchronized void battle(long winnerId, long... battlerIds) {
+        begin(RecordType.BATTLE);
+        scratch.putLong(winnerId);
+        scratch.putInt(battlerIds.length);
+        for (long id : battlerIds) {
+            scratch.putLong(id);
+        }
+        finish();
+    }
+
+    public synchronized void points(long clientId, int points) {
+        begin(RecordType.POINTS);
+        scratch.putLong(clientId);
+        scratch.putInt(points);
+        finish();
+    }
+
+    public synchronized void sessionEnd() {
+        begin(RecordType.SESSION_END);
+        finish();
+    }
+    // end writers
+
+    private void clientRecord(RecordType type, long clientId) {
+        begin(type);
+        scratch.putLong(clientId);
+        finish();
+    }
+
+    private void begin(RecordType type) {
+        scratch.clear();
+        scratch.putInt(0); // length, filled in by finish()
+        scratch.put((byte) type.ordinal());
+        scratch.putLong(System.nanoTime() - startNanos);
+    }
+
+    private void putString(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        scratch.putShort((short) length);
+        scratch.put(bytes, 0, length);
+    }
+
+    private void finish() {
+        if (isClosed) {
+            return;
+        }
+        scratch.putInt(0, scratch.position() - Integer.BYTES);
+        scratch.flip();
+        try {
+            ensureCapacity(scratch.remaining());
+            buffer.put(scratch);
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning("Session journal write failed, closing " + path, e);
+            close();
+        }
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+        long written = regionStart + buffer.position();
+        if (channel == null) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+            return;
+        }
+        // map the next region; the old mapping is released once it's collected
+        ((MappedByteBuffer) buffer).force();
+        regionStart = written;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, size));
+    }
+
+    /**
+     * Flushes the file and trims the unused part of the mapped region
+     */
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        if (channel == null) {
+            return;
+        }
+        try {
+            ((MappedByteBuffer) buffer).force();
+            channel.truncate(regionStart + buffer.position());
+            channel.close();
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning("Failed to close session journal " + path, e);
+        }
+    }
+
+    /**
+     * @return the records written so far
+     */
+    public synchronized List<Record> getRecords() {
+        if (channel != null) {
+            throw new IllegalStateException("Read file journals with SessionJournal.read()");
+        }
+        ByteBuffer copy = buffer.duplicate();
+        copy.flip();
+        return parse(copy);
+    }
+
+    /**
+     * Reads every record of a journal file
+     *
+     * @param path
+     * @return the records in write order
+     * @throws IOException
+     */
+    public static List<Record> read(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            return parse(data);
+        }
+    }
+
+    private static List<Record> parse(ByteBuffer data) {
+        if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a session journal");
+        }
+        short version = data.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported journal version " + version);
+        }
+        RecordType[] types = RecordType.values();
+        List<Record> records = new ArrayList<>();
+        while (data.remaining() >= RECORD_HEADER_SIZE) {
+            int length = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                break; // zero filled tail of an unclosed (crashed) journal
+            }
+            int type = data.get();
+            long elapsed = data.getLong();
+            byte[] body = new byte[length - 1 - Long.BYTES];
+            data.get(body);
+            if (type < 0 || type >= types.length) {
+                throw new IllegalArgumentException("Unknown record type " + type);
+            }
+            records.add(new Record(types[type], elapsed, body));
+        }
+        return records;
+    }
+}
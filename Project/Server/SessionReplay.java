@@ -0,0 +1,237 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import Project.Common.LoggerUtil;
+import Project.Common.TimerType;
+
+/**
+ * Re-runs journaled GameRoom sessions (see SessionJournal) through a real
+ * GameRoom and checks the outcome matches the recording.
+ * <p>
+ * The recorded inputs (picks, turns, away toggles, leaves and timer expiries)
+ * are fed straight into the room with no timers or sockets, so a session
+ * replays as fast as the game logic runs. Useful for reproducing disputes,
+ * regression checking GameRoom changes and as a game-logic benchmark.
+ * </p>
+ * Example:
+ *
+ * <pre>
+ * java Project.Server.SessionReplay journal/lobby-20250301-101500-1.journal
+ * java Project.Server.SessionReplay -print journal/lobby-20250301-101500-1.journal
+ * java Project.Server.SessionReplay -repeat 1000 journal/*.journal
+ * </pre>
+ */
+public class SessionReplay {
+
+    /**
+     * GameRoom driven entirely by the journal: timers never start (their expiries
+     * are inputs) and the session reuses the recorded seed
+     */
+    private static class ReplayGameRoom extends GameRoom {
+        private final long seed;
+        private final SessionJournal output = SessionJournal.inMemory();
+
+        private ReplayGameRoom(String name, long seed) {
+            super(name);
+            this.seed = seed;
+        }
+
+        @Override
+        protected long newSessionSeed() {
+            return seed;
+        }
+
+        @Override
+        protected SessionJournal openJournal() {
+            return output;
+        }
+
+        @Override
+        protected void startRoundTimer() {
+        }
+
+        @Override
+        protected void startTurnTimer() {
+        }
+
+        @Override
+        protected void startReadyTimer(boolean resetOnTry) {
+        }
+    }
+
+    private static class Result {
+        private int inputs = 0;
+        private int compared = 0;
+        private String divergence = null;
+    }
+
+    public static void main(String[] args) {
+        configureLogging();
+        int repeat = 1;
+        boolean print = false;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-repeat":
+                    repeat = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "-print":
+                    print = true;
+                    break;
+                default:
+                    files.add(Paths.get(args[i]));
+                    break;
+            }
+        }
+        if (files.isEmpty()) {
+            System.out.println("Usage: SessionReplay [-print] [-repeat N] <journal file>...");
+            System.exit(2);
+        }
+        boolean allMatched = true;
+        for (Path file : files) {
+            try {
+                List<SessionJournal.Record> records = SessionJournal.read(file);
+                if (print) {
+                    records.forEach(record -> System.out.println(record));
+                }
+                allMatched &= replay(file, records, repeat);
+            } catch (Exception e) {
+                allMatched = false;
+                System.out.println(String.format("%s: replay failed: %s", file, e));
+            }
+        }
+        // Server's worker lanes and shutdown hook may have been started by the room
+        System.exit(allMatched ? 0 : 1);
+    }
+
+    private static boolean replay(Path file, List<SessionJournal.Record> records, int repeat) throws IOException {
+        Result result = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            result = replayOnce(records);
+            if (result.divergence != null) {
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (result.divergence != null) {
+            System.out.println(String.format("%s: DIVERGED %s", file, result.divergence));
+            return false;
+        }
+        double seconds = elapsed / 1e9;
+        System.out.println(String.format("%s: OK %d inputs, %d outputs matched; %d run(s) in %.3fms (%.0f inputs/s)",
+                file, result.inputs, result.compared, repeat, elapsed / 1e6, result.inputs * repeat / seconds));
+        return true;
+    }
+
+    private static Result replayOnce(List<SessionJournal.Record> records) throws IOException {
+        Result result = new Result();
+        if (records.isEmpty() || records.get(0).getType() != SessionJournal.RecordType.SESSION_START) {
+            result.divergence = "journal doesn't begin with SESSION_START";
+            return result;
+        }
+        SessionJournal.Record header = records.get(0).rewind();
+        long seed = header.getLong();
+        String roomName = header.getString();
+        int count = header.getInt();
+        ReplayGameRoom room = new ReplayGameRoom(roomName, seed);
+        Map<Long, ServerThread> players = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            ServerThread player = createPlayer(header.getLong(), header.getString());
+            players.put(player.getClientId(), player);
+            room.addClient(player);
+            player.setReady(true);
+        }
+        room.onSessionStart();
+
+        List<SessionJournal.Record> expected = new ArrayList<>();
+        for (SessionJournal.Record record : records) {
+            if (!record.getType().isInput) {
+                expected.add(record);
+                continue;
+            }
+            result.inputs++;
+            apply(room, players, record.rewind());
+        }
+        List<SessionJournal.Record> actual = new ArrayList<>();
+        for (SessionJournal.Record record : room.output.getRecords()) {
+            if (!record.getType().isInput) {
+                actual.add(record);
+            }
+        }
+        for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            SessionJournal.Record e = i < expected.size() ? expected.get(i) : null;
+            SessionJournal.Record a = i < actual.size() ? actual.get(i) : null;
+            if (e == null || a == null || !e.sameAs(a)) {
+                result.divergence = String.format("at output #%d: expected [%s] but replay produced [%s]", i,
+                        e == null ? "end of journal" : e, a == null ? "end of replay" : a);
+                return result;
+            }
+            result.compared++;
+        }
+        return result;
+    }
+
+    private static void apply(ReplayGameRoom room, Map<Long, ServerThread> players, SessionJournal.Record record) {
+        switch (record.getType()) {
+            case PICK: {
+                ServerThread player = players.get(record.getLong());
+                room.handlePICK(player, record.getString());
+                break;
+            }
+            case TURN:
+                room.handleTurnAction(players.get(record.getLong()), "");
+                break;
+            case AWAY:
+                room.handleAwayAction(players.get(record.getLong()));
+                break;
+            case PLAYER_LEFT:
+                room.disconnect(players.get(record.getLong()));
+                break;
+            case TIMER_EXPIRED:
+                TimerType timerType = TimerType.valueOf(record.getString());
+                if (timerType == TimerType.ROUND) {
+                    room.onRoundEnd();
+                } else if (timerType == TimerType.TURN) {
+                    room.onTurnEnd();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static ServerThread createPlayer(long clientId, String clientName) throws IOException {
+        ServerThread player = new ServerThread(new Socket(), (s) -> {
+        });
+        player.setClientId(clientId);
+        player.setClientName(clientName);
+        player.attachOutput(new ObjectOutputStream(OutputStream.nullOutputStream()), null);
+        return player;
+    }
+
+    /**
+     * Keeps the game's own logging out of the way; must run before anything
+     * touches Server.INSTANCE (only the first LoggerUtil config takes effect)
+     */
+    private static void configureLogging() {
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation(System.getProperty("java.io.tmpdir") + "/replay.log");
+        config.setFileSizeLimit(1024 * 1024);
+        config.setFileCount(1);
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.OFF);
+        LoggerUtil.INSTANCE.setConfig(config);
+    }
+}
@@ -1,27 +1,40 @@
 #!/bin/bash
-# Convert input to lowercase
-input=$(echo "${2:-client}" | tr '[:upper:]' '[:lower:]')
-port=${3:-3000}  # Default port to 3000 if not 
 # Default debug mode to false
 debug=false
 debugArg=""
-# Check for -d flag
-if [[ " $@ " =~ " -d " ]]; then
-    debug=true
-fi
+# Pull out the -d flag (it may appear anywhere) so it's never taken as a positional argument
+args=()
+for arg in "$@"; do
+    if [ "$arg" = "-d" ]; then
+        debug=true
+    else
+        args+=("$arg")
+    fi
+done
+set -- "${args[@]}"
+# Convert input to lowercase
+input=$(echo "${2:-client}" | tr '[:upper:]' '[:lower:]')
+port=${3:-3000}  # Default port to 3000 if not 
+nodes=${4:-}  # Optional comma separated host:port list for clustered servers
 if $debug; then
     debugArg="-agentlib:jdwp=transport=dt_socket,server=y,address=5005"
     echo "Debug mode is ON"
 fi
 
 if [ "$input" = "server" ]; then
-    java $debugArg $1.Server.Server $port 
+    java $debugArg $1.Server.Server $port $nodes
 elif [ "$input" = "client" ]; then
     java $debugArg $1.Client.Client
     # In Milestone3 changes Client to ClientUI
 elif [ "$input" = "ui" ]; then
 	java $debugArg $1.Client.ClientUI
 	# Milestone 3's new entry point
+elif [ "$input" = "loadtest" ]; then
+    # extra options (e.g. -clients 500 -duration 120) are passed through
+    java $debugArg $1.LoadTest.LoadGenerator -port $port "${@:4}"
+elif [ "$input" = "replay" ]; then
+    # journal files (and -print / -repeat N) follow the mode
+    java $debugArg $1.Server.SessionReplay "${@:3}"
 else
     echo "Must specify client or server"
-fi
\ No newline at end of file
+fi